@@ -0,0 +1,71 @@
+package org.auwerk.otus.arch.billingservice.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.auwerk.otus.arch.billingservice.api.dto.AccountDto;
+import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.mapper.AccountMapper;
+import org.auwerk.otus.arch.billingservice.mapper.AccountMapperImpl;
+import org.auwerk.otus.arch.billingservice.mapper.OperationMapperImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Маппинг счёта в DTO и сериализация ответа GET /account в JSON
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountMappingBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    private int operationCount;
+
+    private AccountMapper accountMapper;
+    private ObjectMapper objectMapper;
+    private Account account;
+    private AccountDto accountDto;
+
+    @Setup
+    public void setUp() {
+        accountMapper = new AccountMapperImpl(new OperationMapperImpl());
+        // те же настройки, что у ObjectMapper по умолчанию в Quarkus
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        account = BenchmarkData.account(operationCount);
+        accountDto = accountMapper.toDto(account);
+    }
+
+    @Benchmark
+    public AccountDto mapToDto() {
+        return accountMapper.toDto(account);
+    }
+
+    @Benchmark
+    public byte[] serializeDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(accountDto);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(accountMapper.toDto(account));
+    }
+}
@@ -0,0 +1,46 @@
+package org.auwerk.otus.arch.billingservice.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationType;
+
+public final class BenchmarkData {
+
+    public static final String USERNAME = "benchmark";
+
+    private BenchmarkData() {
+    }
+
+    public static Account account(int operationCount) {
+        final var accountId = UUID.randomUUID();
+        return Account.builder()
+                .id(accountId)
+                .userName(USERNAME)
+                .balance(Money.parse("1000000.00"))
+                .createdAt(LocalDateTime.now())
+                .operations(operations(accountId, operationCount))
+                .build();
+    }
+
+    public static List<Operation> operations(UUID accountId, int count) {
+        final var now = LocalDateTime.now();
+        final var operations = new ArrayList<Operation>(count);
+        for (int i = 0; i < count; i++) {
+            operations.add(Operation.builder()
+                    .id(UUID.randomUUID())
+                    .accountId(accountId)
+                    .type(i % 2 == 0 ? OperationType.CREDIT : OperationType.WITHDRAW)
+                    .amount(Money.ofMinor(i % 100 + 1))
+                    .comment("operation " + i)
+                    .createdAt(now.minusSeconds(i))
+                    .build());
+        }
+        return operations;
+    }
+}
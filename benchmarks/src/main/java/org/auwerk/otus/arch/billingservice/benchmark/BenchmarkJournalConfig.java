@@ -0,0 +1,13 @@
+package org.auwerk.otus.arch.billingservice.benchmark;
+
+import java.time.Duration;
+
+import org.auwerk.otus.arch.billingservice.config.JournalConfig;
+
+public record BenchmarkJournalConfig(boolean enabled, String path, String deadLetterPath, Duration flushInterval,
+        int maxBatchSize, int queueCapacity) implements JournalConfig {
+
+    public static BenchmarkJournalConfig disabled() {
+        return new BenchmarkJournalConfig(false, "", "", Duration.ofMillis(5), 500, 1);
+    }
+}
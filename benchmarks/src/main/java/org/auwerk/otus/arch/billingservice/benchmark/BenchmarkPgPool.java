@@ -0,0 +1,28 @@
+package org.auwerk.otus.arch.billingservice.benchmark;
+
+import java.util.function.Function;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+
+/**
+ * Пул без соединений с БД: транзакция и запросы исполняются без соединения,
+ * заглушки DAO клиент не используют
+ */
+public class BenchmarkPgPool extends PgPool {
+
+    public BenchmarkPgPool() {
+        super((io.vertx.pgclient.PgPool) null);
+    }
+
+    @Override
+    public <T> Uni<T> withTransaction(Function<SqlConnection, Uni<T>> function) {
+        return function.apply(null);
+    }
+
+    @Override
+    public <T> Uni<T> withConnection(Function<SqlConnection, Uni<T>> function) {
+        return function.apply(null);
+    }
+}
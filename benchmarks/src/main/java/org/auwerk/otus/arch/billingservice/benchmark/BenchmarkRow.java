@@ -0,0 +1,36 @@
+package org.auwerk.otus.arch.billingservice.benchmark;
+
+import java.util.List;
+
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.impl.ArrayTuple;
+
+/**
+ * Строка результата запроса без соединения с БД, для замеров маппинга строк
+ */
+public class BenchmarkRow extends ArrayTuple implements Row {
+
+    private final List<String> columns;
+
+    public BenchmarkRow(List<String> columns, Object... values) {
+        super(columns.size());
+        this.columns = columns;
+        for (final var value : values) {
+            addValue(value);
+        }
+    }
+
+    public static io.vertx.mutiny.sqlclient.Row of(List<String> columns, Object... values) {
+        return io.vertx.mutiny.sqlclient.Row.newInstance(new BenchmarkRow(columns, values));
+    }
+
+    @Override
+    public String getColumnName(int pos) {
+        return pos < 0 || pos >= columns.size() ? null : columns.get(pos);
+    }
+
+    @Override
+    public int getColumnIndex(String column) {
+        return columns.indexOf(column);
+    }
+}
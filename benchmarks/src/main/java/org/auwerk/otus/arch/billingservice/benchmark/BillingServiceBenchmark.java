@@ -0,0 +1,171 @@
+package org.auwerk.otus.arch.billingservice.benchmark;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.auwerk.otus.arch.billingservice.config.DispatcherConfig;
+import org.auwerk.otus.arch.billingservice.config.IdempotencyConfig;
+import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.AccountMetadata;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationBatchItemResult;
+import org.auwerk.otus.arch.billingservice.domain.OperationBatchMode;
+import org.auwerk.otus.arch.billingservice.domain.OperationPage;
+import org.auwerk.otus.arch.billingservice.domain.OperationType;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.auwerk.otus.arch.billingservice.service.BillingService;
+import org.auwerk.otus.arch.billingservice.service.impl.AccountMetadataCache;
+import org.auwerk.otus.arch.billingservice.service.impl.AccountOperationDispatcher;
+import org.auwerk.otus.arch.billingservice.service.impl.BillingServiceImpl;
+import org.auwerk.otus.arch.billingservice.service.impl.CreditJournal;
+import org.auwerk.otus.arch.billingservice.service.impl.IdempotencyKeyCache;
+import org.auwerk.otus.arch.billingservice.service.impl.InPlaceBalanceStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.security.runtime.QuarkusPrincipal;
+import io.quarkus.security.runtime.QuarkusSecurityIdentity;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+
+/**
+ * Горячие пути сервиса целиком (цепочки Mutiny, маппинг, расчёты) с
+ * DAO-заглушками вместо БД
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BillingServiceBenchmark {
+
+    private static final int ACCOUNT_OPERATIONS = 1000;
+    private static final int BATCH_SIZE = 10;
+
+    private BillingService billingService;
+    private List<Operation> batch;
+
+    @Setup
+    public void setUp() {
+        final var account = BenchmarkData.account(ACCOUNT_OPERATIONS);
+        final var operations = account.getOperations();
+        final var accountDao = new StubAccountDao(account);
+        final var operationDao = new StubOperationDao(operations);
+        final var idempotencyConfig = new IdempotencyConfig() {
+            @Override
+            public Duration ttl() {
+                return Duration.ofHours(24);
+            }
+
+            @Override
+            public int cacheSize() {
+                return 10000;
+            }
+
+            @Override
+            public String purgeInterval() {
+                return "1m";
+            }
+
+            @Override
+            public int purgeBatchSize() {
+                return 1000;
+            }
+        };
+        final var dispatcherConfig = new DispatcherConfig() {
+            @Override
+            public boolean enabled() {
+                return true;
+            }
+
+            @Override
+            public int stripes() {
+                return 256;
+            }
+
+            @Override
+            public int queueCapacity() {
+                return 1000;
+            }
+
+            @Override
+            public int maxBatchSize() {
+                return 100;
+            }
+        };
+        final var accountMetadataCache = new StaticAccountMetadataCache(account);
+        final var securityIdentity = QuarkusSecurityIdentity.builder()
+                .setPrincipal(new QuarkusPrincipal(BenchmarkData.USERNAME))
+                .build();
+
+        final var pool = new BenchmarkPgPool();
+        final var poolMetrics = new PoolMetrics(new SimpleMeterRegistry(), 20);
+        final var balanceStore = new InPlaceBalanceStore(poolMetrics, accountDao, operationDao);
+
+        billingService = new BillingServiceImpl(pool, poolMetrics, accountDao, new StubAccountDeletionDao(),
+                new StubAccountTotalsDao(), operationDao, new StubIdempotencyKeyDao(),
+                new IdempotencyKeyCache(idempotencyConfig), idempotencyConfig, accountMetadataCache,
+                balanceStore, new AccountOperationDispatcher(dispatcherConfig),
+                new CreditJournal(BenchmarkJournalConfig.disabled(), pool, poolMetrics, balanceStore, accountDao,
+                        operationDao, new ObjectMapper()),
+                securityIdentity);
+        batch = BenchmarkData.operations(account.getId(), BATCH_SIZE);
+    }
+
+    @Benchmark
+    public UUID executeOperation() {
+        return billingService.executeOperation(OperationType.CREDIT, Money.ofMajor(10), "benchmark")
+                .await().indefinitely();
+    }
+
+    @Benchmark
+    public Account getUserAccount() {
+        return billingService.getUserAccount(true)
+                .await().indefinitely();
+    }
+
+    @Benchmark
+    public OperationPage getUserAccountOperations() {
+        return billingService.getUserAccountOperations(null, 50)
+                .await().indefinitely();
+    }
+
+    @Benchmark
+    public List<OperationBatchItemResult> executeOperationBatch() {
+        return billingService.executeOperationBatch(batch, OperationBatchMode.PER_ITEM)
+                .await().indefinitely();
+    }
+
+    /**
+     * Кэш атрибутов счёта, всегда содержащий один счёт
+     */
+    static class StaticAccountMetadataCache extends AccountMetadataCache {
+
+        private final Uni<AccountMetadata> metadata;
+
+        StaticAccountMetadataCache(Account account) {
+            super(null, null, null);
+            this.metadata = Uni.createFrom().item(AccountMetadata.of(account));
+        }
+
+        @Override
+        public Uni<AccountMetadata> get(SqlClient client, String userName) {
+            return metadata;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.auwerk.otus.arch.billingservice.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.auwerk.otus.arch.billingservice.service.impl.CreditJournal;
+import org.auwerk.otus.arch.billingservice.service.impl.InPlaceBalanceStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Пропускная способность и задержка подтверждения пополнений через журнал при
+ * разных интервалах групповой фиксации. Файл журнала пишется на диск
+ * (каталог задаётся свойством {@code benchmark.journal.dir}), БД заменена
+ * заглушками.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(1)
+public class CreditJournalBenchmark {
+
+    @Param({ "1", "5", "20" })
+    private int flushIntervalMillis;
+
+    @Param({ "500" })
+    private int maxBatchSize;
+
+    private Path dir;
+    private CreditJournal journal;
+    private UUID accountId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory(Path.of(System.getProperty("benchmark.journal.dir",
+                System.getProperty("java.io.tmpdir"))), "credit-journal");
+        final var account = BenchmarkData.account(0);
+        final var accountDao = new StubAccountDao(account);
+        final var operationDao = new StubOperationDao(account.getOperations());
+        final var pool = new BenchmarkPgPool();
+        final var config = new BenchmarkJournalConfig(true, dir.resolve("journal.log").toString(),
+                dir.resolve("journal.dead.log").toString(), Duration.ofMillis(flushIntervalMillis), maxBatchSize,
+                100000);
+        final var poolMetrics = new PoolMetrics(new SimpleMeterRegistry(), 20);
+        journal = new CreditJournal(config, pool, poolMetrics,
+                new InPlaceBalanceStore(poolMetrics, accountDao, operationDao), accountDao, operationDao,
+                new ObjectMapper()
+                        .registerModule(new JavaTimeModule())
+                        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+        journal.start();
+        accountId = account.getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        journal.stop();
+        Files.deleteIfExists(dir.resolve("journal.log"));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public UUID credit() {
+        return journal.append(accountId, Money.ofMajor(1), "benchmark")
+                .await().indefinitely();
+    }
+}
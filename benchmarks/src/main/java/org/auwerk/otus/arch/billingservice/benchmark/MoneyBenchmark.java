@@ -0,0 +1,113 @@
+package org.auwerk.otus.arch.billingservice.benchmark;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.vertx.mutiny.sqlclient.Row;
+
+/**
+ * Сравнение представлений денежных сумм: {@link BigDecimal} против
+ * {@link Money} в копейках. Замеряются свёртка сумм (пересчёт баланса),
+ * запись и чтение JSON, чтение суммы из строки результата запроса
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    @Param({ "1000" })
+    private int amountCount;
+
+    private ObjectMapper objectMapper;
+    private List<BigDecimal> decimals;
+    private List<Money> amounts;
+    private String decimalsJson;
+    private String amountsJson;
+    private Row decimalRow;
+    private Row minorUnitsRow;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = new ObjectMapper();
+        final var random = ThreadLocalRandom.current();
+        amounts = random.longs(amountCount, 1, 1_000_000)
+                .mapToObj(Money::ofMinor)
+                .toList();
+        decimals = amounts.stream()
+                .map(Money::toBigDecimal)
+                .toList();
+        decimalsJson = objectMapper.writeValueAsString(decimals);
+        amountsJson = objectMapper.writeValueAsString(amounts);
+        decimalRow = BenchmarkRow.of(List.of("amount"), new BigDecimal("1234.56"));
+        minorUnitsRow = BenchmarkRow.of(List.of("amount"), 123456L);
+    }
+
+    @Benchmark
+    public BigDecimal sumDecimals() {
+        var sum = BigDecimal.ZERO;
+        for (final var amount : decimals) {
+            sum = sum.add(amount);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Money sumMoney() {
+        var sum = Money.ZERO;
+        for (final var amount : amounts) {
+            sum = sum.plus(amount);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public String writeDecimals() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(decimals);
+    }
+
+    @Benchmark
+    public String writeMoney() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(amounts);
+    }
+
+    @Benchmark
+    public BigDecimal[] readDecimals() throws JsonProcessingException {
+        return objectMapper.readValue(decimalsJson, BigDecimal[].class);
+    }
+
+    @Benchmark
+    public Money[] readMoney() throws JsonProcessingException {
+        return objectMapper.readValue(amountsJson, Money[].class);
+    }
+
+    @Benchmark
+    public BigDecimal decodeDecimalColumn() {
+        return decimalRow.getBigDecimal("amount");
+    }
+
+    @Benchmark
+    public Money decodeMinorUnitsColumn() {
+        return Money.ofMinor(minorUnitsRow.getLong("amount"));
+    }
+}
@@ -0,0 +1,150 @@
+package org.auwerk.otus.arch.billingservice.benchmark;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.auwerk.otus.arch.billingservice.config.DispatcherConfig;
+import org.auwerk.otus.arch.billingservice.config.IdempotencyConfig;
+import org.auwerk.otus.arch.billingservice.config.ServiceConfig;
+import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.OperationType;
+import org.auwerk.otus.arch.billingservice.domain.ServiceExecutor;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.auwerk.otus.arch.billingservice.service.BillingService;
+import org.auwerk.otus.arch.billingservice.service.impl.AccountMetadataCache;
+import org.auwerk.otus.arch.billingservice.service.impl.AccountOperationDispatcher;
+import org.auwerk.otus.arch.billingservice.service.impl.BillingServiceImpl;
+import org.auwerk.otus.arch.billingservice.service.impl.BlockingBillingServiceImpl;
+import org.auwerk.otus.arch.billingservice.service.impl.CreditJournal;
+import org.auwerk.otus.arch.billingservice.service.impl.IdempotencyKeyCache;
+import org.auwerk.otus.arch.billingservice.service.impl.InPlaceBalanceStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.security.runtime.QuarkusPrincipal;
+import io.quarkus.security.runtime.QuarkusSecurityIdentity;
+
+/**
+ * Реактивная и блокирующая реализации сервиса на путях {@code POST /operation}
+ * и {@code GET /account} с DAO-заглушками, возвращающими уже завершённые
+ * {@link io.smallrye.mutiny.Uni}: измеряются только накладные расходы кода
+ * сервиса и ожидания результата, без обращений к БД и планирования на event
+ * loop. Пропускная способность и задержки эндпоинтов измеряются нагрузочным
+ * тестом. Диспетчер очередей счетов выключен в обеих реализациях.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class ServiceModeBenchmark {
+
+    private static final int ACCOUNT_OPERATIONS = 1000;
+
+    @Param({ "reactive", "blocking" })
+    private String mode;
+
+    private BillingService billingService;
+
+    @Setup
+    public void setUp() {
+        final var account = BenchmarkData.account(ACCOUNT_OPERATIONS);
+        final var accountDao = new StubAccountDao(account);
+        final var operationDao = new StubOperationDao(account.getOperations());
+        final var idempotencyConfig = new IdempotencyConfig() {
+            @Override
+            public Duration ttl() {
+                return Duration.ofHours(24);
+            }
+
+            @Override
+            public int cacheSize() {
+                return 10000;
+            }
+
+            @Override
+            public String purgeInterval() {
+                return "1m";
+            }
+
+            @Override
+            public int purgeBatchSize() {
+                return 1000;
+            }
+        };
+        final var dispatcherConfig = new DispatcherConfig() {
+            @Override
+            public boolean enabled() {
+                return false;
+            }
+
+            @Override
+            public int stripes() {
+                return 256;
+            }
+
+            @Override
+            public int queueCapacity() {
+                return 1000;
+            }
+
+            @Override
+            public int maxBatchSize() {
+                return 100;
+            }
+        };
+        final ServiceConfig serviceConfig = () -> ServiceExecutor.WORKER;
+        final var accountMetadataCache = new BillingServiceBenchmark.StaticAccountMetadataCache(account);
+        final var securityIdentity = QuarkusSecurityIdentity.builder()
+                .setPrincipal(new QuarkusPrincipal(BenchmarkData.USERNAME))
+                .build();
+
+        final var pool = new BenchmarkPgPool();
+        final var poolMetrics = new PoolMetrics(new SimpleMeterRegistry(), 20);
+        final var balanceStore = new InPlaceBalanceStore(poolMetrics, accountDao, operationDao);
+        final var idempotencyKeyCache = new IdempotencyKeyCache(idempotencyConfig);
+        final var creditJournal = new CreditJournal(BenchmarkJournalConfig.disabled(), pool, poolMetrics,
+                balanceStore, accountDao, operationDao, new ObjectMapper());
+
+        final var reactive = new BillingServiceImpl(pool, poolMetrics, accountDao, new StubAccountDeletionDao(),
+                new StubAccountTotalsDao(), operationDao, new StubIdempotencyKeyDao(), idempotencyKeyCache,
+                idempotencyConfig, accountMetadataCache, balanceStore,
+                new AccountOperationDispatcher(dispatcherConfig), creditJournal, securityIdentity);
+        billingService = switch (mode) {
+            case "reactive" -> reactive;
+            case "blocking" -> new BlockingBillingServiceImpl(reactive, pool, poolMetrics, accountDao,
+                    operationDao, new StubIdempotencyKeyDao(), idempotencyKeyCache, idempotencyConfig,
+                    accountMetadataCache, balanceStore, creditJournal, securityIdentity, serviceConfig);
+            default -> throw new IllegalArgumentException(mode);
+        };
+    }
+
+    @Benchmark
+    public UUID executeOperation() {
+        return billingService.executeOperation(OperationType.CREDIT, Money.ofMajor(10), "benchmark")
+                .await().indefinitely();
+    }
+
+    @Benchmark
+    public Account getUserAccount() {
+        return billingService.getUserAccount(true)
+                .await().indefinitely();
+    }
+}
@@ -0,0 +1,97 @@
+package org.auwerk.otus.arch.billingservice.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.auwerk.otus.arch.billingservice.dao.AccountDao;
+import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.AccountBalance;
+import org.auwerk.otus.arch.billingservice.domain.AccountVersion;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+
+/**
+ * Заглушка DAO, всегда возвращающая один и тот же счёт
+ */
+public class StubAccountDao implements AccountDao {
+
+    private final Account account;
+
+    public StubAccountDao(Account account) {
+        this.account = account;
+    }
+
+    @Override
+    public Uni<Account> findById(SqlClient client, UUID id) {
+        return Uni.createFrom().item(account);
+    }
+
+    @Override
+    public Uni<Account> findByUserName(SqlClient client, String userName) {
+        return Uni.createFrom().item(account);
+    }
+
+    @Override
+    public Uni<Account> findByUserNameForUpdate(SqlClient client, String userName) {
+        return Uni.createFrom().item(account);
+    }
+
+    @Override
+    public Uni<UUID> findIdByUserNameForUpdate(SqlClient client, String userName) {
+        return Uni.createFrom().item(account.getId());
+    }
+
+    @Override
+    public Uni<AccountBalance> findBalanceById(SqlClient client, UUID id) {
+        return Uni.createFrom().item(AccountBalance.builder()
+                .balance(account.getBalance())
+                .build());
+    }
+
+    @Override
+    public Uni<AccountVersion> findVersionByUserName(SqlClient client, String userName) {
+        return Uni.createFrom().item(new AccountVersion(account.getId(), 0));
+    }
+
+    @Override
+    public Uni<Set<UUID>> findActiveIds(SqlClient client, Collection<UUID> ids) {
+        return Uni.createFrom().item(Set.of(account.getId()));
+    }
+
+    @Override
+    public Uni<UUID> insert(SqlClient client, String userName) {
+        return Uni.createFrom().item(account.getId());
+    }
+
+    @Override
+    public Uni<Void> updateBalanceById(SqlClient client, UUID id, Money balance, long expectedVersion) {
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> addToBalances(SqlClient client, Map<UUID, Money> balanceDeltas) {
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<UUID> updateBalanceAndInsertOperation(SqlClient client, String userName, Operation operation,
+            Money balanceDelta) {
+        return Uni.createFrom().item(UUID.randomUUID());
+    }
+
+    @Override
+    public Uni<Void> markDeleted(SqlClient client, UUID id, LocalDateTime deletedAt) {
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> deleteById(SqlClient client, UUID id) {
+        return Uni.createFrom().voidItem();
+    }
+}
@@ -0,0 +1,55 @@
+package org.auwerk.otus.arch.billingservice.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import org.auwerk.otus.arch.billingservice.dao.AccountDeletionDao;
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletion;
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletionStatus;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+
+/**
+ * Заглушка DAO, в которой нет ни одной задачи удаления счёта
+ */
+public class StubAccountDeletionDao implements AccountDeletionDao {
+
+    @Override
+    public Uni<AccountDeletion> findById(SqlClient client, UUID id) {
+        return Uni.createFrom().failure(new NoSuchElementException("account deletion not found, id=" + id));
+    }
+
+    @Override
+    public Uni<List<AccountDeletion>> findPending(SqlClient client, int limit) {
+        return Uni.createFrom().item(List.of());
+    }
+
+    @Override
+    public Uni<Void> insert(SqlClient client, AccountDeletion deletion) {
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Boolean> tryLockPending(SqlConnection conn, UUID id) {
+        return Uni.createFrom().item(false);
+    }
+
+    @Override
+    public Uni<Void> addPurgedOperations(SqlClient client, UUID id, int count) {
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> complete(SqlClient client, UUID id, LocalDateTime completedAt) {
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<AccountDeletionStatus> recordFailure(SqlClient client, UUID id, int maxAttempts) {
+        return Uni.createFrom().failure(new NoSuchElementException("account deletion not found, id=" + id));
+    }
+}
@@ -0,0 +1,35 @@
+package org.auwerk.otus.arch.billingservice.benchmark;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import org.auwerk.otus.arch.billingservice.dao.AccountTotalsDao;
+import org.auwerk.otus.arch.billingservice.domain.AccountTotals;
+import org.auwerk.otus.arch.billingservice.domain.StatsGranularity;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+
+/**
+ * Заглушка DAO без итогов по счетам
+ */
+public class StubAccountTotalsDao implements AccountTotalsDao {
+
+    @Override
+    public Uni<List<AccountTotals>> findByAccountId(SqlClient client, UUID accountId, LocalDate from, LocalDate to,
+            StatsGranularity granularity) {
+        return Uni.createFrom().item(List.of());
+    }
+
+    @Override
+    public Uni<Boolean> tryLockRollup(SqlConnection conn) {
+        return Uni.createFrom().item(false);
+    }
+
+    @Override
+    public Uni<Integer> rollUp(SqlConnection conn) {
+        return Uni.createFrom().item(0);
+    }
+}
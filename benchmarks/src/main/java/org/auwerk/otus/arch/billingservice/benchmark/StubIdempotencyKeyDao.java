@@ -0,0 +1,32 @@
+package org.auwerk.otus.arch.billingservice.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.auwerk.otus.arch.billingservice.dao.IdempotencyKeyDao;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+
+/**
+ * Заглушка DAO, в которой не хранится ни один ключ идемпотентности
+ */
+public class StubIdempotencyKeyDao implements IdempotencyKeyDao {
+
+    @Override
+    public Uni<UUID> findOperationId(SqlClient client, String userName, String idempotencyKey,
+            LocalDateTime now) {
+        return Uni.createFrom().nullItem();
+    }
+
+    @Override
+    public Uni<Void> insert(SqlClient client, String userName, String idempotencyKey, UUID operationId,
+            LocalDateTime expiresAt) {
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Integer> deleteExpired(SqlClient client, LocalDateTime now, int limit) {
+        return Uni.createFrom().item(0);
+    }
+}
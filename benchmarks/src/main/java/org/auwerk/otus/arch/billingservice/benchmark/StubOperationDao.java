@@ -0,0 +1,74 @@
+package org.auwerk.otus.arch.billingservice.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.auwerk.otus.arch.billingservice.dao.OperationDao;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationCursor;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+
+/**
+ * Заглушка DAO, отдающая заранее подготовленную историю операций
+ */
+public class StubOperationDao implements OperationDao {
+
+    private final List<Operation> operations;
+
+    public StubOperationDao(List<Operation> operations) {
+        this.operations = operations;
+    }
+
+    @Override
+    public Uni<Operation> findById(SqlClient client, UUID id) {
+        return Uni.createFrom().item(operations.get(0));
+    }
+
+    @Override
+    public Uni<Operation> findByIdForUpdate(SqlConnection conn, UUID id) {
+        return Uni.createFrom().item(operations.get(0));
+    }
+
+    @Override
+    public Uni<Boolean> isCanceled(SqlClient client, UUID id) {
+        return Uni.createFrom().item(false);
+    }
+
+    @Override
+    public Uni<List<Operation>> findByAccountId(SqlClient client, UUID accountId, LocalDateTime since,
+            OperationCursor after, int limit) {
+        return Uni.createFrom().item(operations.subList(0, Math.min(limit, operations.size())));
+    }
+
+    @Override
+    public Multi<Operation> streamByAccountId(SqlConnection conn, UUID accountId, LocalDateTime since,
+            int fetchSize) {
+        return Multi.createFrom().iterable(operations);
+    }
+
+    @Override
+    public Uni<UUID> insert(SqlClient client, Operation operation) {
+        return Uni.createFrom().item(UUID.randomUUID());
+    }
+
+    @Override
+    public Uni<Set<UUID>> findExistingIds(SqlClient client, List<UUID> ids, LocalDateTime from) {
+        return Uni.createFrom().item(Set.of());
+    }
+
+    @Override
+    public Uni<Void> insertBatch(SqlClient client, List<Operation> operations) {
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Integer> deleteByAccountId(SqlClient client, UUID accountId, int limit) {
+        return Uni.createFrom().item(0);
+    }
+}
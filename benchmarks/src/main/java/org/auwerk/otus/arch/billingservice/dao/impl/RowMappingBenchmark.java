@@ -0,0 +1,103 @@
+package org.auwerk.otus.arch.billingservice.dao.impl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.auwerk.otus.arch.billingservice.benchmark.BenchmarkRow;
+import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.vertx.mutiny.sqlclient.Row;
+
+/**
+ * Маппинг строк результата запроса в доменные объекты. Для выборки истории
+ * операций сравнивается чтение столбцов по позиции (как в DAO) и по имени:
+ * поиск по имени проходит по списку столбцов для каждого значения
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappingBenchmark {
+
+    @Param({ "100000" })
+    private int rowCount;
+
+    private Row accountRow;
+    private Row operationRow;
+    private List<Row> operationRows;
+
+    @Setup
+    public void setUp() {
+        accountRow = BenchmarkRow.of(List.of(AccountDaoImpl.COLUMNS.split(", ")),
+                UUID.randomUUID(), "user", 123456L, LocalDateTime.now());
+        final var columns = List.of(OperationDaoImpl.COLUMNS.split(", "));
+        operationRow = BenchmarkRow.of(columns, UUID.randomUUID(), UUID.randomUUID(), null,
+                OperationType.CREDIT.name(), 1000L, "comment", LocalDateTime.now());
+        operationRows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            operationRows.add(BenchmarkRow.of(columns, UUID.randomUUID(), UUID.randomUUID(), null,
+                    OperationType.WITHDRAW.name(), (long) i, "comment", LocalDateTime.now()));
+        }
+    }
+
+    @Benchmark
+    public Account mapAccountRow() {
+        return AccountDaoImpl.mapRow(accountRow);
+    }
+
+    @Benchmark
+    public Operation mapOperationRow() {
+        return OperationDaoImpl.mapRow(operationRow);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Operation> mapOperationRowsByIndex() {
+        final var result = new ArrayList<Operation>(operationRows.size());
+        for (final var row : operationRows) {
+            result.add(OperationDaoImpl.mapRow(row));
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Operation> mapOperationRowsByName() {
+        final var result = new ArrayList<Operation>(operationRows.size());
+        for (final var row : operationRows) {
+            result.add(mapOperationRowByName(row));
+        }
+        return result;
+    }
+
+    private static Operation mapOperationRowByName(Row row) {
+        return Operation.builder()
+                .id(row.getUUID("id"))
+                .accountId(row.getUUID("account_id"))
+                .relatedTo(row.getUUID("related_to"))
+                .type(OperationType.valueOf(row.getString("type")))
+                .amount(Money.ofMinor(row.getLong("amount")))
+                .comment(row.getString("comment"))
+                .createdAt(row.getLocalDateTime("created_at"))
+                .build();
+    }
+}
@@ -0,0 +1,28 @@
+-- Планы выполнения запросов DAO, фильтрующих по горячим предикатам.
+-- Для замера берётся счёт с наибольшим числом операций.
+\set ON_ERROR_STOP on
+
+SELECT a.id AS account_id, a.username AS username, a.created_at AS account_created_at
+FROM accounts a JOIN operations o ON o.account_id = a.id
+GROUP BY a.id, a.username, a.created_at
+ORDER BY count(*) DESC
+LIMIT 1 \gset
+
+SELECT id AS operation_id FROM operations WHERE account_id = :'account_id' LIMIT 1 \gset
+
+\echo '--- AccountDao.findByUserName'
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM accounts WHERE username = :'username';
+
+\echo '--- OperationDao.findByAccountId'
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM operations
+WHERE account_id = :'account_id' AND created_at >= :'account_created_at'
+ORDER BY created_at DESC, id DESC LIMIT 51;
+
+\echo '--- operation reversal lookup'
+EXPLAIN (ANALYZE, BUFFERS) SELECT id FROM operations WHERE related_to = :'operation_id';
+
+\echo '--- OperationDao.deleteByAccountId'
+BEGIN;
+EXPLAIN (ANALYZE, BUFFERS) DELETE FROM operations
+WHERE account_id = :'account_id' AND created_at >= :'account_created_at';
+ROLLBACK;
@@ -0,0 +1,27 @@
+#!/bin/sh
+# Применяет changelog и сохраняет планы горячих запросов до и после миграции.
+#
+# Параметры подключения psql берутся из стандартных переменных PGHOST, PGPORT,
+# PGDATABASE, PGUSER, PGPASSWORD; настройки Liquibase - из LIQUIBASE_DEFAULTS.
+set -e
+
+cd "$(dirname "$0")/.."
+
+: "${PGHOST:=localhost}"
+: "${PGPORT:=5432}"
+: "${PGDATABASE:=otus_billing}"
+: "${PGUSER:=otus_billing}"
+export PGHOST PGPORT PGDATABASE PGUSER
+
+LIQUIBASE_DEFAULTS=${LIQUIBASE_DEFAULTS:-changelog/liquibase-dev.properties}
+PLANS_DIR=${PLANS_DIR:-benchmark/plans/$(date +%Y%m%d-%H%M%S)}
+
+mkdir -p "$PLANS_DIR"
+
+psql -X -f benchmark/explain-hot-queries.sql > "$PLANS_DIR/before.txt"
+start=$(date +%s)
+liquibase --defaults-file="$LIQUIBASE_DEFAULTS" update
+echo "migration took $(( $(date +%s) - start ))s" > "$PLANS_DIR/migration.txt"
+psql -X -f benchmark/explain-hot-queries.sql > "$PLANS_DIR/after.txt"
+
+diff "$PLANS_DIR/before.txt" "$PLANS_DIR/after.txt" || true
@@ -0,0 +1,25 @@
+// Нагрузка на GET /account: счёт с последними операциями USERS пользователей
+import http from 'k6/http';
+import { check } from 'k6';
+import { BASE_URL, setUpAccounts } from './common.js';
+
+export const options = {
+    scenarios: {
+        accounts: {
+            executor: 'constant-vus',
+            vus: parseInt(__ENV.VUS || '64'),
+            duration: __ENV.DURATION || '60s',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    return setUpAccounts();
+}
+
+export default function (data) {
+    const accessToken = data.tokens[(__VU * 31 + __ITER) % data.tokens.length];
+    const res = http.get(`${BASE_URL}/account`, { headers: { Authorization: `Bearer ${accessToken}` } });
+    check(res, { 'status is 200': (r) => r.status === 200 });
+}
@@ -0,0 +1,46 @@
+// Общие для сценариев нагрузки пользователи, токены и вызовы сервиса
+import http from 'k6/http';
+import { fail } from 'k6';
+
+export const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const KEYCLOAK_URL = __ENV.KEYCLOAK_URL || 'http://localhost:8180';
+const KEYCLOAK_REALM = __ENV.KEYCLOAK_REALM || 'otus';
+const CLIENT_ID = __ENV.KEYCLOAK_CLIENT_ID;
+const CLIENT_SECRET = __ENV.KEYCLOAK_CLIENT_SECRET;
+const USER_PREFIX = __ENV.USER_PREFIX || 'loadtest';
+const USER_PASSWORD = __ENV.USER_PASSWORD || 'loadtest';
+export const USERS = parseInt(__ENV.USERS || '100');
+
+export function token(userName) {
+    const res = http.post(`${KEYCLOAK_URL}/realms/${KEYCLOAK_REALM}/protocol/openid-connect/token`, {
+        grant_type: 'password',
+        client_id: CLIENT_ID,
+        client_secret: CLIENT_SECRET,
+        username: userName,
+        password: USER_PASSWORD,
+    });
+    if (res.status !== 200) {
+        fail(`token request for ${userName} failed: ${res.status}`);
+    }
+    return res.json('access_token');
+}
+
+export function execute(accessToken, type, amount) {
+    return http.post(`${BASE_URL}/operation`, JSON.stringify({ type, amount, comment: 'load test' }), {
+        headers: { 'Content-Type': 'application/json', Authorization: `Bearer ${accessToken}` },
+        tags: { type },
+    });
+}
+
+export function setUpAccounts() {
+    const tokens = [];
+    for (let i = 1; i <= USERS; i++) {
+        const userName = `${USER_PREFIX}${i}`;
+        // 409 - счёт остался от предыдущего прогона
+        http.post(`${BASE_URL}/management/account/${userName}`);
+        const accessToken = token(userName);
+        execute(accessToken, 'CREDIT', 1000000);
+        tokens.push(accessToken);
+    }
+    return { tokens };
+}
@@ -0,0 +1,24 @@
+// Нагрузка на POST /operation: пополнения и списания по счетам USERS пользователей
+import { check } from 'k6';
+import { execute, setUpAccounts } from './common.js';
+
+export const options = {
+    scenarios: {
+        operations: {
+            executor: 'constant-vus',
+            vus: parseInt(__ENV.VUS || '64'),
+            duration: __ENV.DURATION || '60s',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    return setUpAccounts();
+}
+
+export default function (data) {
+    const accessToken = data.tokens[(__VU * 31 + __ITER) % data.tokens.length];
+    const res = execute(accessToken, __ITER % 2 === 0 ? 'CREDIT' : 'WITHDRAW', 10);
+    check(res, { 'status is 200': (r) => r.status === 200 });
+}
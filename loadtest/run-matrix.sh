@@ -0,0 +1,69 @@
+#!/usr/bin/env bash
+# Прогон сценария k6 (SCRIPT, по умолчанию loadtest/operation.js) против
+# сервиса, запущенного с профилем loadtest, для каждого набора настроек клиента
+# PostgreSQL из VARIANTS либо только для перечисленных в аргументах.
+# Нужны собранный сервис (./mvnw package), k6, jq, мигрированная БД и Keycloak
+# с пользователями ${USER_PREFIX}1..${USERS}; переменные окружения сервиса
+# (OTUS_KEYCLOAK_*, OTUS_POSTGRES_*) и скрипта k6 передаются как есть,
+# JAVA_OPTS - параметрами JVM сервиса.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+APP_JAR=${APP_JAR:-target/quarkus-app/quarkus-run.jar}
+RESULTS_DIR=${RESULTS_DIR:-loadtest/results/$(date +%Y%m%d-%H%M%S)}
+BASE_URL=${BASE_URL:-http://localhost:8080}
+SCRIPT=${SCRIPT:-loadtest/operation.js}
+JAVA_OPTS=${JAVA_OPTS:-}
+
+VARIANTS=(
+    "baseline"
+    "pool-size-4 OTUS_POSTGRES_POOL_MAX_SIZE=4"
+    "pool-size-50 OTUS_POSTGRES_POOL_MAX_SIZE=50"
+    "pipelining-1 OTUS_POSTGRES_PIPELINING_LIMIT=1"
+    "pipelining-16 OTUS_POSTGRES_PIPELINING_LIMIT=16"
+    "statement-cache-off OTUS_POSTGRES_PREPARED_STATEMENTS_CACHE=false"
+    "event-loops-1 OTUS_POSTGRES_POOL_EVENT_LOOP_SIZE=1"
+    "event-loops-4 OTUS_POSTGRES_POOL_EVENT_LOOP_SIZE=4"
+)
+
+if [ $# -gt 0 ]; then
+    selected=()
+    for variant in "${VARIANTS[@]}"; do
+        read -r name _ <<<"$variant"
+        for arg in "$@"; do
+            [ "$arg" = "$name" ] && selected+=("$variant")
+        done
+    done
+    VARIANTS=("${selected[@]}")
+fi
+
+mkdir -p "$RESULTS_DIR"
+
+for variant in "${VARIANTS[@]}"; do
+    read -r name settings <<<"$variant"
+    echo "=== $name ${settings:-}"
+
+    env ${settings:-} java ${JAVA_OPTS} -Dquarkus.profile=loadtest -jar "$APP_JAR" >"$RESULTS_DIR/$name.log" 2>&1 &
+    app_pid=$!
+    until curl -sf "$BASE_URL/q/health/ready" >/dev/null 2>&1; do
+        kill -0 "$app_pid" 2>/dev/null || { echo "service failed to start, see $RESULTS_DIR/$name.log"; exit 1; }
+        sleep 1
+    done
+
+    k6 run --quiet --summary-export "$RESULTS_DIR/$name.json" "$SCRIPT" || true
+
+    kill "$app_pid"
+    wait "$app_pid" || true
+done
+
+printf '%-22s %10s %10s %10s %8s\n' variant 'req/s' 'p95 ms' 'p99 ms' 'failed'
+for variant in "${VARIANTS[@]}"; do
+    read -r name _ <<<"$variant"
+    jq -r --arg name "$name" '[$name,
+        (.metrics.http_reqs.rate | floor),
+        (.metrics.http_req_duration["p(95)"] * 100 | round / 100),
+        (.metrics.http_req_duration["p(99)"] * 100 | round / 100),
+        (.metrics.http_req_failed.value * 10000 | round / 100 | tostring + "%")] | @tsv' \
+        "$RESULTS_DIR/$name.json" | awk -F'\t' '{ printf "%-22s %10s %10s %10s %8s\n", $1, $2, $3, $4, $5 }'
+done | tee "$RESULTS_DIR/summary.txt"
@@ -1,15 +1,22 @@
 package org.auwerk.otus.arch.billingservice.api;
 
+import java.util.UUID;
+
 import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriBuilder;
 
 import org.auwerk.otus.arch.billingservice.api.dto.CreateUserAccountResponseDto;
+import org.auwerk.otus.arch.billingservice.api.dto.DeleteUserAccountResponseDto;
 import org.auwerk.otus.arch.billingservice.exception.AccountAlreadyExistsException;
+import org.auwerk.otus.arch.billingservice.exception.AccountDeletionNotFoundException;
 import org.auwerk.otus.arch.billingservice.exception.AccountNotFoundException;
+import org.auwerk.otus.arch.billingservice.mapper.AccountMapper;
 import org.auwerk.otus.arch.billingservice.service.BillingService;
 
 import io.smallrye.mutiny.Uni;
@@ -20,6 +27,7 @@ import lombok.RequiredArgsConstructor;
 public class AccountManagementResource {
 
     private final BillingService billingService;
+    private final AccountMapper accountMapper;
 
     @POST
     @Path("/{userName}")
@@ -36,10 +44,25 @@ public class AccountManagementResource {
     @Path("/{userName}")
     public Uni<Response> deleteUserAccount(@PathParam("userName") String userName) {
         return billingService.deleteUserAccount(userName)
-                .replaceWith(Response.ok().build())
+                .map(deletionId -> Response.accepted(new DeleteUserAccountResponseDto(deletionId))
+                        .location(UriBuilder.fromResource(AccountManagementResource.class)
+                                .path("/deletion/{deletionId}")
+                                .build(deletionId))
+                        .build())
                 .onFailure(AccountNotFoundException.class)
                 .recoverWithItem(failure -> Response.status(Status.NOT_FOUND).entity(failure.getMessage()).build())
                 .onFailure()
                 .recoverWithItem(failure -> Response.serverError().entity(failure.getMessage()).build());
     }
+
+    @GET
+    @Path("/deletion/{deletionId}")
+    public Uni<Response> getAccountDeletion(@PathParam("deletionId") UUID deletionId) {
+        return billingService.getAccountDeletion(deletionId)
+                .map(deletion -> Response.ok(accountMapper.toDto(deletion)).build())
+                .onFailure(AccountDeletionNotFoundException.class)
+                .recoverWithItem(failure -> Response.status(Status.NOT_FOUND).entity(failure.getMessage()).build())
+                .onFailure()
+                .recoverWithItem(failure -> Response.serverError().entity(failure.getMessage()).build());
+    }
 }
@@ -1,17 +1,36 @@
 package org.auwerk.otus.arch.billingservice.api;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
 import javax.annotation.security.RolesAllowed;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
+import org.auwerk.otus.arch.billingservice.api.dto.OperationDto;
+import org.auwerk.otus.arch.billingservice.domain.AccountVersion;
+import org.auwerk.otus.arch.billingservice.domain.OperationCursor;
+import org.auwerk.otus.arch.billingservice.domain.StatsGranularity;
 import org.auwerk.otus.arch.billingservice.exception.AccountNotFoundException;
+import org.auwerk.otus.arch.billingservice.exception.InvalidOperationCursorException;
+import org.auwerk.otus.arch.billingservice.exception.InvalidStatsRequestException;
 import org.auwerk.otus.arch.billingservice.mapper.AccountMapper;
+import org.auwerk.otus.arch.billingservice.mapper.OperationMapper;
 import org.auwerk.otus.arch.billingservice.service.BillingService;
+import org.jboss.resteasy.reactive.common.util.RestMediaType;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+import org.jboss.resteasy.reactive.server.ServerExceptionMapper;
 
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import lombok.RequiredArgsConstructor;
 
@@ -20,19 +39,116 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class AccountResource {
 
-    protected static final String DEFAULT_FETCH_OPERATIONS = "true";
+    protected static final String DEFAULT_FETCH_OPERATIONS = "false";
+    protected static final String DEFAULT_OPERATIONS_PAGE_SIZE = "50";
+    protected static final int MAX_OPERATIONS_PAGE_SIZE = 500;
+    protected static final String DEFAULT_STATS_GRANULARITY = "day";
+    protected static final int DEFAULT_STATS_DAYS = 30;
 
     private final BillingService billingService;
     private final AccountMapper accountMapper;
+    private final OperationMapper operationMapper;
 
+    /**
+     * Счёт с ETag по идентификатору и версии счёта. Если ETag совпадает с
+     * If-None-Match, счёт и операции не выбираются, ответ 304
+     */
     @GET
     public Uni<Response> getUserAccount(
-            @QueryParam("fetchOperations") @DefaultValue(DEFAULT_FETCH_OPERATIONS) boolean fetchOperations) {
-        return billingService.getUserAccount(fetchOperations)
-                .map(account -> Response.ok(accountMapper.toDto(account)).build())
+            @QueryParam("fetchOperations") @DefaultValue(DEFAULT_FETCH_OPERATIONS) boolean fetchOperations,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+        final Uni<AccountVersion> currentVersion = ifNoneMatch != null
+                ? billingService.getUserAccountVersion()
+                : Uni.createFrom().nullItem();
+        return currentVersion
+                .flatMap(version -> version != null && matchesVersion(ifNoneMatch, version)
+                        ? Uni.createFrom().item(Response.notModified(new EntityTag(version.tag())).build())
+                        : billingService.getUserAccount(fetchOperations)
+                                .map(account -> Response.ok(accountMapper.toDto(account))
+                                        .tag(account.getVersion() != null
+                                                ? new EntityTag(new AccountVersion(account.getId(),
+                                                        account.getVersion()).tag())
+                                                : null)
+                                        .build()))
+                .onFailure(AccountNotFoundException.class)
+                .recoverWithItem(failure -> Response.status(Status.NOT_FOUND).entity(failure.getMessage()).build())
+                .onFailure()
+                .recoverWithItem(failure -> Response.serverError().entity(failure.getMessage()).build());
+    }
+
+    @GET
+    @Path("/operations")
+    public Uni<Response> getUserAccountOperations(@QueryParam("cursor") String cursor,
+            @QueryParam("limit") @DefaultValue(DEFAULT_OPERATIONS_PAGE_SIZE) int limit) {
+        return Uni.createFrom().item(() -> cursor != null ? OperationCursor.decode(cursor) : null)
+                .flatMap(after -> billingService.getUserAccountOperations(after,
+                        Math.max(1, Math.min(limit, MAX_OPERATIONS_PAGE_SIZE))))
+                .map(page -> Response.ok(operationMapper.toDto(page)).build())
+                .onFailure(InvalidOperationCursorException.class)
+                .recoverWithItem(failure -> Response.status(Status.BAD_REQUEST).entity(failure.getMessage()).build())
+                .onFailure(AccountNotFoundException.class)
+                .recoverWithItem(failure -> Response.status(Status.NOT_FOUND).entity(failure.getMessage()).build())
+                .onFailure()
+                .recoverWithItem(failure -> Response.serverError().entity(failure.getMessage()).build());
+    }
+
+    @GET
+    @Path("/stats")
+    public Uni<Response> getUserAccountStats(@QueryParam("from") String from, @QueryParam("to") String to,
+            @QueryParam("granularity") @DefaultValue(DEFAULT_STATS_GRANULARITY) String granularity) {
+        return Uni.createFrom().deferred(() -> {
+            final var toDate = to != null ? parseDate(to) : LocalDate.now();
+            final var fromDate = from != null ? parseDate(from) : toDate.minusDays(DEFAULT_STATS_DAYS - 1);
+            return billingService.getUserAccountStats(fromDate, toDate, StatsGranularity.of(granularity));
+        })
+                .map(totals -> Response.ok(accountMapper.toTotalsDtos(totals)).build())
+                .onFailure(InvalidStatsRequestException.class)
+                .recoverWithItem(failure -> Response.status(Status.BAD_REQUEST).entity(failure.getMessage()).build())
                 .onFailure(AccountNotFoundException.class)
                 .recoverWithItem(failure -> Response.status(Status.NOT_FOUND).entity(failure.getMessage()).build())
                 .onFailure()
                 .recoverWithItem(failure -> Response.serverError().entity(failure.getMessage()).build());
     }
+
+    @GET
+    @Path("/operations/export")
+    @Produces(RestMediaType.APPLICATION_NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<OperationDto> exportUserAccountOperations() {
+        return billingService.streamUserAccountOperations()
+                .map(operationMapper::toDto);
+    }
+
+    /**
+     * Слабое сравнение, как требуется для If-None-Match
+     */
+    private static boolean matchesVersion(String ifNoneMatch, AccountVersion version) {
+        final var expected = "\"" + version.tag() + "\"";
+        for (var tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException ex) {
+            throw new InvalidStatsRequestException("invalid date, date=" + value);
+        }
+    }
+
+    @ServerExceptionMapper
+    public Response mapAccountNotFound(AccountNotFoundException failure) {
+        return Response.status(Status.NOT_FOUND).entity(failure.getMessage()).build();
+    }
 }
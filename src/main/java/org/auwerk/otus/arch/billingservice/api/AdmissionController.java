@@ -0,0 +1,121 @@
+package org.auwerk.otus.arch.billingservice.api;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.auwerk.otus.arch.billingservice.config.AdmissionConfig;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Ограничение одновременно исполняемых запросов по принципу AIMD: после
+ * запроса предел уменьшается в {@code backoffRatio} раз, если пул соединений
+ * перегружен (очередь или время ожидания соединения выше порога), иначе
+ * увеличивается на единицу, если использована хотя бы половина предела.
+ * Уменьшение применяется не чаще раза за окно - сглаженное время ожидания
+ * соединения, но не меньше секунды, - чтобы запросы, завершившиеся за время
+ * одной перегрузки, не сбросили предел до минимума.
+ * Запросам на чтение доступна только часть предела, поэтому при перегрузке
+ * они отклоняются раньше операций.
+ */
+@ApplicationScoped
+public class AdmissionController {
+
+    private static final long MIN_DECREASE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    public enum Priority {
+        READ, WRITE
+    }
+
+    private final AdmissionConfig config;
+    private final PoolMetrics poolMetrics;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejectedReads;
+    private final Counter rejectedWrites;
+    private double limit;
+    private long nextDecreaseNanos = System.nanoTime();
+
+    public AdmissionController(AdmissionConfig config, PoolMetrics poolMetrics, MeterRegistry registry) {
+        this.config = config;
+        this.poolMetrics = poolMetrics;
+        this.limit = config.initialLimit();
+        Gauge.builder("billing.admission.limit", this, AdmissionController::getLimit)
+                .description("Текущий предел одновременных запросов")
+                .register(registry);
+        Gauge.builder("billing.admission.requests.active", inFlight, AtomicInteger::get)
+                .description("Одновременно исполняемые запросы")
+                .register(registry);
+        this.rejectedReads = Counter.builder("billing.admission.rejected")
+                .description("Запросы, отклонённые при превышении предела")
+                .tag("priority", "read")
+                .register(registry);
+        this.rejectedWrites = Counter.builder("billing.admission.rejected")
+                .description("Запросы, отклонённые при превышении предела")
+                .tag("priority", "write")
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return config.enabled();
+    }
+
+    /**
+     * Попытка начать исполнение запроса
+     * 
+     * @param priority приоритет запроса
+     * @return {@code true}, если запрос допущен; тогда по его завершении
+     *         обязателен вызов {@link #release()}
+     */
+    public boolean tryAcquire(Priority priority) {
+        final var allowed = priority == Priority.READ
+                ? Math.max(1, (int) (getLimit() * config.readShare()))
+                : (int) getLimit();
+        while (true) {
+            final var current = inFlight.get();
+            if (current >= allowed) {
+                (priority == Priority.READ ? rejectedReads : rejectedWrites).increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Завершение допущенного запроса с пересчётом предела
+     */
+    public void release() {
+        final var current = inFlight.getAndDecrement();
+        final var acquireLatencyNanos = poolMetrics.getAcquireLatencyNanos();
+        final var overloaded = poolMetrics.getWaitingRequests() > config.maxPoolQueue()
+                || acquireLatencyNanos > config.maxPoolWait().toNanos();
+        synchronized (this) {
+            if (overloaded) {
+                final var now = System.nanoTime();
+                if (now - nextDecreaseNanos >= 0) {
+                    limit = Math.max(config.minLimit(), limit * config.backoffRatio());
+                    nextDecreaseNanos = now + Math.max(acquireLatencyNanos, MIN_DECREASE_WINDOW_NANOS);
+                }
+            } else if (current * 2 >= limit) {
+                limit = Math.min(config.maxLimit(), limit + 1);
+            }
+        }
+    }
+
+    /**
+     * Значение заголовка Retry-After в секундах, не меньше одной
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, config.retryAfter().toSeconds());
+    }
+
+    public synchronized double getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,46 @@
+package org.auwerk.otus.arch.billingservice.api;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.auwerk.otus.arch.billingservice.api.AdmissionController.Priority;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+import org.jboss.resteasy.reactive.server.SimpleResourceInfo;
+
+import io.vertx.ext.web.RoutingContext;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Допуск запросов к {@link AccountResource} (чтение) и
+ * {@link OperationResource} (операции) через {@link AdmissionController};
+ * сверх предела отвечает 503 с Retry-After
+ */
+@RequiredArgsConstructor
+public class AdmissionFilter {
+
+    private final AdmissionController admissionController;
+
+    @ServerRequestFilter
+    public Response admit(SimpleResourceInfo resourceInfo, RoutingContext routingContext) {
+        if (!admissionController.isEnabled()) {
+            return null;
+        }
+        final Priority priority;
+        if (resourceInfo.getResourceClass() == AccountResource.class) {
+            priority = Priority.READ;
+        } else if (resourceInfo.getResourceClass() == OperationResource.class) {
+            priority = Priority.WRITE;
+        } else {
+            return null;
+        }
+        if (!admissionController.tryAcquire(priority)) {
+            return Response.status(Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, admissionController.getRetryAfterSeconds())
+                    .entity("service is overloaded, retry later")
+                    .build();
+        }
+        routingContext.addEndHandler(result -> admissionController.release());
+        return null;
+    }
+}
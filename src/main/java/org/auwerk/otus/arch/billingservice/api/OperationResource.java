@@ -4,6 +4,7 @@ import java.util.UUID;
 
 import javax.annotation.security.RolesAllowed;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -11,13 +12,19 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
 import org.auwerk.otus.arch.billingservice.api.dto.CancelOperationRequestDto;
+import org.auwerk.otus.arch.billingservice.api.dto.ExecuteOperationBatchRequestDto;
+import org.auwerk.otus.arch.billingservice.api.dto.ExecuteOperationBatchResponseDto;
 import org.auwerk.otus.arch.billingservice.api.dto.ExecuteOperationRequestDto;
 import org.auwerk.otus.arch.billingservice.api.dto.OperationResponseDto;
+import org.auwerk.otus.arch.billingservice.domain.OperationBatchMode;
 import org.auwerk.otus.arch.billingservice.exception.AccountNotFoundException;
+import org.auwerk.otus.arch.billingservice.exception.AccountQueueFullException;
 import org.auwerk.otus.arch.billingservice.exception.InsufficentAccountBalanceException;
 import org.auwerk.otus.arch.billingservice.exception.OperationAlreadyCanceledException;
 import org.auwerk.otus.arch.billingservice.exception.OperationExecutedByDifferentUserException;
 import org.auwerk.otus.arch.billingservice.exception.OperationNotFoundException;
+import org.auwerk.otus.arch.billingservice.exception.VersionConflictException;
+import org.auwerk.otus.arch.billingservice.mapper.OperationMapper;
 import org.auwerk.otus.arch.billingservice.service.BillingService;
 
 import io.smallrye.mutiny.Uni;
@@ -28,16 +35,67 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class OperationResource {
 
+    protected static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    protected static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    protected static final int MAX_BATCH_SIZE = 1000;
+
     private final BillingService billingService;
+    private final OperationMapper operationMapper;
 
     @POST
-    public Uni<Response> executeOperation(ExecuteOperationRequestDto request) {
-        return billingService.executeOperation(request.getType(), request.getAmount(), request.getComment())
+    public Uni<Response> executeOperation(@HeaderParam(IDEMPOTENCY_KEY_HEADER) String idempotencyKey,
+            ExecuteOperationRequestDto request) {
+        if (idempotencyKey != null && idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return Uni.createFrom().item(Response.status(Status.BAD_REQUEST)
+                    .entity("idempotency key is too long").build());
+        }
+        final var execution = idempotencyKey == null || idempotencyKey.isBlank()
+                ? billingService.executeOperation(request.getType(), request.getAmount(), request.getComment())
+                : billingService.executeOperation(request.getType(), request.getAmount(), request.getComment(),
+                        idempotencyKey);
+        return execution
                 .map(operationId -> Response.ok(new OperationResponseDto(operationId)).build())
                 .onFailure(AccountNotFoundException.class)
                 .recoverWithItem(failure -> Response.status(Status.NOT_FOUND).entity(failure.getMessage()).build())
                 .onFailure(InsufficentAccountBalanceException.class)
                 .recoverWithItem(failure -> Response.status(Status.FORBIDDEN).entity(failure.getMessage()).build())
+                .onFailure(ArithmeticException.class)
+                .recoverWithItem(failure -> Response.status(Status.BAD_REQUEST).entity(failure.getMessage()).build())
+                .onFailure(AccountQueueFullException.class)
+                .recoverWithItem(failure -> Response.status(Status.TOO_MANY_REQUESTS).entity(failure.getMessage())
+                        .build())
+                .onFailure(VersionConflictException.class)
+                .recoverWithItem(failure -> Response.status(Status.CONFLICT).entity(failure.getMessage()).build())
+                .onFailure()
+                .recoverWithItem(failure -> Response.serverError().entity(failure.getMessage()).build());
+    }
+
+    @POST
+    @Path("/batch")
+    public Uni<Response> executeOperationBatch(ExecuteOperationBatchRequestDto request) {
+        if (request.getOperations() == null || request.getOperations().isEmpty()
+                || request.getOperations().size() > MAX_BATCH_SIZE) {
+            return Uni.createFrom().item(Response.status(Status.BAD_REQUEST)
+                    .entity("batch must contain from 1 to " + MAX_BATCH_SIZE + " operations").build());
+        }
+        for (int i = 0; i < request.getOperations().size(); i++) {
+            final var operation = request.getOperations().get(i);
+            if (operation == null || operation.getType() == null || operation.getAmount() == null) {
+                return Uni.createFrom().item(Response.status(Status.BAD_REQUEST)
+                        .entity("operation " + i + " must have type and amount").build());
+            }
+        }
+        final var mode = request.getMode() != null ? request.getMode() : OperationBatchMode.ALL_OR_NOTHING;
+        return billingService.executeOperationBatch(operationMapper.fromDtos(request.getOperations()), mode)
+                .map(results -> Response
+                        .ok(new ExecuteOperationBatchResponseDto(operationMapper.toResultDtos(results)))
+                        .build())
+                .onFailure(AccountNotFoundException.class)
+                .recoverWithItem(failure -> Response.status(Status.NOT_FOUND).entity(failure.getMessage()).build())
+                .onFailure(InsufficentAccountBalanceException.class)
+                .recoverWithItem(failure -> Response.status(Status.FORBIDDEN).entity(failure.getMessage()).build())
+                .onFailure(ArithmeticException.class)
+                .recoverWithItem(failure -> Response.status(Status.BAD_REQUEST).entity(failure.getMessage()).build())
                 .onFailure()
                 .recoverWithItem(failure -> Response.serverError().entity(failure.getMessage()).build());
     }
@@ -56,6 +114,8 @@ public class OperationResource {
                 .recoverWithItem(failure -> Response.status(Status.NOT_FOUND).entity(failure.getMessage()).build())
                 .onFailure(OperationExecutedByDifferentUserException.class)
                 .recoverWithItem(failure -> Response.status(Status.FORBIDDEN).entity(failure.getMessage()).build())
+                .onFailure(VersionConflictException.class)
+                .recoverWithItem(failure -> Response.status(Status.CONFLICT).entity(failure.getMessage()).build())
                 .onFailure()
                 .recoverWithItem(failure -> Response.serverError().entity(failure.getMessage()).build());
     }
@@ -0,0 +1,27 @@
+package org.auwerk.otus.arch.billingservice.api.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletionStatus;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@RegisterForReflection
+public class AccountDeletionDto {
+    private UUID id;
+    private UUID accountId;
+    private String userName;
+    private AccountDeletionStatus status;
+    private long purgedOperations;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+}
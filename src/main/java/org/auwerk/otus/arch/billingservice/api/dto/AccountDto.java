@@ -1,10 +1,11 @@
 package org.auwerk.otus.arch.billingservice.api.dto;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
+import org.auwerk.otus.arch.billingservice.domain.Money;
+
 import io.quarkus.runtime.annotations.RegisterForReflection;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -18,7 +19,7 @@ import lombok.Setter;
 @RegisterForReflection
 public class AccountDto {
     private UUID id;
-    private BigDecimal balance;
+    private Money balance;
     private LocalDateTime createdAt;
     private List<OperationDto> operations;
 }
@@ -0,0 +1,24 @@
+package org.auwerk.otus.arch.billingservice.api.dto;
+
+import java.time.LocalDate;
+
+import org.auwerk.otus.arch.billingservice.domain.Money;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@RegisterForReflection
+public class AccountTotalsDto {
+    private LocalDate periodStart;
+    private Money creditAmount;
+    private long creditCount;
+    private Money withdrawAmount;
+    private long withdrawCount;
+}
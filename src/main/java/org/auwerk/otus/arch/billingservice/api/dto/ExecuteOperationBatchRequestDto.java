@@ -0,0 +1,21 @@
+package org.auwerk.otus.arch.billingservice.api.dto;
+
+import java.util.List;
+
+import org.auwerk.otus.arch.billingservice.domain.OperationBatchMode;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@RegisterForReflection
+public class ExecuteOperationBatchRequestDto {
+    private OperationBatchMode mode;
+    private List<ExecuteOperationRequestDto> operations;
+}
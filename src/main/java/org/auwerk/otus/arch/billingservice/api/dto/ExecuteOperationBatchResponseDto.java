@@ -0,0 +1,18 @@
+package org.auwerk.otus.arch.billingservice.api.dto;
+
+import java.util.List;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@RegisterForReflection
+public class ExecuteOperationBatchResponseDto {
+    private List<OperationBatchItemResultDto> results;
+}
@@ -1,7 +1,6 @@
 package org.auwerk.otus.arch.billingservice.api.dto;
 
-import java.math.BigDecimal;
-
+import org.auwerk.otus.arch.billingservice.domain.Money;
 import org.auwerk.otus.arch.billingservice.domain.OperationType;
 
 import io.quarkus.runtime.annotations.RegisterForReflection;
@@ -17,6 +16,6 @@ import lombok.Setter;
 @RegisterForReflection
 public class ExecuteOperationRequestDto {
     private OperationType type;
-    private BigDecimal amount;
+    private Money amount;
     private String comment;
 }
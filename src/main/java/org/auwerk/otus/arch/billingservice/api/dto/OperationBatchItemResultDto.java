@@ -0,0 +1,19 @@
+package org.auwerk.otus.arch.billingservice.api.dto;
+
+import java.util.UUID;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@RegisterForReflection
+public class OperationBatchItemResultDto {
+    private UUID operationId;
+    private String error;
+}
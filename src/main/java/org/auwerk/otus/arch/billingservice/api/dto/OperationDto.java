@@ -1,9 +1,9 @@
 package org.auwerk.otus.arch.billingservice.api.dto;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+import org.auwerk.otus.arch.billingservice.domain.Money;
 import org.auwerk.otus.arch.billingservice.domain.OperationType;
 
 import io.quarkus.runtime.annotations.RegisterForReflection;
@@ -21,7 +21,7 @@ public class OperationDto {
     private UUID id;
     private UUID relatedTo;
     private OperationType type;
-    private BigDecimal amount;
+    private Money amount;
     private String comment;
     private LocalDateTime createdAt;
 }
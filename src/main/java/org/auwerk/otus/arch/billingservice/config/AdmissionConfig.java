@@ -0,0 +1,57 @@
+package org.auwerk.otus.arch.billingservice.config;
+
+import java.time.Duration;
+
+import io.smallrye.config.ConfigMapping;
+
+@ConfigMapping(prefix = "otus.admission")
+public interface AdmissionConfig {
+
+    /**
+     * Ограничение количества одновременно исполняемых запросов к счёту и
+     * операциям
+     */
+    boolean enabled();
+
+    /**
+     * Начальный предел одновременных запросов
+     */
+    int initialLimit();
+
+    /**
+     * Предел, ниже которого он не уменьшается
+     */
+    int minLimit();
+
+    /**
+     * Предел, выше которого он не увеличивается
+     */
+    int maxLimit();
+
+    /**
+     * Множитель уменьшения предела при перегрузке пула соединений
+     */
+    double backoffRatio();
+
+    /**
+     * Среднее время ожидания соединения, начиная с которого пул считается
+     * перегруженным
+     */
+    Duration maxPoolWait();
+
+    /**
+     * Количество запросов в очереди пула, начиная с которого пул считается
+     * перегруженным
+     */
+    int maxPoolQueue();
+
+    /**
+     * Доля предела, доступная запросам на чтение; остаток оставлен операциям
+     */
+    double readShare();
+
+    /**
+     * Значение Retry-After в ответе на отклонённый запрос
+     */
+    Duration retryAfter();
+}
@@ -0,0 +1,59 @@
+package org.auwerk.otus.arch.billingservice.config;
+
+import java.time.Duration;
+
+import org.auwerk.otus.arch.billingservice.domain.BalanceConcurrency;
+import org.auwerk.otus.arch.billingservice.domain.BalanceMode;
+
+import io.smallrye.config.ConfigMapping;
+
+@ConfigMapping(prefix = "otus.balance")
+public interface BalanceConfig {
+
+    /**
+     * Способ хранения баланса счёта
+     */
+    BalanceMode mode();
+
+    /**
+     * Интервал фонового создания снимков баланса в режиме
+     * {@link BalanceMode#LEDGER} (выражение {@code @Scheduled})
+     */
+    String snapshotInterval();
+
+    /**
+     * Количество счетов, обрабатываемых за один запрос при создании снимков
+     */
+    int snapshotBatchSize();
+
+    /**
+     * Согласование параллельных изменений баланса одиночными операциями в
+     * режиме {@link BalanceMode#IN_PLACE}
+     */
+    BalanceConcurrency concurrency();
+
+    OptimisticRetry optimisticRetry();
+
+    interface OptimisticRetry {
+
+        /**
+         * Максимальное количество повторов операции при несовпадении версии счёта
+         */
+        int maxRetries();
+
+        /**
+         * Пауза перед первым повтором, далее удваивается
+         */
+        Duration initialBackoff();
+
+        /**
+         * Максимальная пауза между повторами
+         */
+        Duration maxBackoff();
+
+        /**
+         * Доля случайного разброса паузы, от 0 до 1
+         */
+        double jitter();
+    }
+}
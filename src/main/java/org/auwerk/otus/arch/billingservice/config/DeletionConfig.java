@@ -0,0 +1,35 @@
+package org.auwerk.otus.arch.billingservice.config;
+
+import java.time.Duration;
+
+import io.smallrye.config.ConfigMapping;
+
+@ConfigMapping(prefix = "otus.deletion")
+public interface DeletionConfig {
+
+    /**
+     * Интервал запуска фонового удаления (выражение {@code @Scheduled})
+     */
+    String purgeInterval();
+
+    /**
+     * Количество операций удаляемого счёта, удаляемых за одну транзакцию
+     */
+    int chunkSize();
+
+    /**
+     * Пауза между порциями, ограничивающая нагрузку на БД и объём WAL
+     */
+    Duration chunkPause();
+
+    /**
+     * Количество задач удаления, обрабатываемых за один запуск
+     */
+    int accountsPerRun();
+
+    /**
+     * Количество неудачных попыток, после которого задача удаления переводится
+     * в статус FAILED
+     */
+    int maxAttempts();
+}
@@ -0,0 +1,27 @@
+package org.auwerk.otus.arch.billingservice.config;
+
+import io.smallrye.config.ConfigMapping;
+
+@ConfigMapping(prefix = "otus.dispatcher")
+public interface DispatcherConfig {
+
+    /**
+     * Исполнение операций через очереди счетов
+     */
+    boolean enabled();
+
+    /**
+     * Количество очередей, между которыми распределяются счета
+     */
+    int stripes();
+
+    /**
+     * Максимальное количество ожидающих операций в одной очереди
+     */
+    int queueCapacity();
+
+    /**
+     * Максимальное количество операций, объединяемых в одну транзакцию
+     */
+    int maxBatchSize();
+}
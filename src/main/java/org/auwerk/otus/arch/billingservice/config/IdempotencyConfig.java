@@ -0,0 +1,29 @@
+package org.auwerk.otus.arch.billingservice.config;
+
+import java.time.Duration;
+
+import io.smallrye.config.ConfigMapping;
+
+@ConfigMapping(prefix = "otus.idempotency")
+public interface IdempotencyConfig {
+
+    /**
+     * Время хранения ключа идемпотентности
+     */
+    Duration ttl();
+
+    /**
+     * Максимальное количество ключей в памяти
+     */
+    int cacheSize();
+
+    /**
+     * Интервал очистки просроченных ключей (выражение {@code @Scheduled})
+     */
+    String purgeInterval();
+
+    /**
+     * Количество ключей, удаляемых за одну транзакцию при очистке
+     */
+    int purgeBatchSize();
+}
@@ -0,0 +1,40 @@
+package org.auwerk.otus.arch.billingservice.config;
+
+import java.time.Duration;
+
+import io.smallrye.config.ConfigMapping;
+
+@ConfigMapping(prefix = "otus.journal")
+public interface JournalConfig {
+
+    /**
+     * Исполнение пополнений через журнал с отложенной записью в БД
+     */
+    boolean enabled();
+
+    /**
+     * Путь к файлу журнала
+     */
+    String path();
+
+    /**
+     * Путь к файлу записей, которые невозможно сохранить в БД
+     */
+    String deadLetterPath();
+
+    /**
+     * Максимальный интервал между групповыми фиксациями
+     */
+    Duration flushInterval();
+
+    /**
+     * Количество записей, при накоплении которого фиксация выполняется досрочно
+     */
+    int maxBatchSize();
+
+    /**
+     * Максимальное количество записей, ожидающих фиксации. При переполнении
+     * пополнения исполняются напрямую.
+     */
+    int queueCapacity();
+}
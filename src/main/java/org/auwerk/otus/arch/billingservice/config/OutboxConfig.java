@@ -0,0 +1,47 @@
+package org.auwerk.otus.arch.billingservice.config;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.auwerk.otus.arch.billingservice.domain.OperationEventSinkType;
+
+import io.smallrye.config.ConfigMapping;
+
+@ConfigMapping(prefix = "otus.outbox")
+public interface OutboxConfig {
+
+    /**
+     * Публикация событий; выключенная оставляет события в таблице
+     */
+    boolean relayEnabled();
+
+    /**
+     * Интервал публикации событий (выражение {@code @Scheduled})
+     */
+    String relayInterval();
+
+    /**
+     * Получатель событий об операциях
+     */
+    OperationEventSinkType sink();
+
+    /**
+     * Количество событий, публикуемых одним пакетом
+     */
+    int batchSize();
+
+    /**
+     * Файл получателя {@code log}
+     */
+    String logPath();
+
+    /**
+     * Адрес получателя {@code http}
+     */
+    Optional<String> httpUrl();
+
+    /**
+     * Время ожидания ответа получателя {@code http}
+     */
+    Duration httpTimeout();
+}
@@ -0,0 +1,35 @@
+package org.auwerk.otus.arch.billingservice.config;
+
+import java.time.Duration;
+
+import io.smallrye.config.ConfigMapping;
+
+@ConfigMapping(prefix = "otus.partitions")
+public interface PartitionConfig {
+
+    /**
+     * Интервал обслуживания секций (выражение {@code @Scheduled})
+     */
+    String maintenanceInterval();
+
+    /**
+     * Количество будущих месяцев, секции операций для которых создаются заранее
+     */
+    int premakeMonths();
+
+    /**
+     * Количество полных месяцев, секции которых остаются в таблице операций;
+     * более старые отсоединяются в архив. {@code 0} - не архивировать.
+     */
+    int retentionMonths();
+
+    /**
+     * Схема, в которую переносятся отсоединённые секции
+     */
+    String archiveSchema();
+
+    /**
+     * Максимальное ожидание блокировки таблицы операций при отсоединении секции
+     */
+    Duration lockTimeout();
+}
@@ -0,0 +1,54 @@
+package org.auwerk.otus.arch.billingservice.config;
+
+import java.time.Duration;
+
+import io.smallrye.config.ConfigMapping;
+
+@ConfigMapping(prefix = "otus.postgres")
+public interface PostgresConfig {
+
+    String host();
+
+    int port();
+
+    String db();
+
+    Pool pool();
+
+    /**
+     * Максимальное количество запросов, отправляемых по соединению без ожидания
+     * ответов на предыдущие
+     */
+    int pipeliningLimit();
+
+    PreparedStatements preparedStatements();
+
+    interface Pool {
+
+        /**
+         * Максимальное количество соединений
+         */
+        int maxSize();
+
+        /**
+         * Время, после которого неиспользуемое соединение закрывается; {@code 0} -
+         * не закрывать
+         */
+        Duration idleTimeout();
+
+        /**
+         * Количество event loop, по которым распределяются соединения; {@code 0} -
+         * значение Vert.x по умолчанию
+         */
+        int eventLoopSize();
+    }
+
+    interface PreparedStatements {
+
+        /**
+         * Кэшировать ли подготовленные запросы в соединении, чтобы не разбирать их
+         * на сервере при каждом исполнении
+         */
+        boolean cache();
+    }
+}
@@ -0,0 +1,14 @@
+package org.auwerk.otus.arch.billingservice.config;
+
+import org.auwerk.otus.arch.billingservice.domain.ServiceExecutor;
+
+import io.smallrye.config.ConfigMapping;
+
+@ConfigMapping(prefix = "otus.service")
+public interface ServiceConfig {
+
+    /**
+     * Потоки, на которых исполняются вызовы блокирующей реализации сервиса
+     */
+    ServiceExecutor executor();
+}
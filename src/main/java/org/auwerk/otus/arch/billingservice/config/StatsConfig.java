@@ -0,0 +1,13 @@
+package org.auwerk.otus.arch.billingservice.config;
+
+import io.smallrye.config.ConfigMapping;
+
+@ConfigMapping(prefix = "otus.stats")
+public interface StatsConfig {
+
+    /**
+     * Интервал пересчёта суточных итогов операций (выражение
+     * {@code @Scheduled}); на столько итоги могут отставать от истории
+     */
+    String rollupInterval();
+}
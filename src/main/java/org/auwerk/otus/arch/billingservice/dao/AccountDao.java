@@ -1,22 +1,125 @@
 package org.auwerk.otus.arch.billingservice.dao;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.UUID;
 
 import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.AccountBalance;
+import org.auwerk.otus.arch.billingservice.domain.AccountVersion;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.exception.VersionConflictException;
 
 import io.smallrye.mutiny.Uni;
-import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.SqlClient;
 
+/**
+ * Счета пользователей. Счета, помеченные удалёнными, не выбираются.
+ */
 public interface AccountDao {
 
-    Uni<Account> findById(PgPool pool, UUID id);
+    Uni<Account> findById(SqlClient client, UUID id);
     
-    Uni<Account> findByUserName(PgPool pool, String userName);
+    Uni<Account> findByUserName(SqlClient client, String userName);
 
-    Uni<UUID> insert(PgPool pool, String userName);
+    /**
+     * Выборка счёта с блокировкой строки до конца транзакции
+     * 
+     * @param client   соединение с открытой транзакцией
+     * @param userName имя пользователя, владельца счёта
+     * @return счёт
+     */
+    Uni<Account> findByUserNameForUpdate(SqlClient client, String userName);
 
-    Uni<Void> updateBalanceById(PgPool pool, UUID id, BigDecimal balance);
+    /**
+     * Блокировка строки счёта до конца транзакции без выборки остальных
+     * столбцов
+     * 
+     * @param client   соединение с открытой транзакцией
+     * @param userName имя пользователя, владельца счёта
+     * @return уникальный идентификатор счёта
+     */
+    Uni<UUID> findIdByUserNameForUpdate(SqlClient client, String userName);
 
-    Uni<Void> deleteById(PgPool pool, UUID id);
+    /**
+     * Выборка только баланса и версии счёта
+     * 
+     * @param client клиент БД (пул или соединение)
+     * @param id     уникальный идентификатор счёта
+     * @return баланс и версия, хранимые в строке счёта
+     */
+    Uni<AccountBalance> findBalanceById(SqlClient client, UUID id);
+
+    /**
+     * Выборка только версии счёта, для ответа на условный запрос
+     * 
+     * @param client   клиент БД (пул или соединение)
+     * @param userName имя пользователя, владельца счёта
+     * @return идентификатор и версия счёта
+     */
+    Uni<AccountVersion> findVersionByUserName(SqlClient client, String userName);
+
+    /**
+     * Выборка неудалённых счетов из заданных
+     * 
+     * @param client клиент БД (пул или соединение)
+     * @param ids    уникальные идентификаторы счетов
+     * @return идентификаторы существующих и не помеченных удалёнными счетов
+     */
+    Uni<Set<UUID>> findActiveIds(SqlClient client, Collection<UUID> ids);
+
+    Uni<UUID> insert(SqlClient client, String userName);
+
+    /**
+     * Запись баланса счёта с увеличением версии
+     * 
+     * @param client          клиент БД (пул или соединение)
+     * @param id              уникальный идентификатор счёта
+     * @param balance         новый баланс
+     * @param expectedVersion версия, из которой вычислен баланс
+     * @throws VersionConflictException если версия счёта уже изменилась или
+     *                                  счёт удалён после чтения версии
+     */
+    Uni<Void> updateBalanceById(SqlClient client, UUID id, Money balance, long expectedVersion);
+
+    /**
+     * Пакетное изменение балансов счетов, по одному запросу на счёт в порядке
+     * обхода {@code balanceDeltas}
+     * 
+     * @param client        клиент БД (пул или соединение)
+     * @param balanceDeltas изменения баланса (со знаком) по идентификаторам счетов
+     * @return признак завершения; счета, помеченные удалёнными, не изменяются
+     */
+    Uni<Void> addToBalances(SqlClient client, Map<UUID, Money> balanceDeltas);
+
+    /**
+     * Атомарное изменение баланса счёта пользователя и сохранение операции одним
+     * запросом к БД
+     * 
+     * @param client       клиент БД (пул или соединение)
+     * @param userName     имя пользователя, владельца счёта
+     * @param operation    сохраняемая операция
+     * @param balanceDelta изменение баланса (со знаком)
+     * @return уникальный идентификатор операции, либо {@code null}, если баланс
+     *         счёта стал бы отрицательным
+     * @throws NoSuchElementException если счёт не найден или удалён, в том числе
+     *                                параллельно с операцией
+     */
+    Uni<UUID> updateBalanceAndInsertOperation(SqlClient client, String userName, Operation operation,
+            Money balanceDelta);
+
+    /**
+     * Пометка счёта удалённым; операции и сам счёт удаляются позже
+     * 
+     * @param client    клиент БД (пул или соединение)
+     * @param id        уникальный идентификатор счёта
+     * @param deletedAt дата/время запроса удаления
+     */
+    Uni<Void> markDeleted(SqlClient client, UUID id, LocalDateTime deletedAt);
+
+    Uni<Void> deleteById(SqlClient client, UUID id);
 }
@@ -0,0 +1,62 @@
+package org.auwerk.otus.arch.billingservice.dao;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletion;
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletionStatus;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+
+public interface AccountDeletionDao {
+
+    Uni<AccountDeletion> findById(SqlClient client, UUID id);
+
+    /**
+     * Выборка незавершённых задач удаления, от старых к новым
+     * 
+     * @param client клиент БД (пул или соединение)
+     * @param limit  максимальное количество задач
+     * @return задачи удаления
+     */
+    Uni<List<AccountDeletion>> findPending(SqlClient client, int limit);
+
+    Uni<Void> insert(SqlClient client, AccountDeletion deletion);
+
+    /**
+     * Блокировка незавершённой задачи удаления до конца транзакции без ожидания:
+     * порции одной задачи, запущенной на нескольких экземплярах, не удаляются
+     * одновременно
+     * 
+     * @param conn соединение с открытой транзакцией
+     * @param id   уникальный идентификатор задачи удаления
+     * @return {@code false}, если задача заблокирована другой транзакцией или уже
+     *         не ожидает удаления
+     */
+    Uni<Boolean> tryLockPending(SqlConnection conn, UUID id);
+
+    /**
+     * Учёт очередной порции удалённых операций
+     * 
+     * @param client клиент БД (пул или соединение)
+     * @param id     уникальный идентификатор задачи удаления
+     * @param count  количество удалённых операций
+     */
+    Uni<Void> addPurgedOperations(SqlClient client, UUID id, int count);
+
+    Uni<Void> complete(SqlClient client, UUID id, LocalDateTime completedAt);
+
+    /**
+     * Учёт неудачной попытки удаления. После {@code maxAttempts} попыток задача
+     * переводится в статус {@link AccountDeletionStatus#FAILED}.
+     * 
+     * @param client      клиент БД (пул или соединение)
+     * @param id          уникальный идентификатор задачи удаления
+     * @param maxAttempts допустимое количество попыток
+     * @return статус задачи после учёта попытки
+     */
+    Uni<AccountDeletionStatus> recordFailure(SqlClient client, UUID id, int maxAttempts);
+}
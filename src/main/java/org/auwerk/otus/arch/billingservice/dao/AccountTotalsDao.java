@@ -0,0 +1,51 @@
+package org.auwerk.otus.arch.billingservice.dao;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import org.auwerk.otus.arch.billingservice.domain.AccountTotals;
+import org.auwerk.otus.arch.billingservice.domain.StatsGranularity;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+
+/**
+ * Суточные итоги операций по счетам. Итоги пересчитываются фоновой задачей по
+ * операциям транзакций, завершённых с прошлого пересчёта.
+ */
+public interface AccountTotalsDao {
+
+    /**
+     * Выборка итогов счёта, сгруппированных по периодам
+     * 
+     * @param client      клиент БД (пул или соединение)
+     * @param accountId   уникальный идентификатор счёта
+     * @param from        первый день, включительно
+     * @param to          последний день, включительно
+     * @param granularity шаг группировки
+     * @return итоги по периодам, в которых были операции, по возрастанию
+     */
+    Uni<List<AccountTotals>> findByAccountId(SqlClient client, UUID accountId, LocalDate from, LocalDate to,
+            StatsGranularity granularity);
+
+    /**
+     * Блокировка состояния пересчёта итогов до конца транзакции, без ожидания
+     * 
+     * @param conn соединение с открытой транзакцией
+     * @return {@code false}, если итоги пересчитывает другой экземпляр сервиса
+     */
+    Uni<Boolean> tryLockRollup(SqlConnection conn);
+
+    /**
+     * Пересчёт итогов за дни счетов, в которые попали операции транзакций с
+     * идентификаторами от сохранённой границы до xmin снимка запроса. Граница
+     * сдвигается к xmin; состояние должно быть заблокировано
+     * {@link #tryLockRollup(SqlConnection)} в той же транзакции.
+     * 
+     * @param conn соединение с открытой транзакцией
+     * @return количество пересчитанных суточных итогов
+     */
+    Uni<Integer> rollUp(SqlConnection conn);
+}
@@ -0,0 +1,27 @@
+package org.auwerk.otus.arch.billingservice.dao;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+
+public interface IdempotencyKeyDao {
+
+    /**
+     * Поиск операции, исполненной с ключом идемпотентности
+     * 
+     * @param client         клиент БД (пул или соединение)
+     * @param userName       имя пользователя
+     * @param idempotencyKey ключ идемпотентности
+     * @param now            текущие дата/время, истёкшие ключи не учитываются
+     * @return уникальный идентификатор операции, либо {@code null}, если ключ не
+     *         найден
+     */
+    Uni<UUID> findOperationId(SqlClient client, String userName, String idempotencyKey, LocalDateTime now);
+
+    Uni<Void> insert(SqlClient client, String userName, String idempotencyKey, UUID operationId,
+            LocalDateTime expiresAt);
+
+    Uni<Integer> deleteExpired(SqlClient client, LocalDateTime now, int limit);
+}
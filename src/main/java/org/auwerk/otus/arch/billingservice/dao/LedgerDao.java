@@ -0,0 +1,56 @@
+package org.auwerk.otus.arch.billingservice.dao;
+
+import java.util.UUID;
+
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+
+/**
+ * Баланс счёта в режиме журнала: снимок баланса плюс операции после него
+ */
+public interface LedgerDao {
+
+    Uni<Money> getBalance(SqlClient client, UUID accountId);
+
+    /**
+     * Сохранение операции без проверки баланса
+     * 
+     * @param client    клиент БД (пул или соединение)
+     * @param userName  имя пользователя, владельца счёта
+     * @param operation сохраняемая операция
+     * @return уникальный идентификатор операции
+     */
+    Uni<UUID> insertOperation(SqlClient client, String userName, Operation operation);
+
+    /**
+     * Сохранение операции, если баланс после неё останется неотрицательным.
+     * Вызывающий должен удерживать блокировку счёта.
+     * 
+     * @param client       соединение с открытой транзакцией
+     * @param accountId    уникальный идентификатор счёта
+     * @param operation    сохраняемая операция
+     * @param balanceDelta изменение баланса (со знаком)
+     * @return уникальный идентификатор операции, либо {@code null}, если баланс
+     *         счёта стал бы отрицательным
+     */
+    Uni<UUID> insertOperationIfCovered(SqlClient client, UUID accountId, Operation operation,
+            Money balanceDelta);
+
+    /**
+     * Обновление снимков баланса порции счетов, упорядоченных по
+     * идентификатору. Снимок включает операции всех транзакций, завершённых к
+     * началу запроса (граница - xmin его снимка БД), поэтому операция,
+     * зафиксированная позже, попадает в следующий снимок. Снимки счетов без
+     * новых операций не переписываются.
+     * 
+     * @param client         клиент БД (пул или соединение)
+     * @param afterAccountId идентификатор, после которого начинается порция
+     * @param limit          количество счетов в порции
+     * @return идентификатор последнего счёта порции, либо {@code null}, если
+     *         счетов больше нет
+     */
+    Uni<UUID> rollSnapshots(SqlClient client, UUID afterAccountId, int limit);
+}
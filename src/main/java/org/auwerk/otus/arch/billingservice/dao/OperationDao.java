@@ -1,22 +1,107 @@
 package org.auwerk.otus.arch.billingservice.dao;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationCursor;
 
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
-import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.SqlConnection;
 
+/**
+ * Операции счетов. Таблица операций секционирована по дате/времени создания,
+ * поэтому выборки по счёту ограничиваются снизу датой/временем создания счёта,
+ * чтобы планировщик мог отсечь секции.
+ */
 public interface OperationDao {
 
-    Uni<Operation> findById(PgPool pool, UUID id);
+    /**
+     * Ограничение, не допускающее более одной отмены операции
+     */
+    String RELATED_TO_UNIQUE_CONSTRAINT = "ux_operations_related_to";
 
-    Uni<Long> countByRelatedTo(PgPool pool, UUID relatedTo);
+    Uni<Operation> findById(SqlClient client, UUID id);
 
-    Uni<List<Operation>> findByAccountId(PgPool pool, UUID accountId);
+    /**
+     * Выборка операции с блокировкой строки до конца транзакции; параллельные
+     * отмены одной операции выполняются по очереди
+     * 
+     * @param conn соединение с открытой транзакцией
+     * @param id   уникальный идентификатор операции
+     * @return операция
+     */
+    Uni<Operation> findByIdForUpdate(SqlConnection conn, UUID id);
 
-    Uni<UUID> insert(PgPool pool, Operation operation);
+    /**
+     * Проверка, отменена ли операция
+     * 
+     * @param client клиент БД (пул или соединение)
+     * @param id     уникальный идентификатор операции
+     * @return {@code true}, если операция уже отменена
+     */
+    Uni<Boolean> isCanceled(SqlClient client, UUID id);
 
-    Uni<Void> deleteByAccountId(PgPool pool, UUID accountId);
+    /**
+     * Выборка страницы истории операций счёта, от новых к старым
+     * 
+     * @param client    клиент БД (пул или соединение)
+     * @param accountId уникальный идентификатор счёта
+     * @param since     дата/время создания счёта
+     * @param after     позиция, после которой начинается страница, либо
+     *                  {@code null} для первой страницы
+     * @param limit     максимальное количество операций
+     * @return операции
+     */
+    Uni<List<Operation>> findByAccountId(SqlClient client, UUID accountId, LocalDateTime since,
+            OperationCursor after, int limit);
+
+    /**
+     * Потоковая выборка всей истории операций счёта через курсор БД, от старых к
+     * новым
+     * 
+     * @param conn      соединение с открытой транзакцией
+     * @param accountId уникальный идентификатор счёта
+     * @param since     дата/время создания счёта
+     * @param fetchSize количество строк, выбираемых из курсора за раз
+     * @return поток операций
+     */
+    Multi<Operation> streamByAccountId(SqlConnection conn, UUID accountId, LocalDateTime since, int fetchSize);
+
+    Uni<UUID> insert(SqlClient client, Operation operation);
+
+    /**
+     * Выборка идентификаторов уже сохранённых операций из заданных
+     * 
+     * @param client клиент БД (пул или соединение)
+     * @param ids    уникальные идентификаторы операций
+     * @param from   наименьшая дата/время создания операций; сохранённое время
+     *               может быть позже заданного приложением, но не раньше
+     * @return сохранённые из них
+     */
+    Uni<Set<UUID>> findExistingIds(SqlClient client, List<UUID> ids, LocalDateTime from);
+
+    /**
+     * Пакетное сохранение операций с заранее присвоенными идентификаторами. Если
+     * дата/время создания операции не задана, её назначает БД; заданная ранее
+     * создания счёта заменяется временем создания счёта.
+     * 
+     * @param client     клиент БД (пул или соединение)
+     * @param operations операции
+     */
+    Uni<Void> insertBatch(SqlClient client, List<Operation> operations);
+
+    /**
+     * Удаление порции операций счёта
+     * 
+     * @param client    клиент БД (пул или соединение)
+     * @param accountId уникальный идентификатор счёта
+     * @param limit     максимальное количество удаляемых операций
+     * @return количество удалённых операций
+     */
+    Uni<Integer> deleteByAccountId(SqlClient client, UUID accountId, int limit);
 }
@@ -0,0 +1,32 @@
+package org.auwerk.otus.arch.billingservice.dao;
+
+import java.util.List;
+
+import org.auwerk.otus.arch.billingservice.domain.OperationEvent;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+
+public interface OperationEventDao {
+
+    /**
+     * Попытка захватить право публикации событий до конца транзакции, чтобы
+     * события публиковал только один экземпляр сервиса
+     * 
+     * @param client соединение с открытой транзакцией
+     * @return захвачено ли право публикации
+     */
+    Uni<Boolean> tryLockRelay(SqlClient client);
+
+    /**
+     * Выборка неопубликованных событий завершённых транзакций по возрастанию
+     * идентификатора транзакции, затем номера
+     * 
+     * @param client клиент БД (пул или соединение)
+     * @param limit  максимальное количество событий
+     * @return события
+     */
+    Uni<List<OperationEvent>> findPending(SqlClient client, int limit);
+
+    Uni<Void> deleteByIds(SqlClient client, List<Long> ids);
+}
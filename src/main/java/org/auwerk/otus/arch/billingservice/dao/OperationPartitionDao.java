@@ -0,0 +1,42 @@
+package org.auwerk.otus.arch.billingservice.dao;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+
+/**
+ * Помесячные секции таблицы операций
+ */
+public interface OperationPartitionDao {
+
+    /**
+     * Создание секции, если её ещё нет
+     * 
+     * @param client клиент БД (пул или соединение)
+     * @param month  месяц
+     * @return имя секции
+     */
+    Uni<String> createPartition(SqlClient client, YearMonth month);
+
+    /**
+     * Месяцы секций, присоединённых к таблице операций
+     * 
+     * @param client клиент БД (пул или соединение)
+     * @return месяцы по возрастанию
+     */
+    Uni<List<YearMonth>> findPartitionMonths(SqlClient client);
+
+    /**
+     * Отсоединение секции от таблицы операций и перенос её в схему архива
+     * 
+     * @param conn          соединение с открытой транзакцией
+     * @param month         месяц секции
+     * @param archiveSchema схема архива
+     * @param lockTimeout   максимальное ожидание блокировки таблицы операций
+     */
+    Uni<Void> archivePartition(SqlConnection conn, YearMonth month, String archiveSchema, Duration lockTimeout);
+}
@@ -1,27 +1,45 @@
 package org.auwerk.otus.arch.billingservice.dao.impl;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.enterprise.context.ApplicationScoped;
 
 import org.auwerk.otus.arch.billingservice.dao.AccountDao;
 import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.AccountBalance;
+import org.auwerk.otus.arch.billingservice.domain.AccountVersion;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
 import org.auwerk.otus.arch.billingservice.exception.DaoException;
+import org.auwerk.otus.arch.billingservice.exception.VersionConflictException;
+import org.auwerk.otus.arch.billingservice.metrics.Measured;
 
 import io.smallrye.mutiny.Uni;
-import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.pgclient.PgException;
 import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.SqlClient;
 import io.vertx.mutiny.sqlclient.Tuple;
 
 @ApplicationScoped
+@Measured("billing.dao.queries")
 public class AccountDaoImpl implements AccountDao {
 
+    /**
+     * Столбцы в порядке, ожидаемом {@link #mapRow(Row)}
+     */
+    static final String COLUMNS = "id, username, balance, created_at, version";
+
     @Override
-    public Uni<Account> findById(PgPool pool, UUID id) {
-        return pool.preparedQuery("SELECT * FROM accounts WHERE id=$1")
+    public Uni<Account> findById(SqlClient client, UUID id) {
+        return client.preparedQuery("SELECT " + COLUMNS + " FROM accounts WHERE id=$1 AND deleted_at IS NULL")
                 .execute(Tuple.of(id))
                 .map(rowSet -> {
                     final var rowSetIterator = rowSet.iterator();
@@ -33,8 +51,22 @@ public class AccountDaoImpl implements AccountDao {
     }
 
     @Override
-    public Uni<Account> findByUserName(PgPool pool, String userName) {
-        return pool.preparedQuery("SELECT * FROM accounts WHERE username=$1")
+    public Uni<Account> findByUserName(SqlClient client, String userName) {
+        return client.preparedQuery("SELECT " + COLUMNS + " FROM accounts WHERE username=$1 AND deleted_at IS NULL")
+                .execute(Tuple.of(userName))
+                .map(rowSet -> {
+                    final var rowSetIterator = rowSet.iterator();
+                    if (!rowSetIterator.hasNext()) {
+                        throw new NoSuchElementException("account not found, username=" + userName);
+                    }
+                    return mapRow(rowSetIterator.next());
+                });
+    }
+
+    @Override
+    public Uni<Account> findByUserNameForUpdate(SqlClient client, String userName) {
+        return client.preparedQuery("SELECT " + COLUMNS + " FROM accounts "
+                + "WHERE username=$1 AND deleted_at IS NULL FOR UPDATE")
                 .execute(Tuple.of(userName))
                 .map(rowSet -> {
                     final var rowSetIterator = rowSet.iterator();
@@ -46,34 +78,152 @@ public class AccountDaoImpl implements AccountDao {
     }
 
     @Override
-    public Uni<UUID> insert(PgPool pool, String userName) {
-        return pool
+    public Uni<UUID> findIdByUserNameForUpdate(SqlClient client, String userName) {
+        return client.preparedQuery("SELECT id FROM accounts WHERE username=$1 AND deleted_at IS NULL FOR UPDATE")
+                .execute(Tuple.of(userName))
+                .map(rowSet -> {
+                    final var rowSetIterator = rowSet.iterator();
+                    if (!rowSetIterator.hasNext()) {
+                        throw new NoSuchElementException("account not found, username=" + userName);
+                    }
+                    return rowSetIterator.next().getUUID(0);
+                });
+    }
+
+    @Override
+    public Uni<AccountBalance> findBalanceById(SqlClient client, UUID id) {
+        return client.preparedQuery("SELECT balance, version FROM accounts WHERE id=$1 AND deleted_at IS NULL")
+                .execute(Tuple.of(id))
+                .map(rowSet -> {
+                    final var rowSetIterator = rowSet.iterator();
+                    if (!rowSetIterator.hasNext()) {
+                        throw new NoSuchElementException("account not found, id=" + id);
+                    }
+                    final var row = rowSetIterator.next();
+                    return AccountBalance.builder()
+                            .balance(Money.ofMinor(row.getLong(0)))
+                            .version(row.getLong(1))
+                            .build();
+                });
+    }
+
+    @Override
+    public Uni<AccountVersion> findVersionByUserName(SqlClient client, String userName) {
+        return client.preparedQuery("SELECT id, version FROM accounts WHERE username=$1 AND deleted_at IS NULL")
+                .execute(Tuple.of(userName))
+                .map(rowSet -> {
+                    final var rowSetIterator = rowSet.iterator();
+                    if (!rowSetIterator.hasNext()) {
+                        throw new NoSuchElementException("account not found, username=" + userName);
+                    }
+                    final var row = rowSetIterator.next();
+                    return new AccountVersion(row.getUUID(0), row.getLong(1));
+                });
+    }
+
+    @Override
+    public Uni<Set<UUID>> findActiveIds(SqlClient client, Collection<UUID> ids) {
+        return client.preparedQuery("SELECT id FROM accounts WHERE id = ANY($1) AND deleted_at IS NULL")
+                .execute(Tuple.of(ids.toArray(UUID[]::new)))
+                .map(rowSet -> {
+                    final var result = new HashSet<UUID>(rowSet.size());
+                    for (final var row : rowSet) {
+                        result.add(row.getUUID(0));
+                    }
+                    return result;
+                });
+    }
+
+    @Override
+    public Uni<UUID> insert(SqlClient client, String userName) {
+        return client
                 .preparedQuery(
-                        "INSERT INTO accounts(id, username, balance, created_at) VALUES($1, $2, $3, $4) RETURNING id")
-                .execute(Tuple.of(UUID.randomUUID(), userName, BigDecimal.ZERO, LocalDateTime.now()))
+                        "INSERT INTO accounts(id, username, balance) VALUES($1, $2, $3) RETURNING id")
+                .execute(Tuple.of(UUID.randomUUID(), userName, 0L))
                 .map(rowSet -> {
                     if (rowSet.rowCount() != 1) {
                         throw new DaoException("account insertion failed, username=" + userName);
                     }
-                    return rowSet.iterator().next().getUUID("id");
+                    return rowSet.iterator().next().getUUID(0);
+                });
+    }
+
+    @Override
+    public Uni<Void> updateBalanceById(SqlClient client, UUID id, Money balance, long expectedVersion) {
+        return client.preparedQuery("UPDATE accounts SET balance=$1, version=version+1 "
+                + "WHERE id=$2 AND version=$3 AND deleted_at IS NULL")
+                .execute(Tuple.of(balance.minorUnits(), id, expectedVersion))
+                .invoke(rowSet -> {
+                    if (rowSet.rowCount() != 1) {
+                        throw new VersionConflictException(id);
+                    }
+                })
+                .replaceWithVoid();
+    }
+
+    @Override
+    public Uni<Void> addToBalances(SqlClient client, Map<UUID, Money> balanceDeltas) {
+        final var batch = new ArrayList<Tuple>(balanceDeltas.size());
+        balanceDeltas.forEach((id, balanceDelta) -> batch.add(Tuple.of(balanceDelta.minorUnits(), id)));
+
+        return client.preparedQuery("UPDATE accounts SET balance=balance+$1, version=version+1 WHERE id=$2 AND deleted_at IS NULL")
+                .executeBatch(batch)
+                .replaceWithVoid();
+    }
+
+    @Override
+    public Uni<UUID> updateBalanceAndInsertOperation(SqlClient client, String userName, Operation operation,
+            Money balanceDelta) {
+        Object[] parameters = { userName, balanceDelta.minorUnits(), UUID.randomUUID(), operation.getRelatedTo(),
+                operation.getType().name(), operation.getAmount().minorUnits(), operation.getComment() };
+
+        return client.preparedQuery("WITH account AS "
+                + "(SELECT id FROM accounts WHERE username=$1 AND deleted_at IS NULL), "
+                + "updated AS (UPDATE accounts SET balance=balance+$2, version=version+1 "
+                + "WHERE id=(SELECT id FROM account) AND deleted_at IS NULL AND balance+$2>=0 RETURNING id), "
+                + "inserted AS (INSERT INTO operations(id, account_id, related_to, type, amount, comment) "
+                + "SELECT $3::uuid, updated.id, $4::uuid, $5::varchar, $6::bigint, $7::text "
+                + "FROM updated RETURNING id) "
+                + "SELECT (SELECT id FROM account) AS account_id, (SELECT id FROM inserted) AS operation_id")
+                .execute(Tuple.tuple(Arrays.asList(parameters)))
+                .onFailure(PgException.class)
+                .transform(DaoErrors::translate)
+                .flatMap(rowSet -> {
+                    final var row = rowSet.iterator().next();
+                    final var accountId = row.getUUID(0);
+                    if (accountId == null) {
+                        throw new NoSuchElementException("account not found, username=" + userName);
+                    }
+                    if (row.getUUID(1) != null) {
+                        return Uni.createFrom().item(row.getUUID(1));
+                    }
+                    // счёт из снимка запроса мог быть удалён до получения блокировки строки;
+                    // отдельный запрос видит удаление и отличает его от нехватки средств
+                    return findActiveIds(client, Set.of(accountId))
+                            .map(activeIds -> {
+                                if (activeIds.isEmpty()) {
+                                    throw new NoSuchElementException("account not found, username=" + userName);
+                                }
+                                return null;
+                            });
                 });
     }
 
     @Override
-    public Uni<Void> updateBalanceById(PgPool pool, UUID id, BigDecimal balance) {
-        return pool.preparedQuery("UPDATE accounts SET balance=$1 WHERE id=$2")
-                .execute(Tuple.of(balance, id))
+    public Uni<Void> markDeleted(SqlClient client, UUID id, LocalDateTime deletedAt) {
+        return client.preparedQuery("UPDATE accounts SET deleted_at=$1 WHERE id=$2 AND deleted_at IS NULL")
+                .execute(Tuple.of(deletedAt, id))
                 .invoke(rowSet -> {
                     if (rowSet.rowCount() != 1) {
-                        throw new DaoException("account balance update failed, id=" + id);
+                        throw new DaoException("account deletion mark failed, id=" + id);
                     }
                 })
                 .replaceWithVoid();
     }
 
     @Override
-    public Uni<Void> deleteById(PgPool pool, UUID id) {
-        return pool.preparedQuery("DELETE FROM accounts WHERE id=$1")
+    public Uni<Void> deleteById(SqlClient client, UUID id) {
+        return client.preparedQuery("DELETE FROM accounts WHERE id=$1")
                 .execute(Tuple.of(id))
                 .invoke(rowSet -> {
                     if (rowSet.rowCount() != 1) {
@@ -83,12 +233,13 @@ public class AccountDaoImpl implements AccountDao {
                 .replaceWithVoid();
     }
 
-    private static Account mapRow(Row row) {
+    static Account mapRow(Row row) {
         return Account.builder()
-                .id(row.getUUID("id"))
-                .userName(row.getString("username"))
-                .balance(row.getBigDecimal("balance"))
-                .createdAt(row.getLocalDateTime("created_at"))
+                .id(row.getUUID(0))
+                .userName(row.getString(1))
+                .balance(Money.ofMinor(row.getLong(2)))
+                .createdAt(row.getLocalDateTime(3))
+                .version(row.getLong(4))
                 .build();
     }
 }
@@ -0,0 +1,131 @@
+package org.auwerk.otus.arch.billingservice.dao.impl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.auwerk.otus.arch.billingservice.dao.AccountDeletionDao;
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletion;
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletionStatus;
+import org.auwerk.otus.arch.billingservice.exception.DaoException;
+import org.auwerk.otus.arch.billingservice.metrics.Measured;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+import io.vertx.mutiny.sqlclient.Tuple;
+
+@ApplicationScoped
+@Measured("billing.dao.queries")
+public class AccountDeletionDaoImpl implements AccountDeletionDao {
+
+    /**
+     * Столбцы в порядке, ожидаемом {@link #mapRow(Row)}
+     */
+    static final String COLUMNS = "id, account_id, username, account_created_at, status, purged_operations, "
+            + "created_at, completed_at";
+
+    @Override
+    public Uni<AccountDeletion> findById(SqlClient client, UUID id) {
+        return client.preparedQuery("SELECT " + COLUMNS + " FROM account_deletions WHERE id=$1")
+                .execute(Tuple.of(id))
+                .map(rowSet -> {
+                    final var rowSetIterator = rowSet.iterator();
+                    if (!rowSetIterator.hasNext()) {
+                        throw new NoSuchElementException("account deletion not found, id=" + id);
+                    }
+                    return mapRow(rowSetIterator.next());
+                });
+    }
+
+    @Override
+    public Uni<List<AccountDeletion>> findPending(SqlClient client, int limit) {
+        return client.preparedQuery("SELECT " + COLUMNS + " FROM account_deletions "
+                + "WHERE status=$1 ORDER BY created_at LIMIT $2")
+                .execute(Tuple.of(AccountDeletionStatus.PENDING.name(), (long) limit))
+                .map(rowSet -> {
+                    final var result = new ArrayList<AccountDeletion>(rowSet.rowCount());
+                    for (final var row : rowSet) {
+                        result.add(mapRow(row));
+                    }
+                    return result;
+                });
+    }
+
+    @Override
+    public Uni<Boolean> tryLockPending(SqlConnection conn, UUID id) {
+        return conn.preparedQuery("SELECT id FROM account_deletions WHERE id=$1 AND status=$2 FOR UPDATE SKIP LOCKED")
+                .execute(Tuple.of(id, AccountDeletionStatus.PENDING.name()))
+                .map(rowSet -> rowSet.rowCount() == 1);
+    }
+
+    @Override
+    public Uni<Void> insert(SqlClient client, AccountDeletion deletion) {
+        Object[] parameters = { deletion.getId(), deletion.getAccountId(), deletion.getUserName(),
+                deletion.getAccountCreatedAt(), deletion.getStatus().name(), deletion.getPurgedOperations(),
+                deletion.getCreatedAt() };
+
+        return client.preparedQuery("INSERT INTO account_deletions(id, account_id, username, account_created_at, "
+                + "status, purged_operations, created_at) VALUES($1, $2, $3, $4, $5, $6, $7)")
+                .execute(Tuple.tuple(Arrays.asList(parameters)))
+                .invoke(rowSet -> {
+                    if (rowSet.rowCount() != 1) {
+                        throw new DaoException("account deletion insertion failed, account id="
+                                + deletion.getAccountId());
+                    }
+                })
+                .replaceWithVoid();
+    }
+
+    @Override
+    public Uni<Void> addPurgedOperations(SqlClient client, UUID id, int count) {
+        return client.preparedQuery("UPDATE account_deletions SET purged_operations=purged_operations+$1 WHERE id=$2")
+                .execute(Tuple.of((long) count, id))
+                .replaceWithVoid();
+    }
+
+    @Override
+    public Uni<Void> complete(SqlClient client, UUID id, LocalDateTime completedAt) {
+        return client.preparedQuery("UPDATE account_deletions SET status=$1, completed_at=$2 WHERE id=$3")
+                .execute(Tuple.of(AccountDeletionStatus.COMPLETED.name(), completedAt, id))
+                .invoke(rowSet -> {
+                    if (rowSet.rowCount() != 1) {
+                        throw new DaoException("account deletion completion failed, id=" + id);
+                    }
+                })
+                .replaceWithVoid();
+    }
+
+    @Override
+    public Uni<AccountDeletionStatus> recordFailure(SqlClient client, UUID id, int maxAttempts) {
+        return client.preparedQuery("UPDATE account_deletions SET attempts=attempts+1, "
+                + "status=CASE WHEN attempts+1>=$2 THEN $3 ELSE status END WHERE id=$1 RETURNING status")
+                .execute(Tuple.of(id, maxAttempts, AccountDeletionStatus.FAILED.name()))
+                .map(rowSet -> {
+                    final var rowSetIterator = rowSet.iterator();
+                    if (!rowSetIterator.hasNext()) {
+                        throw new NoSuchElementException("account deletion not found, id=" + id);
+                    }
+                    return AccountDeletionStatus.valueOf(rowSetIterator.next().getString("status"));
+                });
+    }
+
+    static AccountDeletion mapRow(Row row) {
+        return AccountDeletion.builder()
+                .id(row.getUUID(0))
+                .accountId(row.getUUID(1))
+                .userName(row.getString(2))
+                .accountCreatedAt(row.getLocalDateTime(3))
+                .status(AccountDeletionStatus.valueOf(row.getString(4)))
+                .purgedOperations(row.getLong(5))
+                .createdAt(row.getLocalDateTime(6))
+                .completedAt(row.getLocalDateTime(7))
+                .build();
+    }
+}
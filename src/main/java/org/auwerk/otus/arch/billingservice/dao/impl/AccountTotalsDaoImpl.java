@@ -0,0 +1,88 @@
+package org.auwerk.otus.arch.billingservice.dao.impl;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.auwerk.otus.arch.billingservice.dao.AccountTotalsDao;
+import org.auwerk.otus.arch.billingservice.domain.AccountTotals;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.StatsGranularity;
+import org.auwerk.otus.arch.billingservice.metrics.Measured;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+import io.vertx.mutiny.sqlclient.Tuple;
+
+@ApplicationScoped
+@Measured("billing.dao.queries")
+public class AccountTotalsDaoImpl implements AccountTotalsDao {
+
+    @Override
+    public Uni<List<AccountTotals>> findByAccountId(SqlClient client, UUID accountId, LocalDate from, LocalDate to,
+            StatsGranularity granularity) {
+        return client.preparedQuery("SELECT date_trunc($4, day::timestamp)::date AS period_start, "
+                + "SUM(credit_amount)::bigint AS credit_amount, SUM(credit_count)::bigint AS credit_count, "
+                + "SUM(withdraw_amount)::bigint AS withdraw_amount, SUM(withdraw_count)::bigint AS withdraw_count "
+                + "FROM daily_account_totals WHERE account_id=$1 AND day BETWEEN $2 AND $3 "
+                + "GROUP BY period_start ORDER BY period_start")
+                .execute(Tuple.of(accountId, from, to, granularity.name().toLowerCase(Locale.ROOT)))
+                .map(rowSet -> {
+                    final var result = new ArrayList<AccountTotals>(rowSet.rowCount());
+                    for (final var row : rowSet) {
+                        result.add(mapRow(row));
+                    }
+                    return result;
+                });
+    }
+
+    @Override
+    public Uni<Boolean> tryLockRollup(SqlConnection conn) {
+        return conn.query("SELECT last_xid FROM daily_account_totals_rollup FOR UPDATE SKIP LOCKED")
+                .execute()
+                .map(rowSet -> rowSet.rowCount() == 1);
+    }
+
+    @Override
+    public Uni<Integer> rollUp(SqlConnection conn) {
+        // все транзакции с идентификатором ниже xmin снимка завершены; пересчёт дня
+        // целиком повторяем, поэтому видимые операции транзакций выше xmin будут
+        // учтены ещё раз при следующем запуске без двойного счёта
+        return conn.query("WITH watermark AS (SELECT pg_snapshot_xmin(pg_current_snapshot()) AS xid), "
+                + "touched AS (SELECT DISTINCT o.account_id, o.created_at::date AS day FROM operations o "
+                + "WHERE o.tx_id>=(SELECT last_xid FROM daily_account_totals_rollup) "
+                + "AND o.tx_id<(SELECT xid FROM watermark)), "
+                + "totals AS (SELECT t.account_id, t.day, "
+                + "COALESCE(SUM(o.amount) FILTER (WHERE o.type='CREDIT'), 0) AS credit_amount, "
+                + "COUNT(*) FILTER (WHERE o.type='CREDIT') AS credit_count, "
+                + "COALESCE(SUM(o.amount) FILTER (WHERE o.type='WITHDRAW'), 0) AS withdraw_amount, "
+                + "COUNT(*) FILTER (WHERE o.type='WITHDRAW') AS withdraw_count "
+                + "FROM touched t JOIN operations o ON o.account_id=t.account_id "
+                + "AND o.created_at>=t.day AND o.created_at<t.day+1 GROUP BY t.account_id, t.day), "
+                + "upserted AS (INSERT INTO daily_account_totals(account_id, day, credit_amount, credit_count, "
+                + "withdraw_amount, withdraw_count) SELECT * FROM totals ORDER BY account_id, day "
+                + "ON CONFLICT (account_id, day) DO UPDATE SET credit_amount=EXCLUDED.credit_amount, "
+                + "credit_count=EXCLUDED.credit_count, withdraw_amount=EXCLUDED.withdraw_amount, "
+                + "withdraw_count=EXCLUDED.withdraw_count RETURNING 1), "
+                + "advanced AS (UPDATE daily_account_totals_rollup SET last_xid=(SELECT xid FROM watermark)) "
+                + "SELECT COUNT(*) AS days FROM upserted")
+                .execute()
+                .map(rowSet -> rowSet.iterator().next().getInteger("days"));
+    }
+
+    static AccountTotals mapRow(Row row) {
+        return AccountTotals.builder()
+                .periodStart(row.getLocalDate("period_start"))
+                .creditAmount(Money.ofMinor(row.getLong("credit_amount")))
+                .creditCount(row.getLong("credit_count"))
+                .withdrawAmount(Money.ofMinor(row.getLong("withdraw_amount")))
+                .withdrawCount(row.getLong("withdraw_count"))
+                .build();
+    }
+}
@@ -0,0 +1,25 @@
+package org.auwerk.otus.arch.billingservice.dao.impl;
+
+import org.auwerk.otus.arch.billingservice.exception.DuplicateKeyException;
+
+import io.vertx.pgclient.PgException;
+
+final class DaoErrors {
+
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String NUMERIC_VALUE_OUT_OF_RANGE = "22003";
+
+    private DaoErrors() {
+    }
+
+    static Throwable translate(Throwable failure) {
+        if (failure instanceof PgException pgException && UNIQUE_VIOLATION.equals(pgException.getCode())) {
+            return new DuplicateKeyException(pgException.getConstraint());
+        }
+        if (failure instanceof PgException pgException && NUMERIC_VALUE_OUT_OF_RANGE.equals(pgException.getCode())) {
+            // как переполнение в арифметике Money
+            return new ArithmeticException(pgException.getErrorMessage());
+        }
+        return failure;
+    }
+}
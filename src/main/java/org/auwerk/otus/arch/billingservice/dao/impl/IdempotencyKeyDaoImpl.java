@@ -0,0 +1,59 @@
+package org.auwerk.otus.arch.billingservice.dao.impl;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.auwerk.otus.arch.billingservice.dao.IdempotencyKeyDao;
+import org.auwerk.otus.arch.billingservice.exception.DaoException;
+import org.auwerk.otus.arch.billingservice.metrics.Measured;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.Tuple;
+import io.vertx.pgclient.PgException;
+
+@ApplicationScoped
+@Measured("billing.dao.queries")
+public class IdempotencyKeyDaoImpl implements IdempotencyKeyDao {
+
+    @Override
+    public Uni<UUID> findOperationId(SqlClient client, String userName, String idempotencyKey,
+            LocalDateTime now) {
+        return client.preparedQuery("SELECT operation_id FROM idempotency_keys "
+                + "WHERE username=$1 AND idempotency_key=$2 AND expires_at>$3")
+                .execute(Tuple.of(userName, idempotencyKey, now))
+                .map(rowSet -> {
+                    final var rowSetIterator = rowSet.iterator();
+                    if (!rowSetIterator.hasNext()) {
+                        return null;
+                    }
+                    return rowSetIterator.next().getUUID("operation_id");
+                });
+    }
+
+    @Override
+    public Uni<Void> insert(SqlClient client, String userName, String idempotencyKey, UUID operationId,
+            LocalDateTime expiresAt) {
+        return client.preparedQuery("INSERT INTO idempotency_keys(username, idempotency_key, operation_id, "
+                + "created_at, expires_at) VALUES($1, $2, $3, $4, $5)")
+                .execute(Tuple.of(userName, idempotencyKey, operationId, LocalDateTime.now(), expiresAt))
+                .onFailure(PgException.class)
+                .transform(DaoErrors::translate)
+                .invoke(rowSet -> {
+                    if (rowSet.rowCount() != 1) {
+                        throw new DaoException("idempotency key insertion failed, key=" + idempotencyKey);
+                    }
+                })
+                .replaceWithVoid();
+    }
+
+    @Override
+    public Uni<Integer> deleteExpired(SqlClient client, LocalDateTime now, int limit) {
+        return client.preparedQuery("DELETE FROM idempotency_keys WHERE ctid IN "
+                + "(SELECT ctid FROM idempotency_keys WHERE expires_at<=$1 LIMIT $2)")
+                .execute(Tuple.of(now, (long) limit))
+                .map(rowSet -> rowSet.rowCount());
+    }
+}
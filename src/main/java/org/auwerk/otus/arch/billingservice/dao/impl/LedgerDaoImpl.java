@@ -0,0 +1,106 @@
+package org.auwerk.otus.arch.billingservice.dao.impl;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.auwerk.otus.arch.billingservice.dao.LedgerDao;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.metrics.Measured;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.Tuple;
+import io.vertx.pgclient.PgException;
+
+@ApplicationScoped
+@Measured("billing.dao.queries")
+public class LedgerDaoImpl implements LedgerDao {
+
+    /**
+     * Баланс счёта $1: снимок плюс операции транзакций, не вошедших в него.
+     * Операции без tx_id сохранены до перехода на границу по транзакциям и
+     * входят в любой снимок.
+     */
+    private static final String BALANCE_QUERY = "SELECT COALESCE(s.balance, 0) + COALESCE("
+            + "(SELECT SUM(CASE o.type WHEN 'CREDIT' THEN o.amount ELSE -o.amount END)::bigint FROM operations o "
+            + "WHERE o.account_id=$1 AND (s.account_id IS NULL OR o.tx_id>=s.until_xid)), 0) AS balance "
+            + "FROM (VALUES (1)) AS v LEFT JOIN account_balance_snapshots s ON s.account_id=$1";
+
+    private static final UUID MIN_ACCOUNT_ID = new UUID(0L, 0L);
+
+    @Override
+    public Uni<Money> getBalance(SqlClient client, UUID accountId) {
+        return client.preparedQuery(BALANCE_QUERY)
+                .execute(Tuple.of(accountId))
+                .map(rowSet -> Money.ofMinor(rowSet.iterator().next().getLong("balance")));
+    }
+
+    @Override
+    public Uni<UUID> insertOperation(SqlClient client, String userName, Operation operation) {
+        Object[] parameters = { UUID.randomUUID(), operation.getRelatedTo(), operation.getType().name(),
+                operation.getAmount().minorUnits(), operation.getComment(), userName };
+
+        // created_at назначает БД (clock_timestamp()), по тем же часам, что и время создания счёта
+        return client.preparedQuery(
+                "INSERT INTO operations(id, account_id, related_to, type, amount, comment) "
+                        + "SELECT $1, id, $2, $3, $4, $5 FROM accounts WHERE username=$6 AND deleted_at IS NULL "
+                        + "RETURNING id")
+                .execute(Tuple.tuple(Arrays.asList(parameters)))
+                .onFailure(PgException.class)
+                .transform(DaoErrors::translate)
+                .map(rowSet -> {
+                    final var rowSetIterator = rowSet.iterator();
+                    if (!rowSetIterator.hasNext()) {
+                        throw new NoSuchElementException("account not found, username=" + userName);
+                    }
+                    return rowSetIterator.next().getUUID("id");
+                });
+    }
+
+    @Override
+    public Uni<UUID> insertOperationIfCovered(SqlClient client, UUID accountId, Operation operation,
+            Money balanceDelta) {
+        Object[] parameters = { accountId, UUID.randomUUID(), operation.getRelatedTo(), operation.getType().name(),
+                operation.getAmount().minorUnits(), operation.getComment(), balanceDelta.minorUnits() };
+
+        return client.preparedQuery("WITH ledger AS (" + BALANCE_QUERY + ") "
+                + "INSERT INTO operations(id, account_id, related_to, type, amount, comment) "
+                + "SELECT $2::uuid, $1::uuid, $3::uuid, $4::varchar, $5::bigint, $6::text "
+                + "FROM ledger WHERE ledger.balance+$7>=0 RETURNING id")
+                .execute(Tuple.tuple(Arrays.asList(parameters)))
+                .onFailure(PgException.class)
+                .transform(DaoErrors::translate)
+                .map(rowSet -> {
+                    final var rowSetIterator = rowSet.iterator();
+                    return rowSetIterator.hasNext() ? rowSetIterator.next().getUUID("id") : null;
+                });
+    }
+
+    @Override
+    public Uni<UUID> rollSnapshots(SqlClient client, UUID afterAccountId, int limit) {
+        // все транзакции с идентификатором ниже xmin снимка завершены, и операции
+        // зафиксированных видны этому запросу: граница не пропустит позднюю фиксацию
+        return client.preparedQuery("WITH watermark AS (SELECT pg_snapshot_xmin(pg_current_snapshot()) AS xid), "
+                + "batch AS (SELECT id FROM accounts WHERE id>$1 ORDER BY id LIMIT $2), "
+                + "totals AS (SELECT b.id AS account_id, COALESCE(s.balance, 0) + t.delta AS balance "
+                + "FROM batch b LEFT JOIN account_balance_snapshots s ON s.account_id=b.id "
+                + "CROSS JOIN LATERAL (SELECT SUM(CASE o.type WHEN 'CREDIT' THEN o.amount ELSE -o.amount END) "
+                + "AS delta FROM operations o WHERE o.account_id=b.id "
+                + "AND (s.account_id IS NULL OR o.tx_id>=s.until_xid) "
+                + "AND (o.tx_id IS NULL OR o.tx_id<(SELECT xid FROM watermark))) t "
+                + "WHERE t.delta IS NOT NULL), "
+                + "upserted AS (INSERT INTO account_balance_snapshots(account_id, balance, until_xid) "
+                + "SELECT account_id, balance, (SELECT xid FROM watermark) FROM totals "
+                + "ON CONFLICT (account_id) DO UPDATE SET balance=EXCLUDED.balance, until_xid=EXCLUDED.until_xid) "
+                + "SELECT id FROM batch ORDER BY id DESC LIMIT 1")
+                .execute(Tuple.of(afterAccountId == null ? MIN_ACCOUNT_ID : afterAccountId, (long) limit))
+                .map(rowSet -> {
+                    final var rowSetIterator = rowSet.iterator();
+                    return rowSetIterator.hasNext() ? rowSetIterator.next().getUUID("id") : null;
+                });
+    }
+}
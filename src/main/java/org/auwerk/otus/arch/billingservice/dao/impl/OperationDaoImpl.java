@@ -3,28 +3,43 @@ package org.auwerk.otus.arch.billingservice.dao.impl;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.enterprise.context.ApplicationScoped;
 
 import org.auwerk.otus.arch.billingservice.dao.OperationDao;
+import org.auwerk.otus.arch.billingservice.domain.Money;
 import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationCursor;
 import org.auwerk.otus.arch.billingservice.domain.OperationType;
 import org.auwerk.otus.arch.billingservice.exception.DaoException;
+import org.auwerk.otus.arch.billingservice.metrics.Measured;
 
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
-import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.pgclient.PgException;
 import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.SqlConnection;
 import io.vertx.mutiny.sqlclient.Tuple;
 
 @ApplicationScoped
+@Measured("billing.dao.queries")
 public class OperationDaoImpl implements OperationDao {
 
+    /**
+     * Столбцы в порядке, ожидаемом {@link #mapRow(Row)}
+     */
+    static final String COLUMNS = "id, account_id, related_to, type, amount, comment, created_at";
+
     @Override
-    public Uni<Operation> findById(PgPool pool, UUID id) {
-        return pool.preparedQuery("SELECT * FROM operations WHERE id=$1")
+    public Uni<Operation> findById(SqlClient client, UUID id) {
+        return client.preparedQuery("SELECT " + COLUMNS + " FROM operations WHERE id=$1")
                 .execute(Tuple.of(id))
                 .map(rowSet -> {
                     final var rowSetIterator = rowSet.iterator();
@@ -36,65 +51,136 @@ public class OperationDaoImpl implements OperationDao {
     }
 
     @Override
-    public Uni<Long> countByRelatedTo(PgPool pool, UUID relatedTo) {
-        return pool.preparedQuery("SELECT COUNT(*) FROM operations WHERE related_to=$1")
-                .execute(Tuple.of(relatedTo))
+    public Uni<Operation> findByIdForUpdate(SqlConnection conn, UUID id) {
+        return conn.preparedQuery("SELECT " + COLUMNS + " FROM operations WHERE id=$1 FOR UPDATE")
+                .execute(Tuple.of(id))
                 .map(rowSet -> {
-                    if (rowSet.rowCount() != 1) {
-                        throw new DaoException("counting realted operations failed");
+                    final var rowSetIterator = rowSet.iterator();
+                    if (!rowSetIterator.hasNext()) {
+                        throw new NoSuchElementException("operation not found, id=" + id);
                     }
-                    return rowSet.iterator().next().getLong(0);
+                    return mapRow(rowSetIterator.next());
                 });
     }
 
     @Override
-    public Uni<List<Operation>> findByAccountId(PgPool pool, UUID accountId) {
-        return pool.preparedQuery("SELECT * FROM operations WHERE account_id=$1")
-                .execute(Tuple.of(accountId))
-                .map(rowSet -> {
-                    final var result = new ArrayList<Operation>(rowSet.rowCount());
-                    final var rowSetIterator = rowSet.iterator();
-                    while (rowSetIterator.hasNext()) {
-                        result.add(mapRow(rowSetIterator.next()));
-                    }
-                    return result;
-                });
+    public Uni<Boolean> isCanceled(SqlClient client, UUID id) {
+        return client.preparedQuery("SELECT EXISTS(SELECT 1 FROM operation_relations WHERE related_to=$1)")
+                .execute(Tuple.of(id))
+                .map(rowSet -> rowSet.iterator().next().getBoolean(0));
     }
 
     @Override
-    public Uni<UUID> insert(PgPool pool, Operation operation) {
+    public Uni<List<Operation>> findByAccountId(SqlClient client, UUID accountId, LocalDateTime since,
+            OperationCursor after, int limit) {
+        final Uni<RowSet<Row>> query;
+        if (after == null) {
+            query = client.preparedQuery("SELECT " + COLUMNS + " FROM operations "
+                    + "WHERE account_id=$1 AND created_at>=$2 ORDER BY created_at DESC, id DESC LIMIT $3")
+                    .execute(Tuple.of(accountId, since, (long) limit));
+        } else {
+            // по сравнению кортежей секции не отсекаются, граница created_at задана отдельно
+            query = client.preparedQuery("SELECT " + COLUMNS + " FROM operations "
+                    + "WHERE account_id=$1 AND created_at>=$2 AND created_at<=$3 AND (created_at, id) < ($3, $4) "
+                    + "ORDER BY created_at DESC, id DESC LIMIT $5")
+                    .execute(Tuple.of(accountId, since, after.getCreatedAt(), after.getId(), (long) limit));
+        }
+        return query.map(rowSet -> {
+            final var result = new ArrayList<Operation>(rowSet.rowCount());
+            final var rowSetIterator = rowSet.iterator();
+            while (rowSetIterator.hasNext()) {
+                result.add(mapRow(rowSetIterator.next()));
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public Multi<Operation> streamByAccountId(SqlConnection conn, UUID accountId, LocalDateTime since,
+            int fetchSize) {
+        return conn.prepare("SELECT " + COLUMNS + " FROM operations WHERE account_id=$1 AND created_at>=$2 "
+                + "ORDER BY created_at, id")
+                .onItem()
+                .transformToMulti(statement -> statement.createStream(fetchSize, Tuple.of(accountId, since))
+                        .toMulti())
+                .map(OperationDaoImpl::mapRow);
+    }
+
+    @Override
+    public Uni<UUID> insert(SqlClient client, Operation operation) {
         Object[] parameters = { UUID.randomUUID(), operation.getAccountId(), operation.getRelatedTo(),
-                operation.getType().name(), operation.getAmount(), operation.getComment(), LocalDateTime.now() };
+                operation.getType().name(), operation.getAmount().minorUnits(), operation.getComment() };
 
-        return pool.preparedQuery(
-                "INSERT INTO operations(id, account_id, related_to, type, amount, comment, created_at) "
-                        + "VALUES($1, $2, $3, $4, $5, $6, $7) RETURNING id")
+        // created_at назначает БД (clock_timestamp()), по тем же часам, что и время создания счёта
+        return client.preparedQuery(
+                "INSERT INTO operations(id, account_id, related_to, type, amount, comment) "
+                        + "VALUES($1, $2, $3, $4, $5, $6) RETURNING id")
                 .execute(Tuple.tuple(Arrays.asList(parameters)))
+                .onFailure(PgException.class)
+                .transform(DaoErrors::translate)
                 .map(rowSet -> {
                     final var rowSetIterator = rowSet.iterator();
                     if (!rowSetIterator.hasNext()) {
                         throw new DaoException("operation insertion failed");
                     }
-                    return rowSetIterator.next().getUUID("id");
+                    return rowSetIterator.next().getUUID(0);
                 });
     }
 
     @Override
-    public Uni<Void> deleteByAccountId(PgPool pool, UUID accountId) {
-        return pool.preparedQuery("DELETE FROM operations WHERE account_id=$1")
-                .execute(Tuple.of(accountId))
+    public Uni<Set<UUID>> findExistingIds(SqlClient client, List<UUID> ids, LocalDateTime from) {
+        return client.preparedQuery("SELECT id FROM operations WHERE id = ANY($1) AND created_at>=$2")
+                .execute(Tuple.of(ids.toArray(UUID[]::new), from))
+                .map(rowSet -> {
+                    final var result = new HashSet<UUID>(rowSet.size());
+                    for (final var row : rowSet) {
+                        result.add(row.getUUID(0));
+                    }
+                    return result;
+                });
+    }
+
+    @Override
+    public Uni<Void> insertBatch(SqlClient client, List<Operation> operations) {
+        final var batch = new ArrayList<Tuple>(operations.size());
+        for (final var operation : operations) {
+            Object[] parameters = { operation.getId(), operation.getAccountId(), operation.getRelatedTo(),
+                    operation.getType().name(), operation.getAmount().minorUnits(), operation.getComment(),
+                    operation.getCreatedAt() };
+            batch.add(Tuple.tuple(Arrays.asList(parameters)));
+        }
+
+        // заданное приложением время не может быть раньше создания счёта, иначе операция
+        // выпадает из истории, ограниченной снизу created_at счёта
+        return client.preparedQuery(
+                "INSERT INTO operations(id, account_id, related_to, type, amount, comment, created_at) "
+                        + "VALUES($1, $2, $3, $4, $5, $6, GREATEST(COALESCE($7::timestamp, clock_timestamp()::timestamp), "
+                        + "(SELECT created_at FROM accounts WHERE id=$2)))")
+                .executeBatch(batch)
+                .onFailure(PgException.class)
+                .transform(DaoErrors::translate)
                 .replaceWithVoid();
     }
 
-    private static Operation mapRow(Row row) {
+    @Override
+    public Uni<Integer> deleteByAccountId(SqlClient client, UUID accountId, int limit) {
+        // ctid не уникален между секциями, поэтому порция выбирается по первичному ключу;
+        // без нижней границы по created_at, которую задают часы разных экземпляров
+        return client.preparedQuery("DELETE FROM operations WHERE (id, created_at) IN "
+                + "(SELECT id, created_at FROM operations WHERE account_id=$1 LIMIT $2)")
+                .execute(Tuple.of(accountId, (long) limit))
+                .map(rowSet -> rowSet.rowCount());
+    }
+
+    static Operation mapRow(Row row) {
         return Operation.builder()
-                .id(row.getUUID("id"))
-                .accountId(row.getUUID("account_id"))
-                .relatedTo(row.getUUID("related_to"))
-                .type(OperationType.valueOf(row.getString("type")))
-                .amount(row.getBigDecimal("amount"))
-                .comment(row.getString("comment"))
-                .createdAt(row.getLocalDateTime("created_at"))
+                .id(row.getUUID(0))
+                .accountId(row.getUUID(1))
+                .relatedTo(row.getUUID(2))
+                .type(OperationType.valueOf(row.getString(3)))
+                .amount(Money.ofMinor(row.getLong(4)))
+                .comment(row.getString(5))
+                .createdAt(row.getLocalDateTime(6))
                 .build();
     }
 }
@@ -0,0 +1,80 @@
+package org.auwerk.otus.arch.billingservice.dao.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.auwerk.otus.arch.billingservice.dao.OperationEventDao;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.OperationEvent;
+import org.auwerk.otus.arch.billingservice.domain.OperationEventType;
+import org.auwerk.otus.arch.billingservice.domain.OperationType;
+import org.auwerk.otus.arch.billingservice.metrics.Measured;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.Tuple;
+
+@ApplicationScoped
+@Measured("billing.dao.queries")
+public class OperationEventDaoImpl implements OperationEventDao {
+
+    /**
+     * Ключ advisory-блокировки публикации событий
+     */
+    private static final long RELAY_LOCK_KEY = 0x6f7574626f78L;
+
+    /**
+     * Столбцы в порядке, ожидаемом {@link #mapRow(Row)}
+     */
+    static final String COLUMNS = "id, event_type, account_id, operation_id, related_to, operation_type, amount, "
+            + "comment, created_at";
+
+    @Override
+    public Uni<Boolean> tryLockRelay(SqlClient client) {
+        return client.preparedQuery("SELECT pg_try_advisory_xact_lock($1) AS locked")
+                .execute(Tuple.of(RELAY_LOCK_KEY))
+                .map(rowSet -> rowSet.iterator().next().getBoolean(0));
+    }
+
+    @Override
+    public Uni<List<OperationEvent>> findPending(SqlClient client, int limit) {
+        // все транзакции с идентификатором ниже xmin снимка завершены: событие поздно
+        // зафиксированной транзакции не окажется в очереди раньше уже опубликованных
+        return client.preparedQuery("SELECT " + COLUMNS + " FROM operation_events "
+                + "WHERE tx_id IS NULL OR tx_id<pg_snapshot_xmin(pg_current_snapshot()) "
+                + "ORDER BY tx_id NULLS FIRST, id LIMIT $1")
+                .execute(Tuple.of((long) limit))
+                .map(rowSet -> {
+                    final var result = new ArrayList<OperationEvent>(rowSet.rowCount());
+                    for (final var row : rowSet) {
+                        result.add(mapRow(row));
+                    }
+                    return result;
+                });
+    }
+
+    @Override
+    public Uni<Void> deleteByIds(SqlClient client, List<Long> ids) {
+        // не по границе номера: номера событий разных транзакций не упорядочены
+        return client.preparedQuery("DELETE FROM operation_events WHERE id = ANY($1)")
+                .execute(Tuple.of(ids.toArray(Long[]::new)))
+                .replaceWithVoid();
+    }
+
+    static OperationEvent mapRow(Row row) {
+        return OperationEvent.builder()
+                .id(row.getLong(0))
+                .eventType(OperationEventType.valueOf(row.getString(1)))
+                .accountId(row.getUUID(2))
+                .operationId(row.getUUID(3))
+                .relatedTo(row.getUUID(4))
+                .operationType(OperationType.valueOf(row.getString(5)))
+                .amount(Money.ofMinor(row.getLong(6)))
+                .comment(row.getString(7))
+                .createdAt(row.getLocalDateTime(8))
+                .build();
+    }
+}
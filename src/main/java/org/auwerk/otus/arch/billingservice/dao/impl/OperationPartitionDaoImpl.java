@@ -0,0 +1,67 @@
+package org.auwerk.otus.arch.billingservice.dao.impl;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.auwerk.otus.arch.billingservice.dao.OperationPartitionDao;
+import org.auwerk.otus.arch.billingservice.metrics.Measured;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+import io.vertx.mutiny.sqlclient.Tuple;
+
+@ApplicationScoped
+@Measured("billing.dao.queries")
+public class OperationPartitionDaoImpl implements OperationPartitionDao {
+
+    /**
+     * Имена секций, которые даёт функция ensure_operations_partition
+     */
+    private static final DateTimeFormatter PARTITION_NAME_FORMAT = DateTimeFormatter
+            .ofPattern("'operations_'yyyy_MM");
+    private static final Pattern PARTITION_NAME_PATTERN = Pattern.compile("operations_\\d{4}_\\d{2}");
+
+    @Override
+    public Uni<String> createPartition(SqlClient client, YearMonth month) {
+        return client.preparedQuery("SELECT ensure_operations_partition($1) AS name")
+                .execute(Tuple.of(month.atDay(1)))
+                .map(rowSet -> rowSet.iterator().next().getString("name"));
+    }
+
+    @Override
+    public Uni<List<YearMonth>> findPartitionMonths(SqlClient client) {
+        return client.preparedQuery("SELECT c.relname AS name FROM pg_inherits i "
+                + "JOIN pg_class c ON c.oid=i.inhrelid WHERE i.inhparent='operations'::regclass")
+                .execute()
+                .map(rowSet -> {
+                    final var result = new ArrayList<YearMonth>(rowSet.rowCount());
+                    for (final var row : rowSet) {
+                        final var name = row.getString("name");
+                        if (PARTITION_NAME_PATTERN.matcher(name).matches()) {
+                            result.add(YearMonth.parse(name, PARTITION_NAME_FORMAT));
+                        }
+                    }
+                    Collections.sort(result);
+                    return result;
+                });
+    }
+
+    @Override
+    public Uni<Void> archivePartition(SqlConnection conn, YearMonth month, String archiveSchema, Duration lockTimeout) {
+        // имена не параметризуются: имя секции формируется здесь, схема берётся из конфигурации
+        final var partition = PARTITION_NAME_FORMAT.format(month);
+        final var schema = "\"" + archiveSchema.replace("\"", "\"\"") + "\"";
+        return conn.query("SET LOCAL lock_timeout=" + lockTimeout.toMillis()).execute()
+                .chain(() -> conn.query("ALTER TABLE operations DETACH PARTITION " + partition).execute())
+                .chain(() -> conn.query("ALTER TABLE " + partition + " SET SCHEMA " + schema).execute())
+                .replaceWithVoid();
+    }
+}
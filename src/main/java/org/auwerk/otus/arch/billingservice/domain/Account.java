@@ -1,6 +1,5 @@
 package org.auwerk.otus.arch.billingservice.domain;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
@@ -13,7 +12,12 @@ import lombok.Data;
 public class Account {
     private UUID id;
     private String userName;
-    private BigDecimal balance;
+    private Money balance;
     private LocalDateTime createdAt;
+    /**
+     * Версия строки счёта, растёт при каждом изменении баланса; {@code null},
+     * если способ хранения баланса её не ведёт
+     */
+    private Long version;
     private List<Operation> operations;
 }
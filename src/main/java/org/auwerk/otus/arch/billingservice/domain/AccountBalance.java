@@ -0,0 +1,14 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Изменяемые атрибуты счёта: баланс и версия строки
+ */
+@Value
+@Builder
+public class AccountBalance {
+    Money balance;
+    long version;
+}
@@ -0,0 +1,23 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Задача фонового удаления счёта
+ */
+@Data
+@Builder
+public class AccountDeletion {
+    private UUID id;
+    private UUID accountId;
+    private String userName;
+    private LocalDateTime accountCreatedAt;
+    private AccountDeletionStatus status;
+    private long purgedOperations;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+}
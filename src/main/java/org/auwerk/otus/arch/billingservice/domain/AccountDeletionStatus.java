@@ -0,0 +1,17 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+public enum AccountDeletionStatus {
+    /**
+     * Счёт помечен удалённым, операции счёта удаляются в фоне
+     */
+    PENDING,
+    /**
+     * Операции и сам счёт удалены
+     */
+    COMPLETED,
+    /**
+     * Удаление не удалось за допустимое количество попыток, задача больше не
+     * исполняется
+     */
+    FAILED
+}
@@ -0,0 +1,36 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Неизменяемые после создания атрибуты счёта
+ */
+@Value
+@Builder
+public class AccountMetadata {
+    UUID id;
+    String userName;
+    LocalDateTime createdAt;
+
+    public static AccountMetadata of(Account account) {
+        return AccountMetadata.builder()
+                .id(account.getId())
+                .userName(account.getUserName())
+                .createdAt(account.getCreatedAt())
+                .build();
+    }
+
+    public Account toAccount(AccountBalance balance) {
+        return Account.builder()
+                .id(id)
+                .userName(userName)
+                .balance(balance.getBalance())
+                .createdAt(createdAt)
+                .version(balance.getVersion())
+                .build();
+    }
+}
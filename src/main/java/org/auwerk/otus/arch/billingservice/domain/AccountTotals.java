@@ -0,0 +1,19 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+import java.time.LocalDate;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Итоги операций по счёту за период
+ */
+@Data
+@Builder
+public class AccountTotals {
+    private LocalDate periodStart;
+    private Money creditAmount;
+    private long creditCount;
+    private Money withdrawAmount;
+    private long withdrawCount;
+}
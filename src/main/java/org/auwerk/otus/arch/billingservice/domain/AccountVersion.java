@@ -0,0 +1,22 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+import java.util.UUID;
+
+import lombok.Value;
+
+/**
+ * Версия строки счёта вместе с его идентификатором: счёт, удалённый и
+ * созданный заново под тем же именем, начинает нумерацию версий с начала
+ */
+@Value
+public class AccountVersion {
+    UUID accountId;
+    long version;
+
+    /**
+     * Значение ETag, уникальное между счетами одного пользователя
+     */
+    public String tag() {
+        return accountId + "-" + version;
+    }
+}
@@ -0,0 +1,14 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+public enum BalanceConcurrency {
+    /**
+     * Строка счёта изменяется одним запросом, параллельные изменения ждут
+     * блокировки строки
+     */
+    PESSIMISTIC,
+    /**
+     * Баланс читается без блокировки и записывается при совпадении версии
+     * счёта, при несовпадении операция повторяется
+     */
+    OPTIMISTIC
+}
@@ -0,0 +1,13 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+public enum BalanceMode {
+    /**
+     * Баланс хранится в счёте и изменяется каждой операцией
+     */
+    IN_PLACE,
+    /**
+     * Операции только добавляются, баланс вычисляется по последнему снимку и
+     * операциям после него
+     */
+    LEDGER
+}
@@ -0,0 +1,173 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * Денежная сумма в копейках (два знака после запятой). Арифметика с
+ * проверкой переполнения: при выходе за пределы {@code long} выбрасывается
+ * {@link ArithmeticException}. В JSON записывается десятичным числом.
+ *
+ * @param minorUnits сумма в копейках
+ */
+@Schema(type = SchemaType.NUMBER, example = "10.50")
+@JsonSerialize(using = Money.Serializer.class)
+@JsonDeserialize(using = Money.Deserializer.class)
+public record Money(long minorUnits) implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+
+    public static final Money ZERO = new Money(0);
+
+    private static final int MINOR_UNITS_PER_UNIT = 100;
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    public static Money ofMajor(long units) {
+        return ofMinor(Math.multiplyExact(units, MINOR_UNITS_PER_UNIT));
+    }
+
+    /**
+     * @param amount сумма не более чем с двумя знаками после запятой
+     * @throws ArithmeticException если знаков больше или сумма не помещается в
+     *                             {@code long}
+     */
+    public static Money of(BigDecimal amount) {
+        return ofMinor(amount.movePointRight(SCALE).longValueExact());
+    }
+
+    /**
+     * Разбор десятичной записи без создания {@link BigDecimal}; экспоненциальная
+     * запись разбирается через {@link BigDecimal}
+     *
+     * @throws NumberFormatException если запись не является числом
+     * @throws ArithmeticException   если знаков после запятой больше двух или
+     *                               сумма не помещается в {@code long}
+     */
+    public static Money parse(CharSequence text) {
+        final var length = text.length();
+        for (var i = 0; i < length; i++) {
+            // до показателя степени мантисса может иметь лишние знаки или не помещаться в long
+            if (text.charAt(i) == 'e' || text.charAt(i) == 'E') {
+                return of(new BigDecimal(text.toString()));
+            }
+        }
+        var index = 0;
+        var negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            index++;
+        }
+        long minorUnits = 0;
+        var digits = 0;
+        var fractionDigits = -1;
+        for (; index < length; index++) {
+            final var ch = text.charAt(index);
+            if (ch == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            if (ch < '0' || ch > '9') {
+                throw new NumberFormatException("invalid amount: " + text);
+            }
+            if (fractionDigits >= 0 && ++fractionDigits > SCALE) {
+                if (ch != '0') {
+                    throw new ArithmeticException("amount has more than " + SCALE + " decimal places: " + text);
+                }
+                continue;
+            }
+            minorUnits = Math.addExact(Math.multiplyExact(minorUnits, 10), ch - '0');
+            digits++;
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("invalid amount: " + text);
+        }
+        for (var scale = Math.max(fractionDigits, 0); scale < SCALE; scale++) {
+            minorUnits = Math.multiplyExact(minorUnits, 10);
+        }
+        return ofMinor(negative ? -minorUnits : minorUnits);
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public Money negate() {
+        return ofMinor(Math.negateExact(minorUnits));
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    /**
+     * Десятичная запись с двумя знаками после запятой
+     */
+    @Override
+    public String toString() {
+        final var units = minorUnits / MINOR_UNITS_PER_UNIT;
+        final var cents = Math.abs(minorUnits % MINOR_UNITS_PER_UNIT);
+        final var result = new StringBuilder(24);
+        if (minorUnits < 0) {
+            result.append('-');
+        }
+        result.append(Math.abs(units)).append('.');
+        if (cents < 10) {
+            result.append('0');
+        }
+        return result.append(cents).toString();
+    }
+
+    public static class Serializer extends JsonSerializer<Money> {
+
+        @Override
+        public void serialize(Money value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeNumber(value.toString());
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<Money> {
+
+        @Override
+        public Money deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            final var token = p.currentToken();
+            if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT
+                    && token != JsonToken.VALUE_STRING) {
+                return (Money) ctxt.handleUnexpectedToken(Money.class, p);
+            }
+            try {
+                return parse(p.getText().trim());
+            } catch (NumberFormatException | ArithmeticException ex) {
+                return (Money) ctxt.handleWeirdStringValue(Money.class, p.getText(), ex.getMessage());
+            }
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package org.auwerk.otus.arch.billingservice.domain;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -14,7 +13,7 @@ public class Operation {
     private UUID accountId;
     private UUID relatedTo;
     private OperationType type;
-    private BigDecimal amount;
+    private Money amount;
     private String comment;
     private LocalDateTime createdAt;
 }
@@ -0,0 +1,13 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class OperationBatchItemResult {
+    private UUID operationId;
+    private String error;
+}
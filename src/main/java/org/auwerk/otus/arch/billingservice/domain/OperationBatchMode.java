@@ -0,0 +1,13 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+public enum OperationBatchMode {
+    /**
+     * Пакет исполняется целиком, либо не исполняется вовсе
+     */
+    ALL_OR_NOTHING,
+    /**
+     * Операции, для которых недостаточно средств, пропускаются, остальные
+     * исполняются
+     */
+    PER_ITEM
+}
@@ -0,0 +1,46 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+import org.auwerk.otus.arch.billingservice.exception.InvalidOperationCursorException;
+
+import lombok.Value;
+
+/**
+ * Позиция в истории операций счёта, упорядоченной по (created_at, id)
+ */
+@Value
+public class OperationCursor {
+
+    private static final String SEPARATOR = "|";
+
+    LocalDateTime createdAt;
+    UUID id;
+
+    public static OperationCursor of(Operation operation) {
+        return new OperationCursor(operation.getCreatedAt(), operation.getId());
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OperationCursor decode(String token) {
+        try {
+            final var value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            final var separatorIndex = value.indexOf(SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new InvalidOperationCursorException(token);
+            }
+            return new OperationCursor(LocalDateTime.parse(value.substring(0, separatorIndex)),
+                    UUID.fromString(value.substring(separatorIndex + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new InvalidOperationCursorException(token);
+        }
+    }
+}
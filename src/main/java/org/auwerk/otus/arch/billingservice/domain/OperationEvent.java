@@ -0,0 +1,25 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Событие об операции для внешних потребителей. Номер события растёт в
+ * порядке фиксации операций одного счёта.
+ */
+@Data
+@Builder
+public class OperationEvent {
+    private long id;
+    private OperationEventType eventType;
+    private UUID accountId;
+    private UUID operationId;
+    private UUID relatedTo;
+    private OperationType operationType;
+    private Money amount;
+    private String comment;
+    private LocalDateTime createdAt;
+}
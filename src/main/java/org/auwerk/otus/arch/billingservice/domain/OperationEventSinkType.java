@@ -0,0 +1,16 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+public enum OperationEventSinkType {
+    /**
+     * Строки JSON в локальном файле
+     */
+    LOG,
+    /**
+     * Список в памяти, для тестов
+     */
+    MEMORY,
+    /**
+     * Пакет JSON отправляется POST-запросом на HTTP-шлюз брокера сообщений
+     */
+    HTTP
+}
@@ -0,0 +1,12 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+public enum OperationEventType {
+    /**
+     * Исполнена операция
+     */
+    OPERATION_EXECUTED,
+    /**
+     * Операция отменена зеркальной операцией
+     */
+    OPERATION_CANCELED
+}
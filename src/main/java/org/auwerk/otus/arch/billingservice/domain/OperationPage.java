@@ -0,0 +1,13 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class OperationPage {
+    private List<Operation> operations;
+    private OperationCursor nextCursor;
+}
@@ -0,0 +1,12 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+public enum ServiceExecutor {
+    /**
+     * Пул рабочих потоков Quarkus
+     */
+    WORKER,
+    /**
+     * Виртуальный поток на каждый вызов (Java 21+)
+     */
+    VIRTUAL
+}
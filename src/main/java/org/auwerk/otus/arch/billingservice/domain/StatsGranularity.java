@@ -0,0 +1,25 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+import java.util.Locale;
+
+import org.auwerk.otus.arch.billingservice.exception.InvalidStatsRequestException;
+
+/**
+ * Шаг группировки итогов по счёту
+ */
+public enum StatsGranularity {
+    DAY,
+    /**
+     * Неделя, начинающаяся с понедельника
+     */
+    WEEK,
+    MONTH;
+
+    public static StatsGranularity of(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidStatsRequestException("invalid granularity, granularity=" + value);
+        }
+    }
+}
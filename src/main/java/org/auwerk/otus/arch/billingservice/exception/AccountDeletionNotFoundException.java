@@ -0,0 +1,16 @@
+package org.auwerk.otus.arch.billingservice.exception;
+
+import java.util.UUID;
+
+import lombok.Getter;
+
+public class AccountDeletionNotFoundException extends RuntimeException {
+
+    @Getter
+    private final UUID deletionId;
+
+    public AccountDeletionNotFoundException(UUID deletionId) {
+        super("account deletion not found, id=" + deletionId);
+        this.deletionId = deletionId;
+    }
+}
@@ -0,0 +1,16 @@
+package org.auwerk.otus.arch.billingservice.exception;
+
+import java.util.UUID;
+
+import lombok.Getter;
+
+public class AccountQueueFullException extends RuntimeException {
+
+    @Getter
+    private final UUID accountId;
+
+    public AccountQueueFullException(UUID accountId) {
+        super("too many pending operations, account id=" + accountId);
+        this.accountId = accountId;
+    }
+}
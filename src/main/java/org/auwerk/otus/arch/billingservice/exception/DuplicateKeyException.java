@@ -0,0 +1,14 @@
+package org.auwerk.otus.arch.billingservice.exception;
+
+import lombok.Getter;
+
+public class DuplicateKeyException extends DaoException {
+
+    @Getter
+    private final String constraint;
+
+    public DuplicateKeyException(String constraint) {
+        super("duplicate key, constraint=" + constraint);
+        this.constraint = constraint;
+    }
+}
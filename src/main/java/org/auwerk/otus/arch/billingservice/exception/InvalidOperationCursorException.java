@@ -0,0 +1,14 @@
+package org.auwerk.otus.arch.billingservice.exception;
+
+import lombok.Getter;
+
+public class InvalidOperationCursorException extends RuntimeException {
+
+    @Getter
+    private final String cursor;
+
+    public InvalidOperationCursorException(String cursor) {
+        super("invalid operation cursor, cursor=" + cursor);
+        this.cursor = cursor;
+    }
+}
@@ -0,0 +1,8 @@
+package org.auwerk.otus.arch.billingservice.exception;
+
+public class InvalidStatsRequestException extends RuntimeException {
+
+    public InvalidStatsRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package org.auwerk.otus.arch.billingservice.exception;
+
+import java.util.UUID;
+
+import lombok.Getter;
+
+public class VersionConflictException extends DaoException {
+
+    @Getter
+    private final UUID accountId;
+
+    public VersionConflictException(UUID accountId) {
+        super("account was modified concurrently, id=" + accountId);
+        this.accountId = accountId;
+    }
+}
@@ -0,0 +1,107 @@
+package org.auwerk.otus.arch.billingservice.job;
+
+import java.time.LocalDateTime;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.auwerk.otus.arch.billingservice.config.DeletionConfig;
+import org.auwerk.otus.arch.billingservice.dao.AccountDao;
+import org.auwerk.otus.arch.billingservice.dao.AccountDeletionDao;
+import org.auwerk.otus.arch.billingservice.dao.OperationDao;
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletion;
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletionStatus;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.jboss.logging.Logger;
+
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.Scheduled.ConcurrentExecution;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.pgclient.PgPool;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Фоновое удаление счетов, помеченных удалёнными: операции удаляются порциями
+ * в отдельных транзакциях с паузами, последней порцией удаляется сам счёт.
+ * Каждая порция блокирует строку задачи; задачу, заблокированную другим
+ * экземпляром, этот экземпляр пропускает до следующего запуска.
+ * Задача, не завершившаяся за {@code maxAttempts} запусков, переводится в
+ * статус FAILED и больше не повторяется.
+ */
+@ApplicationScoped
+@RequiredArgsConstructor
+public class AccountPurgeJob {
+
+    private static final Logger LOG = Logger.getLogger(AccountPurgeJob.class);
+
+    /**
+     * Признак порции, не выполненной из-за блокировки задачи другим экземпляром
+     */
+    private static final int SKIPPED = -1;
+
+    private final PgPool pool;
+    private final PoolMetrics poolMetrics;
+    private final AccountDao accountDao;
+    private final OperationDao operationDao;
+    private final AccountDeletionDao accountDeletionDao;
+    private final DeletionConfig deletionConfig;
+
+    @Scheduled(every = "{otus.deletion.purge-interval}", concurrentExecution = ConcurrentExecution.SKIP)
+    void purgeDeletedAccounts() throws InterruptedException {
+        for (final var deletion : poolMetrics.withClient(pool,
+                client -> accountDeletionDao.findPending(client, deletionConfig.accountsPerRun()))
+                .await().indefinitely()) {
+            try {
+                purge(deletion);
+            } catch (RuntimeException ex) {
+                LOG.errorf(ex, "failed to purge account %s, deletion id=%s", deletion.getAccountId(),
+                        deletion.getId());
+                recordFailure(deletion);
+            }
+        }
+    }
+
+    private void purge(AccountDeletion deletion) throws InterruptedException {
+        final var chunkSize = deletionConfig.chunkSize();
+        int deleted;
+        do {
+            deleted = poolMetrics.withTransaction(pool, conn -> accountDeletionDao
+                    .tryLockPending(conn, deletion.getId())
+                    .flatMap(locked -> !locked ? Uni.createFrom().item(SKIPPED) : operationDao
+                            .deleteByAccountId(conn, deletion.getAccountId(), chunkSize)
+                            .call(count -> accountDeletionDao.addPurgedOperations(conn, deletion.getId(), count))
+                            .call(count -> {
+                                if (count == chunkSize) {
+                                    return Uni.createFrom().voidItem();
+                                }
+                                return accountDao.deleteById(conn, deletion.getAccountId())
+                                        .chain(() -> accountDeletionDao.complete(conn, deletion.getId(),
+                                                LocalDateTime.now()));
+                            })))
+                    .await().indefinitely();
+            if (deleted == SKIPPED) {
+                LOG.debugf("account %s is purged by another instance or no longer pending, deletion id=%s",
+                        deletion.getAccountId(), deletion.getId());
+                return;
+            }
+            if (deleted == chunkSize) {
+                Thread.sleep(deletionConfig.chunkPause().toMillis());
+            }
+        } while (deleted == chunkSize);
+        LOG.infof("purged account %s, deletion id=%s", deletion.getAccountId(), deletion.getId());
+    }
+
+    private void recordFailure(AccountDeletion deletion) {
+        try {
+            final var status = poolMetrics.withClient(pool, client -> accountDeletionDao.recordFailure(client,
+                    deletion.getId(), deletionConfig.maxAttempts()))
+                    .await().indefinitely();
+            if (status == AccountDeletionStatus.FAILED) {
+                LOG.errorf("gave up purging account %s after %d attempts, deletion id=%s",
+                        deletion.getAccountId(), deletionConfig.maxAttempts(), deletion.getId());
+            }
+        } catch (RuntimeException ex) {
+            // попытка не учтена, задача продолжится при следующем запуске
+            LOG.errorf(ex, "failed to record purge failure, deletion id=%s", deletion.getId());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.auwerk.otus.arch.billingservice.job;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.auwerk.otus.arch.billingservice.dao.AccountTotalsDao;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.jboss.logging.Logger;
+
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.Scheduled.ConcurrentExecution;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.pgclient.PgPool;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Фоновый пересчёт суточных итогов операций. Вставка операций не обновляет
+ * итоги, поэтому параллельные операции одного счёта не конкурируют за строку
+ * итогов. Итоги пересчитывает один экземпляр сервиса.
+ */
+@ApplicationScoped
+@RequiredArgsConstructor
+public class AccountTotalsRollupJob {
+
+    private static final Logger LOG = Logger.getLogger(AccountTotalsRollupJob.class);
+    private static final int SKIPPED = -1;
+
+    private final PgPool pool;
+    private final PoolMetrics poolMetrics;
+    private final AccountTotalsDao accountTotalsDao;
+
+    @Scheduled(every = "{otus.stats.rollup-interval}", concurrentExecution = ConcurrentExecution.SKIP)
+    void rollUpTotals() {
+        final int days;
+        try {
+            days = poolMetrics.withTransaction(pool, conn -> accountTotalsDao.tryLockRollup(conn)
+                    .flatMap(locked -> locked ? accountTotalsDao.rollUp(conn) : Uni.createFrom().item(SKIPPED)))
+                    .await().indefinitely();
+        } catch (RuntimeException ex) {
+            // граница не сдвинута, дни будут пересчитаны при следующем запуске
+            LOG.error("failed to roll up daily account totals", ex);
+            return;
+        }
+        if (days == SKIPPED) {
+            LOG.debug("daily account totals are rolled up by another instance");
+            return;
+        }
+        LOG.debugf("rolled up %d daily account totals", days);
+    }
+}
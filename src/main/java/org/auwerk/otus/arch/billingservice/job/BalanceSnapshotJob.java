@@ -0,0 +1,52 @@
+package org.auwerk.otus.arch.billingservice.job;
+
+import java.util.UUID;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.auwerk.otus.arch.billingservice.config.BalanceConfig;
+import org.auwerk.otus.arch.billingservice.dao.LedgerDao;
+import org.auwerk.otus.arch.billingservice.domain.BalanceMode;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.jboss.logging.Logger;
+
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.Scheduled.ConcurrentExecution;
+import io.vertx.mutiny.pgclient.PgPool;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Фоновое обновление снимков баланса в режиме журнала, чтобы вычисление
+ * баланса суммировало только недавние операции
+ */
+@ApplicationScoped
+@RequiredArgsConstructor
+public class BalanceSnapshotJob {
+
+    private static final Logger LOG = Logger.getLogger(BalanceSnapshotJob.class);
+
+    private final PgPool pool;
+    private final PoolMetrics poolMetrics;
+    private final LedgerDao ledgerDao;
+    private final BalanceConfig balanceConfig;
+
+    @Scheduled(every = "{otus.balance.snapshot-interval}", concurrentExecution = ConcurrentExecution.SKIP)
+    void rollSnapshots() {
+        if (balanceConfig.mode() != BalanceMode.LEDGER) {
+            return;
+        }
+        final var batchSize = balanceConfig.snapshotBatchSize();
+        var batches = 0;
+        UUID lastAccountId = null;
+        do {
+            final var afterAccountId = lastAccountId;
+            lastAccountId = poolMetrics.withClient(pool,
+                    client -> ledgerDao.rollSnapshots(client, afterAccountId, batchSize))
+                    .await().indefinitely();
+            if (lastAccountId != null) {
+                batches++;
+            }
+        } while (lastAccountId != null);
+        LOG.debugf("rolled balance snapshots, %d account batches", batches);
+    }
+}
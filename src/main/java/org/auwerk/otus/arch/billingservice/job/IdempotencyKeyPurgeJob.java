@@ -0,0 +1,47 @@
+package org.auwerk.otus.arch.billingservice.job;
+
+import java.time.LocalDateTime;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.auwerk.otus.arch.billingservice.config.IdempotencyConfig;
+import org.auwerk.otus.arch.billingservice.dao.IdempotencyKeyDao;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.jboss.logging.Logger;
+
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.Scheduled.ConcurrentExecution;
+import io.vertx.mutiny.pgclient.PgPool;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Фоновая очистка истёкших ключей идемпотентности порциями, чтобы не держать
+ * длинных транзакций и блокировок
+ */
+@ApplicationScoped
+@RequiredArgsConstructor
+public class IdempotencyKeyPurgeJob {
+
+    private static final Logger LOG = Logger.getLogger(IdempotencyKeyPurgeJob.class);
+
+    private final PgPool pool;
+    private final PoolMetrics poolMetrics;
+    private final IdempotencyKeyDao idempotencyKeyDao;
+    private final IdempotencyConfig idempotencyConfig;
+
+    @Scheduled(every = "{otus.idempotency.purge-interval}", concurrentExecution = ConcurrentExecution.SKIP)
+    void purgeExpiredKeys() {
+        final var now = LocalDateTime.now();
+        final var batchSize = idempotencyConfig.purgeBatchSize();
+        var total = 0;
+        int deleted;
+        do {
+            deleted = poolMetrics.withClient(pool, client -> idempotencyKeyDao.deleteExpired(client, now, batchSize))
+                    .await().indefinitely();
+            total += deleted;
+        } while (deleted == batchSize);
+        if (total > 0) {
+            LOG.debugf("purged %d expired idempotency keys", total);
+        }
+    }
+}
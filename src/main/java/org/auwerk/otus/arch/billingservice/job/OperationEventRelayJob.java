@@ -0,0 +1,82 @@
+package org.auwerk.otus.arch.billingservice.job;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+
+import org.auwerk.otus.arch.billingservice.config.OutboxConfig;
+import org.auwerk.otus.arch.billingservice.dao.OperationEventDao;
+import org.auwerk.otus.arch.billingservice.domain.OperationEvent;
+import org.auwerk.otus.arch.billingservice.domain.OperationEventSinkType;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.auwerk.otus.arch.billingservice.service.impl.OperationEventSink;
+import org.jboss.logging.Logger;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.Scheduled.ConcurrentExecution;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.pgclient.PgPool;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Публикация событий об операциях из таблицы operation_events. Пакет удаляется
+ * в той же транзакции после подтверждения получателем, поэтому при сбое он
+ * будет опубликован повторно (at-least-once). События публикует один экземпляр
+ * сервиса по возрастанию идентификатора транзакции, что сохраняет порядок
+ * операций счёта, изменяющих баланс. Публикация с получателем {@code http}
+ * без адреса не даёт сервису запуститься.
+ */
+@ApplicationScoped
+@RequiredArgsConstructor
+public class OperationEventRelayJob {
+
+    private static final Logger LOG = Logger.getLogger(OperationEventRelayJob.class);
+
+    private final PgPool pool;
+    private final PoolMetrics poolMetrics;
+    private final OperationEventDao operationEventDao;
+    private final OperationEventSink operationEventSink;
+    private final OutboxConfig outboxConfig;
+
+    void onStart(@Observes StartupEvent event) {
+        if (outboxConfig.relayEnabled() && outboxConfig.sink() == OperationEventSinkType.HTTP
+                && outboxConfig.httpUrl().isEmpty()) {
+            throw new IllegalStateException("otus.outbox.http-url is not set");
+        }
+    }
+
+    @Scheduled(every = "{otus.outbox.relay-interval}", concurrentExecution = ConcurrentExecution.SKIP)
+    void relayOperationEvents() {
+        if (!outboxConfig.relayEnabled()) {
+            return;
+        }
+        final var batchSize = outboxConfig.batchSize();
+        int relayed;
+        do {
+            try {
+                relayed = poolMetrics.withTransaction(pool, conn -> operationEventDao.tryLockRelay(conn)
+                        .flatMap(locked -> {
+                            if (!locked) {
+                                return Uni.createFrom().item(0);
+                            }
+                            return operationEventDao.findPending(conn, batchSize)
+                                    .call(events -> {
+                                        if (events.isEmpty()) {
+                                            return Uni.createFrom().voidItem();
+                                        }
+                                        return operationEventSink.publish(events)
+                                                .chain(() -> operationEventDao.deleteByIds(conn, events.stream()
+                                                        .map(OperationEvent::getId)
+                                                        .toList()));
+                                    })
+                                    .map(events -> events.size());
+                        }))
+                        .await().indefinitely();
+            } catch (RuntimeException ex) {
+                // события остаются в таблице и будут опубликованы при следующем запуске
+                LOG.error("failed to relay operation events", ex);
+                return;
+            }
+        } while (relayed == batchSize);
+    }
+}
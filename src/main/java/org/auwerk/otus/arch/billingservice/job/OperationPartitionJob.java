@@ -0,0 +1,58 @@
+package org.auwerk.otus.arch.billingservice.job;
+
+import java.time.YearMonth;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.auwerk.otus.arch.billingservice.config.PartitionConfig;
+import org.auwerk.otus.arch.billingservice.dao.OperationPartitionDao;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.jboss.logging.Logger;
+
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.Scheduled.ConcurrentExecution;
+import io.vertx.mutiny.pgclient.PgPool;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Обслуживание секций таблицы операций: заблаговременное создание секций
+ * будущих месяцев и перенос секций старше срока хранения в архив
+ */
+@ApplicationScoped
+@RequiredArgsConstructor
+public class OperationPartitionJob {
+
+    private static final Logger LOG = Logger.getLogger(OperationPartitionJob.class);
+
+    private final PgPool pool;
+    private final PoolMetrics poolMetrics;
+    private final OperationPartitionDao operationPartitionDao;
+    private final PartitionConfig partitionConfig;
+
+    @Scheduled(every = "{otus.partitions.maintenance-interval}", concurrentExecution = ConcurrentExecution.SKIP)
+    void maintainPartitions() {
+        maintainPartitions(YearMonth.now());
+    }
+
+    void maintainPartitions(YearMonth currentMonth) {
+        for (int i = 0; i <= partitionConfig.premakeMonths(); i++) {
+            final var month = currentMonth.plusMonths(i);
+            poolMetrics.withClient(pool, client -> operationPartitionDao.createPartition(client, month))
+                    .await().indefinitely();
+        }
+        if (partitionConfig.retentionMonths() <= 0) {
+            return;
+        }
+        final var oldestRetained = currentMonth.minusMonths(partitionConfig.retentionMonths());
+        for (final var month : poolMetrics.withClient(pool, operationPartitionDao::findPartitionMonths)
+                .await().indefinitely()) {
+            if (!month.isBefore(oldestRetained)) {
+                break;
+            }
+            poolMetrics.withTransaction(pool, conn -> operationPartitionDao.archivePartition(conn, month,
+                    partitionConfig.archiveSchema(), partitionConfig.lockTimeout()))
+                    .await().indefinitely();
+            LOG.infof("archived operations partition for %s to schema %s", month, partitionConfig.archiveSchema());
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package org.auwerk.otus.arch.billingservice.mapper;
 
+import java.util.List;
+
+import org.auwerk.otus.arch.billingservice.api.dto.AccountDeletionDto;
 import org.auwerk.otus.arch.billingservice.api.dto.AccountDto;
+import org.auwerk.otus.arch.billingservice.api.dto.AccountTotalsDto;
 import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletion;
+import org.auwerk.otus.arch.billingservice.domain.AccountTotals;
 import org.mapstruct.InjectionStrategy;
 import org.mapstruct.Mapper;
 
@@ -9,4 +15,10 @@ import org.mapstruct.Mapper;
 public interface AccountMapper {
 
     AccountDto toDto(Account account);
+
+    AccountDeletionDto toDto(AccountDeletion deletion);
+
+    AccountTotalsDto toDto(AccountTotals totals);
+
+    List<AccountTotalsDto> toTotalsDtos(List<AccountTotals> totals);
 }
@@ -2,9 +2,16 @@ package org.auwerk.otus.arch.billingservice.mapper;
 
 import java.util.List;
 
+import org.auwerk.otus.arch.billingservice.api.dto.ExecuteOperationRequestDto;
+import org.auwerk.otus.arch.billingservice.api.dto.OperationBatchItemResultDto;
 import org.auwerk.otus.arch.billingservice.api.dto.OperationDto;
+import org.auwerk.otus.arch.billingservice.api.dto.OperationPageDto;
 import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationBatchItemResult;
+import org.auwerk.otus.arch.billingservice.domain.OperationCursor;
+import org.auwerk.otus.arch.billingservice.domain.OperationPage;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper(componentModel = "cdi")
 public interface OperationMapper {
@@ -12,4 +19,22 @@ public interface OperationMapper {
     OperationDto toDto(Operation operation);
 
     List<OperationDto> toDtos(List<Operation> operations);
+
+    OperationPageDto toDto(OperationPage page);
+
+    OperationBatchItemResultDto toDto(OperationBatchItemResult result);
+
+    List<OperationBatchItemResultDto> toResultDtos(List<OperationBatchItemResult> results);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "accountId", ignore = true)
+    @Mapping(target = "relatedTo", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    Operation fromDto(ExecuteOperationRequestDto request);
+
+    List<Operation> fromDtos(List<ExecuteOperationRequestDto> requests);
+
+    default String toToken(OperationCursor cursor) {
+        return cursor != null ? cursor.encode() : null;
+    }
 }
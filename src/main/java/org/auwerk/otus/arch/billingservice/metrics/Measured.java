@@ -0,0 +1,27 @@
+package org.auwerk.otus.arch.billingservice.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import javax.enterprise.util.Nonbinding;
+import javax.interceptor.InterceptorBinding;
+
+/**
+ * Замер длительности вызовов методов бина гистограммой с тегами класса, метода
+ * и исхода вызова
+ */
+@Inherited
+@InterceptorBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Measured {
+
+    /**
+     * Имя метрики
+     */
+    @Nonbinding
+    String value();
+}
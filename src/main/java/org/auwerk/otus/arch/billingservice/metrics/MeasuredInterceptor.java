@@ -0,0 +1,78 @@
+package org.auwerk.otus.arch.billingservice.metrics;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Priority;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Для методов, возвращающих {@link Uni} или {@link Multi}, время измеряется от
+ * подписки до завершения потока, а не до возврата из метода. Таймеры
+ * создаются один раз на метод и исход и затем берутся из кэша.
+ */
+@Measured("")
+@Interceptor
+@Priority(Interceptor.Priority.LIBRARY_BEFORE)
+@RequiredArgsConstructor
+public class MeasuredInterceptor {
+
+    private final MeterRegistry registry;
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    @AroundInvoke
+    Object measure(InvocationContext context) throws Exception {
+        final var method = context.getMethod();
+        final var name = method.getDeclaringClass().getAnnotation(Measured.class).value();
+
+        final Object result;
+        final var sample = Timer.start(registry);
+        try {
+            result = context.proceed();
+        } catch (Exception ex) {
+            sample.stop(timer(name, method, Outcome.of(ex)));
+            throw ex;
+        }
+
+        if (result instanceof Uni<?> uni) {
+            return Uni.createFrom().deferred(() -> {
+                final var subscription = Timer.start(registry);
+                return uni.onItemOrFailure()
+                        .invoke((item, failure) -> subscription.stop(timer(name, method, Outcome.of(failure))))
+                        .onCancellation()
+                        .invoke(() -> subscription.stop(timer(name, method, Outcome.CANCELLED)));
+            });
+        }
+        if (result instanceof Multi<?> multi) {
+            return Multi.createFrom().deferred(() -> {
+                final var subscription = Timer.start(registry);
+                return multi.onTermination()
+                        .invoke((failure, cancelled) -> subscription.stop(timer(name, method,
+                                cancelled ? Outcome.CANCELLED : Outcome.of(failure))));
+            });
+        }
+        sample.stop(timer(name, method, Outcome.SUCCESS));
+        return result;
+    }
+
+    private Timer timer(String name, Method method, Outcome outcome) {
+        return timers.computeIfAbsent(new TimerKey(name, method, outcome), key -> Timer.builder(name)
+                .tag("class", method.getDeclaringClass().getSimpleName())
+                .tag("method", method.getName())
+                .tag("outcome", outcome.tag())
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    private record TimerKey(String name, Method method, Outcome outcome) {
+    }
+}
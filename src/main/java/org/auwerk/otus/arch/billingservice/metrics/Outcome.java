@@ -0,0 +1,61 @@
+package org.auwerk.otus.arch.billingservice.metrics;
+
+import org.auwerk.otus.arch.billingservice.exception.AccountAlreadyExistsException;
+import org.auwerk.otus.arch.billingservice.exception.AccountDeletionNotFoundException;
+import org.auwerk.otus.arch.billingservice.exception.AccountNotFoundException;
+import org.auwerk.otus.arch.billingservice.exception.AccountQueueFullException;
+import org.auwerk.otus.arch.billingservice.exception.DuplicateKeyException;
+import org.auwerk.otus.arch.billingservice.exception.InsufficentAccountBalanceException;
+import org.auwerk.otus.arch.billingservice.exception.InvalidOperationCursorException;
+import org.auwerk.otus.arch.billingservice.exception.InvalidStatsRequestException;
+import org.auwerk.otus.arch.billingservice.exception.OperationAlreadyCanceledException;
+import org.auwerk.otus.arch.billingservice.exception.OperationExecutedByDifferentUserException;
+import org.auwerk.otus.arch.billingservice.exception.OperationNotFoundException;
+import org.auwerk.otus.arch.billingservice.exception.VersionConflictException;
+
+/**
+ * Исход вызова, соответствующий ответу, в который его отображают ресурсы
+ */
+public enum Outcome {
+    SUCCESS,
+    INSUFFICIENT_BALANCE,
+    NOT_FOUND,
+    CONFLICT,
+    FORBIDDEN,
+    BAD_REQUEST,
+    THROTTLED,
+    CANCELLED,
+    ERROR;
+
+    public static Outcome of(Throwable failure) {
+        if (failure == null) {
+            return SUCCESS;
+        }
+        if (failure instanceof InsufficentAccountBalanceException) {
+            return INSUFFICIENT_BALANCE;
+        }
+        if (failure instanceof AccountNotFoundException || failure instanceof OperationNotFoundException
+                || failure instanceof AccountDeletionNotFoundException) {
+            return NOT_FOUND;
+        }
+        if (failure instanceof AccountAlreadyExistsException || failure instanceof OperationAlreadyCanceledException
+                || failure instanceof DuplicateKeyException || failure instanceof VersionConflictException) {
+            return CONFLICT;
+        }
+        if (failure instanceof OperationExecutedByDifferentUserException) {
+            return FORBIDDEN;
+        }
+        if (failure instanceof InvalidOperationCursorException || failure instanceof InvalidStatsRequestException
+                || failure instanceof ArithmeticException) {
+            return BAD_REQUEST;
+        }
+        if (failure instanceof AccountQueueFullException) {
+            return THROTTLED;
+        }
+        return ERROR;
+    }
+
+    public String tag() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,225 @@
+package org.auwerk.otus.arch.billingservice.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.Startup;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+
+/**
+ * Метрики пула соединений с БД: ожидание соединения, количество ожидающих
+ * запросов, занятых соединений и открытых транзакций. Учитываются только
+ * соединения, полученные через методы этого класса, поэтому все обращения к
+ * пулу выполняются через них.
+ */
+@Startup
+@ApplicationScoped
+public class PoolMetrics {
+
+    private static final int ACQUIRE_LATENCY_SMOOTHING = 8;
+
+    private static final long ACQUIRE_LATENCY_HALF_LIFE_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private final MeterRegistry registry;
+    private final Timer acquireTimer;
+    private final AtomicInteger waitingRequests = new AtomicInteger();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicInteger activeTransactions = new AtomicInteger();
+    private final AtomicLong acquireLatencyNanos = new AtomicLong();
+    private volatile long acquiredAtNanos = System.nanoTime();
+
+    public PoolMetrics(MeterRegistry registry,
+            @ConfigProperty(name = "otus.postgres.pool.max-size", defaultValue = "20") int maxSize) {
+        this.registry = registry;
+        this.acquireTimer = Timer.builder("billing.pool.acquire")
+                .description("Время ожидания соединения из пула")
+                .publishPercentileHistogram()
+                .register(registry);
+        Gauge.builder("billing.pool.size.max", () -> maxSize)
+                .description("Максимальный размер пула соединений")
+                .register(registry);
+        Gauge.builder("billing.pool.requests.waiting", waitingRequests, AtomicInteger::get)
+                .description("Запросы, ожидающие соединения из пула")
+                .register(registry);
+        Gauge.builder("billing.pool.connections.active", activeConnections, AtomicInteger::get)
+                .description("Соединения, занятые запросами")
+                .register(registry);
+        Gauge.builder("billing.pool.transactions.active", activeTransactions, AtomicInteger::get)
+                .description("Открытые транзакции")
+                .register(registry);
+    }
+
+    /**
+     * Исполнение функции в транзакции с учётом в метриках пула
+     * 
+     * @param pool     пул соединений
+     * @param function функция, исполняемая в транзакции
+     * @return результат функции
+     */
+    public <T> Uni<T> withTransaction(Pool pool, Function<SqlConnection, Uni<T>> function) {
+        return Uni.createFrom().deferred(() -> {
+            final var acquired = new AtomicBoolean();
+            final var sample = Timer.start(registry);
+            waitingRequests.incrementAndGet();
+            return pool.withTransaction(conn -> {
+                acquired.set(true);
+                onAcquired(sample, true);
+                return function.apply(conn);
+            }).onTermination().invoke(() -> onReleased(acquired.get(), true));
+        });
+    }
+
+    /**
+     * Исполнение запросов вне транзакции с учётом в метриках пула. Если клиент
+     * уже является соединением, функция исполняется на нём без учёта.
+     * 
+     * @param client   пул или соединение
+     * @param function функция, исполняющая запросы
+     * @return результат функции
+     */
+    public <T> Uni<T> withClient(SqlClient client, Function<SqlClient, Uni<T>> function) {
+        if (!(client instanceof Pool pool)) {
+            return function.apply(client);
+        }
+        return Uni.createFrom().deferred(() -> {
+            final var acquired = new AtomicBoolean();
+            final var sample = Timer.start(registry);
+            waitingRequests.incrementAndGet();
+            return pool.withConnection(conn -> {
+                acquired.set(true);
+                onAcquired(sample, false);
+                return function.apply(conn);
+            }).onTermination().invoke(() -> onReleased(acquired.get(), false));
+        });
+    }
+
+    /**
+     * Исполнение блокирующей функции в транзакции с учётом в метриках пула.
+     * Вызывается только из рабочего потока, не из event loop.
+     * 
+     * @param pool     пул соединений
+     * @param function функция, исполняемая в транзакции
+     * @return результат функции
+     */
+    public <T> T withTransactionBlocking(Pool pool, Function<SqlConnection, T> function) {
+        final var sample = Timer.start(registry);
+        waitingRequests.incrementAndGet();
+        final SqlConnection conn;
+        try {
+            conn = pool.getConnectionAndAwait();
+        } catch (RuntimeException ex) {
+            onReleased(false, true);
+            throw ex;
+        }
+        onAcquired(sample, true);
+        try {
+            final var tx = conn.beginAndAwait();
+            final T result;
+            try {
+                result = function.apply(conn);
+            } catch (RuntimeException ex) {
+                try {
+                    tx.rollbackAndAwait();
+                } catch (RuntimeException rollbackEx) {
+                    ex.addSuppressed(rollbackEx);
+                }
+                throw ex;
+            }
+            tx.commitAndAwait();
+            return result;
+        } finally {
+            conn.closeAndAwait();
+            onReleased(true, true);
+        }
+    }
+
+    /**
+     * Потоковая обработка на выделенном соединении с учётом в метриках пула.
+     * Соединение закрывается по завершении потока.
+     * 
+     * @param pool     пул соединений
+     * @param function функция, формирующая поток на соединении
+     * @return поток
+     */
+    public <T> Multi<T> withConnection(Pool pool, Function<SqlConnection, Multi<T>> function) {
+        return Multi.createFrom().deferred(() -> {
+            final var acquired = new AtomicBoolean();
+            final var sample = Timer.start(registry);
+            waitingRequests.incrementAndGet();
+            return pool.getConnection()
+                    .onItem()
+                    .transformToMulti(conn -> {
+                        acquired.set(true);
+                        onAcquired(sample, true);
+                        return function.apply(conn)
+                                .onTermination().call(() -> conn.close());
+                    })
+                    .onTermination().invoke(() -> onReleased(acquired.get(), true));
+        });
+    }
+
+    /**
+     * Количество запросов, ожидающих соединения из пула
+     */
+    public int getWaitingRequests() {
+        return waitingRequests.get();
+    }
+
+    /**
+     * Скользящее среднее времени ожидания соединения, с весом последнего
+     * замера 1/{@value #ACQUIRE_LATENCY_SMOOTHING}. Без новых замеров среднее
+     * убывает вдвое каждую секунду, чтобы после всплеска нагрузки оно не
+     * оставалось высоким до следующего получения соединения.
+     */
+    public long getAcquireLatencyNanos() {
+        return decay(acquireLatencyNanos.get(), System.nanoTime() - acquiredAtNanos);
+    }
+
+    static long decay(long average, long elapsedNanos) {
+        if (elapsedNanos <= 0) {
+            return average;
+        }
+        return (long) (average * Math.pow(0.5, (double) elapsedNanos / ACQUIRE_LATENCY_HALF_LIFE_NANOS));
+    }
+
+    private void onAcquired(Timer.Sample sample, boolean transaction) {
+        waitingRequests.decrementAndGet();
+        final var latency = sample.stop(acquireTimer);
+        final var now = System.nanoTime();
+        final var elapsed = now - acquiredAtNanos;
+        acquiredAtNanos = now;
+        acquireLatencyNanos.getAndUpdate(average -> {
+            final var decayed = decay(average, elapsed);
+            return decayed + (latency - decayed) / ACQUIRE_LATENCY_SMOOTHING;
+        });
+        activeConnections.incrementAndGet();
+        if (transaction) {
+            activeTransactions.incrementAndGet();
+        }
+    }
+
+    private void onReleased(boolean acquired, boolean transaction) {
+        if (!acquired) {
+            waitingRequests.decrementAndGet();
+            return;
+        }
+        activeConnections.decrementAndGet();
+        if (transaction) {
+            activeTransactions.decrementAndGet();
+        }
+    }
+}
@@ -1,11 +1,23 @@
 package org.auwerk.otus.arch.billingservice.service;
 
-import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
 
 import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletion;
+import org.auwerk.otus.arch.billingservice.domain.AccountTotals;
+import org.auwerk.otus.arch.billingservice.domain.AccountVersion;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationBatchItemResult;
+import org.auwerk.otus.arch.billingservice.domain.OperationBatchMode;
+import org.auwerk.otus.arch.billingservice.domain.OperationCursor;
+import org.auwerk.otus.arch.billingservice.domain.OperationPage;
 import org.auwerk.otus.arch.billingservice.domain.OperationType;
+import org.auwerk.otus.arch.billingservice.domain.StatsGranularity;
 
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 
 public interface BillingService {
@@ -19,21 +31,68 @@ public interface BillingService {
     Uni<UUID> createUserAccount(String userName);
 
     /**
-     * Удаление лицевого счёта пользователя
+     * Удаление лицевого счёта пользователя: счёт сразу помечается удалённым, а
+     * его операции и сам счёт удаляются в фоне
      * 
      * @param userName имя пользователя, чей счёт удаляется
-     * @return
+     * @return уникальный идентификатор задачи удаления
      */
-    Uni<Void> deleteUserAccount(String userName);
+    Uni<UUID> deleteUserAccount(String userName);
+
+    /**
+     * Получение состояния задачи удаления счёта
+     * 
+     * @param deletionId уникальный идентификатор задачи удаления
+     * @return задача удаления
+     */
+    Uni<AccountDeletion> getAccountDeletion(UUID deletionId);
 
     /**
      * Получение информации о счёте авторизованного пользователя
      * 
-     * @param fetchOperations требуется ли выбрать из БД историю операций по счёту
+     * @param fetchOperations требуется ли выбрать из БД последние операции по счёту
      * @return счёт
      */
     Uni<Account> getUserAccount(boolean fetchOperations);
 
+    /**
+     * Получение версии счёта авторизованного пользователя без выборки самого
+     * счёта, для ответа на условный запрос
+     * 
+     * @return идентификатор и версия счёта, либо {@code null}, если версия не
+     *         ведётся
+     */
+    Uni<AccountVersion> getUserAccountVersion();
+
+    /**
+     * Получение страницы истории операций по счёту авторизованного пользователя,
+     * от новых к старым
+     * 
+     * @param after позиция, после которой начинается страница, либо {@code null}
+     *              для первой страницы
+     * @param limit максимальное количество операций на странице
+     * @return страница операций
+     */
+    Uni<OperationPage> getUserAccountOperations(OperationCursor after, int limit);
+
+    /**
+     * Получение итогов операций по счёту авторизованного пользователя за период
+     * 
+     * @param from        первый день, включительно
+     * @param to          последний день, включительно
+     * @param granularity шаг группировки
+     * @return итоги по периодам, в которых были операции, по возрастанию
+     */
+    Uni<List<AccountTotals>> getUserAccountStats(LocalDate from, LocalDate to, StatsGranularity granularity);
+
+    /**
+     * Потоковая выгрузка всей истории операций по счёту авторизованного
+     * пользователя, от старых к новым
+     * 
+     * @return поток операций
+     */
+    Multi<Operation> streamUserAccountOperations();
+
     /**
      * Исполнение операции со счётом авторизованного пользователя
      * 
@@ -42,7 +101,29 @@ public interface BillingService {
      * @param comment комментарий к операции
      * @return уникальный идентификатор операции
      */
-    Uni<UUID> executeOperation(OperationType type, BigDecimal amount, String comment);
+    Uni<UUID> executeOperation(OperationType type, Money amount, String comment);
+
+    /**
+     * Идемпотентное исполнение операции со счётом авторизованного пользователя:
+     * повторный вызов с тем же ключом возвращает ранее исполненную операцию
+     * 
+     * @param type           тип операции
+     * @param amount         количество
+     * @param comment        комментарий к операции
+     * @param idempotencyKey ключ идемпотентности
+     * @return уникальный идентификатор операции
+     */
+    Uni<UUID> executeOperation(OperationType type, Money amount, String comment, String idempotencyKey);
+
+    /**
+     * Пакетное исполнение операций со счётом авторизованного пользователя в одной
+     * транзакции
+     * 
+     * @param operations операции (тип, количество, комментарий)
+     * @param mode       режим исполнения пакета
+     * @return результаты исполнения в порядке следования операций
+     */
+    Uni<List<OperationBatchItemResult>> executeOperationBatch(List<Operation> operations, OperationBatchMode mode);
 
     /**
      * Отмена операции
@@ -0,0 +1,82 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.auwerk.otus.arch.billingservice.dao.AccountDao;
+import org.auwerk.otus.arch.billingservice.domain.AccountMetadata;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.cache.CaffeineCache;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+
+/**
+ * Read-through кэш атрибутов счёта по имени пользователя. Баланс в кэше не
+ * хранится и всегда читается из БД.
+ * <p>
+ * Кэш локален для экземпляра сервиса: после удаления счёта на другом
+ * экземпляре запись остаётся до истечения TTL, поэтому TTL выбирается в
+ * секундах, а запросы, не нашедшие счёт по id из кэша, выполняются через
+ * {@link #withAccount(SqlClient, String, Function)}.
+ */
+@ApplicationScoped
+public class AccountMetadataCache {
+
+    public static final String CACHE_NAME = "accounts";
+
+    private final Cache cache;
+    private final PoolMetrics poolMetrics;
+    private final AccountDao accountDao;
+
+    public AccountMetadataCache(@CacheName(CACHE_NAME) Cache cache, PoolMetrics poolMetrics, AccountDao accountDao) {
+        this.cache = cache;
+        this.poolMetrics = poolMetrics;
+        this.accountDao = accountDao;
+    }
+
+    public Uni<AccountMetadata> get(SqlClient client, String userName) {
+        final CompletableFuture<AccountMetadata> cached = cache.as(CaffeineCache.class).getIfPresent(userName);
+        if (cached != null) {
+            return Uni.createFrom().completionStage(cached);
+        }
+        return load(client, userName);
+    }
+
+    /**
+     * Исполнение запроса по атрибутам счёта из кэша. Если запрос не нашёл счёт
+     * ({@link NoSuchElementException}), запись перечитывается из БД и запрос
+     * повторяется с новым id счёта.
+     *
+     * @param client   клиент БД
+     * @param userName имя пользователя
+     * @param action   запрос
+     * @return результат запроса
+     */
+    public <T> Uni<T> withAccount(SqlClient client, String userName, Function<AccountMetadata, Uni<T>> action) {
+        return get(client, userName)
+                .flatMap(metadata -> action.apply(metadata)
+                        .onFailure(NoSuchElementException.class)
+                        .recoverWithUni(ex -> invalidate(userName)
+                                .chain(() -> load(client, userName))
+                                .flatMap(reloaded -> reloaded.getId().equals(metadata.getId())
+                                        ? Uni.createFrom().failure(ex)
+                                        : action.apply(reloaded))));
+    }
+
+    public Uni<Void> invalidate(String userName) {
+        return cache.invalidate(userName);
+    }
+
+    private Uni<AccountMetadata> load(SqlClient client, String userName) {
+        return poolMetrics.withClient(client, c -> accountDao.findByUserName(c, userName))
+                .map(AccountMetadata::of)
+                .invoke(metadata -> cache.as(CaffeineCache.class)
+                        .put(userName, CompletableFuture.completedFuture(metadata)));
+    }
+}
@@ -0,0 +1,173 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.auwerk.otus.arch.billingservice.config.DispatcherConfig;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationBatchItemResult;
+import org.auwerk.otus.arch.billingservice.exception.AccountQueueFullException;
+import org.auwerk.otus.arch.billingservice.exception.InsufficentAccountBalanceException;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+
+/**
+ * Последовательное исполнение операций по счёту в процессе. Счета
+ * распределяются по ограниченным очередям; по каждому счёту одновременно
+ * исполняется не более одного пакета, а операции, накопившиеся за время его
+ * исполнения, объединяются в следующий пакет этого счёта. Пакеты разных
+ * счетов одной очереди исполняются независимо. Если пакет из нескольких
+ * операций завершился ошибкой, его операции повторяются по одной, чтобы
+ * ошибка одной операции не отклоняла остальные.
+ */
+@ApplicationScoped
+public class AccountOperationDispatcher {
+
+    private final DispatcherConfig config;
+    private final Stripe[] stripes;
+    private final int maxBatchSize;
+
+    public AccountOperationDispatcher(DispatcherConfig config) {
+        this.config = config;
+        this.stripes = new Stripe[config.stripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(config.queueCapacity());
+        }
+        this.maxBatchSize = config.maxBatchSize();
+    }
+
+    public boolean isEnabled() {
+        return config.enabled();
+    }
+
+    /**
+     * Постановка операции в очередь счёта
+     * 
+     * @param accountId уникальный идентификатор счёта
+     * @param operation операция
+     * @param executor  исполнение пакета операций одного счёта в одной
+     *                  транзакции, результаты в порядке операций
+     * @return уникальный идентификатор операции
+     */
+    public Uni<UUID> submit(UUID accountId, Operation operation,
+            Function<List<Operation>, Uni<List<OperationBatchItemResult>>> executor) {
+        return Uni.createFrom().emitter(emitter -> {
+            final var stripe = stripes[Math.floorMod(accountId.hashCode(), stripes.length)];
+            if (!stripe.offer(new Task(accountId, operation, executor, emitter))) {
+                emitter.fail(new AccountQueueFullException(accountId));
+            }
+        });
+    }
+
+    private final class Stripe {
+
+        private final int capacity;
+        private final Map<UUID, ArrayDeque<Task>> queued = new HashMap<>();
+        private final Set<UUID> executing = new HashSet<>();
+        private int size;
+
+        private Stripe(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private boolean offer(Task task) {
+            final List<Task> batch;
+            synchronized (this) {
+                if (size >= capacity) {
+                    return false;
+                }
+                queued.computeIfAbsent(task.accountId(), id -> new ArrayDeque<>()).add(task);
+                size++;
+                batch = nextBatch(task.accountId());
+            }
+            execute(batch);
+            return true;
+        }
+
+        /**
+         * Выборка следующего пакета счёта, если по счёту не исполняется другой
+         * пакет; вызывается под блокировкой очереди
+         */
+        private List<Task> nextBatch(UUID accountId) {
+            final var accountQueue = queued.get(accountId);
+            if (accountQueue == null || executing.contains(accountId)) {
+                return List.of();
+            }
+            final var batch = new ArrayList<Task>(Math.min(accountQueue.size(), maxBatchSize));
+            while (!accountQueue.isEmpty() && batch.size() < maxBatchSize) {
+                batch.add(accountQueue.poll());
+            }
+            if (accountQueue.isEmpty()) {
+                queued.remove(accountId);
+            }
+            size -= batch.size();
+            executing.add(accountId);
+            return batch;
+        }
+
+        private void execute(List<Task> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            final var accountId = batch.get(0).accountId();
+            AccountOperationDispatcher.execute(batch)
+                    .subscribe()
+                    .with(v -> {
+                        final List<Task> next;
+                        synchronized (this) {
+                            executing.remove(accountId);
+                            next = nextBatch(accountId);
+                        }
+                        execute(next);
+                    });
+        }
+    }
+
+    private static Uni<Void> execute(List<Task> batch) {
+        final var operations = batch.stream().map(Task::operation).toList();
+        return Uni.createFrom().deferred(() -> batch.get(0).executor().apply(operations))
+                .onItemOrFailure()
+                .transformToUni((results, failure) -> {
+                    if (failure == null) {
+                        for (int i = 0; i < batch.size(); i++) {
+                            complete(batch.get(i).emitter(), results.get(i));
+                        }
+                        return Uni.createFrom().voidItem();
+                    }
+                    if (batch.size() == 1) {
+                        batch.get(0).emitter().fail(failure);
+                        return Uni.createFrom().voidItem();
+                    }
+                    // транзакция пакета откатилась целиком: операции повторяются по одной
+                    return Multi.createFrom().iterable(batch)
+                            .onItem().transformToUniAndConcatenate(task -> execute(List.of(task)))
+                            .collect().last();
+                })
+                .onFailure()
+                .recoverWithNull();
+    }
+
+    private static void complete(UniEmitter<? super UUID> emitter, OperationBatchItemResult result) {
+        if (result.getError() != null) {
+            emitter.fail(new InsufficentAccountBalanceException());
+        } else {
+            emitter.complete(result.getOperationId());
+        }
+    }
+
+    private record Task(UUID accountId, Operation operation,
+            Function<List<Operation>, Uni<List<OperationBatchItemResult>>> executor,
+            UniEmitter<? super UUID> emitter) {
+    }
+}
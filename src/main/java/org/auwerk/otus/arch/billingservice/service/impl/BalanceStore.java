@@ -0,0 +1,77 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.AccountVersion;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+
+/**
+ * Способ хранения баланса счёта, см.
+ * {@link org.auwerk.otus.arch.billingservice.domain.BalanceMode}
+ */
+public interface BalanceStore {
+
+    /**
+     * Сохранение операции с изменением баланса счёта пользователя
+     * 
+     * @param client       клиент БД (пул или соединение с открытой транзакцией)
+     * @param userName     имя пользователя, владельца счёта
+     * @param operation    сохраняемая операция
+     * @param balanceDelta изменение баланса (со знаком)
+     * @return уникальный идентификатор операции, либо {@code null}, если баланс
+     *         счёта стал бы отрицательным
+     */
+    Uni<UUID> applyOperation(SqlClient client, String userName, Operation operation, Money balanceDelta);
+
+    /**
+     * Выборка счёта с актуальным балансом и блокировкой до конца транзакции
+     * 
+     * @param client   соединение с открытой транзакцией
+     * @param userName имя пользователя, владельца счёта
+     * @return счёт
+     */
+    Uni<Account> lockAccount(SqlClient client, String userName);
+
+    /**
+     * Сохранение операций счёта, заблокированного {@link #lockAccount}
+     * 
+     * @param client     соединение с открытой транзакцией
+     * @param account    счёт
+     * @param operations операции с заранее присвоенными идентификаторами
+     * @param balance    баланс после операций
+     */
+    Uni<Void> applyOperations(SqlClient client, Account account, List<Operation> operations, Money balance);
+
+    /**
+     * Пакетное сохранение пополнений разных счетов без проверки баланса
+     * 
+     * @param client     соединение с открытой транзакцией
+     * @param operations пополнения с заранее присвоенными идентификаторами
+     */
+    Uni<Void> applyCredits(SqlClient client, List<Operation> operations);
+
+    /**
+     * Заполнение актуального баланса выбранного счёта
+     * 
+     * @param client  клиент БД (пул или соединение)
+     * @param account счёт
+     * @return тот же счёт
+     */
+    Uni<Account> loadBalance(SqlClient client, Account account);
+
+    /**
+     * Выборка версии счёта пользователя, см. {@link Account#getVersion()}
+     * 
+     * @param client   клиент БД (пул или соединение)
+     * @param userName имя пользователя, владельца счёта
+     * @return идентификатор и версия счёта, либо {@code null}, если способ
+     *         хранения баланса версию не ведёт
+     */
+    Uni<AccountVersion> loadVersion(SqlClient client, String userName);
+}
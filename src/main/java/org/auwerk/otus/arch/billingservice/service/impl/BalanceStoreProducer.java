@@ -0,0 +1,30 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Produces;
+
+import org.auwerk.otus.arch.billingservice.config.BalanceConfig;
+import org.auwerk.otus.arch.billingservice.dao.AccountDao;
+import org.auwerk.otus.arch.billingservice.dao.LedgerDao;
+import org.auwerk.otus.arch.billingservice.dao.OperationDao;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@ApplicationScoped
+public class BalanceStoreProducer {
+
+    @Produces
+    @ApplicationScoped
+    BalanceStore balanceStore(BalanceConfig config, PoolMetrics poolMetrics, MeterRegistry registry,
+            AccountDao accountDao, OperationDao operationDao, LedgerDao ledgerDao) {
+        return switch (config.mode()) {
+            case IN_PLACE -> switch (config.concurrency()) {
+                case PESSIMISTIC -> new InPlaceBalanceStore(poolMetrics, accountDao, operationDao);
+                case OPTIMISTIC -> new OptimisticBalanceStore(config.optimisticRetry(), poolMetrics, registry,
+                        accountDao, operationDao);
+            };
+            case LEDGER -> new LedgerBalanceStore(poolMetrics, accountDao, operationDao, ledgerDao);
+        };
+    }
+}
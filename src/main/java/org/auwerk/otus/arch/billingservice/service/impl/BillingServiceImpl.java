@@ -1,137 +1,392 @@
 package org.auwerk.otus.arch.billingservice.service.impl;
 
-import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.UUID;
 
 import javax.enterprise.context.ApplicationScoped;
 
+import org.auwerk.otus.arch.billingservice.config.IdempotencyConfig;
 import org.auwerk.otus.arch.billingservice.dao.AccountDao;
+import org.auwerk.otus.arch.billingservice.dao.AccountDeletionDao;
+import org.auwerk.otus.arch.billingservice.dao.AccountTotalsDao;
+import org.auwerk.otus.arch.billingservice.dao.IdempotencyKeyDao;
 import org.auwerk.otus.arch.billingservice.dao.OperationDao;
 import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletion;
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletionStatus;
+import org.auwerk.otus.arch.billingservice.domain.AccountMetadata;
+import org.auwerk.otus.arch.billingservice.domain.AccountTotals;
+import org.auwerk.otus.arch.billingservice.domain.AccountVersion;
+import org.auwerk.otus.arch.billingservice.domain.Money;
 import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationBatchItemResult;
+import org.auwerk.otus.arch.billingservice.domain.OperationBatchMode;
+import org.auwerk.otus.arch.billingservice.domain.OperationCursor;
+import org.auwerk.otus.arch.billingservice.domain.OperationPage;
 import org.auwerk.otus.arch.billingservice.domain.OperationType;
+import org.auwerk.otus.arch.billingservice.domain.StatsGranularity;
 import org.auwerk.otus.arch.billingservice.exception.AccountAlreadyExistsException;
+import org.auwerk.otus.arch.billingservice.exception.AccountDeletionNotFoundException;
 import org.auwerk.otus.arch.billingservice.exception.AccountNotFoundException;
+import org.auwerk.otus.arch.billingservice.exception.DuplicateKeyException;
 import org.auwerk.otus.arch.billingservice.exception.InsufficentAccountBalanceException;
+import org.auwerk.otus.arch.billingservice.exception.InvalidStatsRequestException;
 import org.auwerk.otus.arch.billingservice.exception.OperationAlreadyCanceledException;
 import org.auwerk.otus.arch.billingservice.exception.OperationExecutedByDifferentUserException;
 import org.auwerk.otus.arch.billingservice.exception.OperationNotFoundException;
+import org.auwerk.otus.arch.billingservice.metrics.Measured;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
 import org.auwerk.otus.arch.billingservice.service.BillingService;
 
 import io.quarkus.security.identity.SecurityIdentity;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.SqlClient;
 import lombok.RequiredArgsConstructor;
 
 @ApplicationScoped
 @RequiredArgsConstructor
+@Measured("billing.service.calls")
 public class BillingServiceImpl implements BillingService {
 
+    protected static final int ACCOUNT_OPERATIONS_LIMIT = 50;
+    protected static final int EXPORT_FETCH_SIZE = 500;
+    protected static final String READ_ONLY_TRANSACTION = "SET TRANSACTION READ ONLY";
+
     private final PgPool pool;
+    private final PoolMetrics poolMetrics;
     private final AccountDao accountDao;
+    private final AccountDeletionDao accountDeletionDao;
+    private final AccountTotalsDao accountTotalsDao;
     private final OperationDao operationDao;
+    private final IdempotencyKeyDao idempotencyKeyDao;
+    private final IdempotencyKeyCache idempotencyKeyCache;
+    private final IdempotencyConfig idempotencyConfig;
+    private final AccountMetadataCache accountMetadataCache;
+    private final BalanceStore balanceStore;
+    private final AccountOperationDispatcher accountOperationDispatcher;
+    private final CreditJournal creditJournal;
     private final SecurityIdentity securityIdentity;
 
     @Override
     public Uni<UUID> createUserAccount(String userName) {
-        return accountDao.findByUserName(pool, userName)
+        return poolMetrics.withClient(pool, client -> accountDao.findByUserName(client, userName)
                 .onItemOrFailure()
                 .transformToUni((account, failure) -> {
                     if (account != null) {
                         throw new AccountAlreadyExistsException();
                     }
-                    return accountDao.insert(pool, userName);
-                });
+                    return accountDao.insert(client, userName);
+                }));
     }
 
     @Override
-    public Uni<Void> deleteUserAccount(String userName) {
-        return pool.withTransaction(conn -> accountDao.findByUserName(pool, userName)
-                .flatMap(account -> operationDao.deleteByAccountId(pool, account.getId())
-                        .chain(v -> accountDao.deleteById(pool, account.getId()))))
+    public Uni<UUID> deleteUserAccount(String userName) {
+        return poolMetrics.withTransaction(pool, conn -> accountDao.findByUserNameForUpdate(conn, userName)
+                .flatMap(account -> {
+                    final var now = LocalDateTime.now();
+                    final var deletion = AccountDeletion.builder()
+                            .id(UUID.randomUUID())
+                            .accountId(account.getId())
+                            .userName(userName)
+                            .accountCreatedAt(account.getCreatedAt())
+                            .status(AccountDeletionStatus.PENDING)
+                            .createdAt(now)
+                            .build();
+                    return accountDao.markDeleted(conn, account.getId(), now)
+                            .chain(() -> accountDeletionDao.insert(conn, deletion))
+                            .replaceWith(deletion.getId());
+                }))
+                .call(() -> accountMetadataCache.invalidate(userName))
                 .onFailure(NoSuchElementException.class)
                 .transform(ex -> new AccountNotFoundException());
     }
 
+    @Override
+    public Uni<AccountDeletion> getAccountDeletion(UUID deletionId) {
+        return poolMetrics.withClient(pool, client -> accountDeletionDao.findById(client, deletionId))
+                .onFailure(NoSuchElementException.class)
+                .transform(ex -> new AccountDeletionNotFoundException(deletionId));
+    }
+
     @Override
     public Uni<Account> getUserAccount(boolean fetchOperations) {
         if (fetchOperations) {
-            return accountDao.findByUserName(pool, getUserName())
-                    .call(account -> operationDao.findByAccountId(pool, account.getId())
-                            .invoke(operations -> account.setOperations(operations)))
+            // операции выбираются после версии, иначе с ETag этой версии мог бы уйти
+            // список без уже учтённой в ней операции
+            final var userName = getUserName();
+            return poolMetrics.withClient(pool, client -> accountMetadataCache
+                    .withAccount(client, userName, metadata -> accountDao.findBalanceById(client, metadata.getId())
+                            .map(metadata::toAccount)
+                            .flatMap(account -> balanceStore.loadBalance(client, account))
+                            .flatMap(account -> fetchOperationPage(client, metadata, null, ACCOUNT_OPERATIONS_LIMIT)
+                                    .map(page -> {
+                                        account.setOperations(page.getOperations());
+                                        return account;
+                                    }))))
                     .onFailure(NoSuchElementException.class)
                     .transform(ex -> new AccountNotFoundException());
         } else {
-            return accountDao.findByUserName(pool, getUserName())
+            final var userName = getUserName();
+            return poolMetrics.withClient(pool, client -> accountDao.findByUserName(client, userName)
+                    .flatMap(account -> balanceStore.loadBalance(client, account)))
                     .onFailure(NoSuchElementException.class)
                     .transform(ex -> new AccountNotFoundException());
         }
     }
 
     @Override
-    public Uni<UUID> executeOperation(OperationType type, BigDecimal amount, String comment) {
-        return pool.withTransaction(conn -> accountDao.findByUserName(pool, getUserName())
+    public Uni<AccountVersion> getUserAccountVersion() {
+        return balanceStore.loadVersion(pool, getUserName())
+                .onFailure(NoSuchElementException.class)
+                .transform(ex -> new AccountNotFoundException());
+    }
+
+    @Override
+    public Uni<OperationPage> getUserAccountOperations(OperationCursor after, int limit) {
+        final var userName = getUserName();
+        return poolMetrics.withClient(pool, client -> accountMetadataCache.get(client, userName)
+                .flatMap(metadata -> fetchOperationPage(client, metadata, after, limit)))
+                .onFailure(NoSuchElementException.class)
+                .transform(ex -> new AccountNotFoundException());
+    }
+
+    @Override
+    public Uni<List<AccountTotals>> getUserAccountStats(LocalDate from, LocalDate to, StatsGranularity granularity) {
+        if (from.isAfter(to)) {
+            return Uni.createFrom().failure(new InvalidStatsRequestException("from is after to"));
+        }
+        final var userName = getUserName();
+        return poolMetrics.withClient(pool, client -> accountMetadataCache.get(client, userName)
+                .flatMap(metadata -> accountTotalsDao.findByAccountId(client, metadata.getId(), from, to,
+                        granularity)))
+                .onFailure(NoSuchElementException.class)
+                .transform(ex -> new AccountNotFoundException());
+    }
+
+    @Override
+    public Multi<Operation> streamUserAccountOperations() {
+        return accountMetadataCache.get(pool, getUserName())
                 .onFailure(NoSuchElementException.class)
                 .transform(ex -> new AccountNotFoundException())
-                .flatMap(account -> doExecuteOperation(account, Optional.empty(), type, amount, comment)));
+                .onItem()
+                .transformToMulti(metadata -> poolMetrics.withConnection(pool, conn -> conn.begin()
+                        .call(() -> conn.query(READ_ONLY_TRANSACTION).execute())
+                        .onItem()
+                        .transformToMulti(tx -> operationDao
+                                .streamByAccountId(conn, metadata.getId(), metadata.getCreatedAt(),
+                                        EXPORT_FETCH_SIZE)
+                                .onTermination().call(() -> tx.rollback()))));
+    }
+
+    @Override
+    public Uni<UUID> executeOperation(OperationType type, Money amount, String comment) {
+        final var userName = getUserName();
+        final Uni<UUID> execution;
+        // пополнения без проверки баланса допустимы, только пока сумма положительна
+        if (type == OperationType.CREDIT && amount.signum() > 0 && creditJournal.isEnabled()) {
+            execution = accountMetadataCache.get(pool, userName)
+                    .flatMap(metadata -> creditJournal.append(metadata.getId(), amount, comment))
+                    .onItem().ifNull()
+                    .switchTo(() -> dispatchOperation(userName, type, amount, comment));
+        } else {
+            execution = dispatchOperation(userName, type, amount, comment);
+        }
+        return execution
+                .onFailure(NoSuchElementException.class)
+                .transform(ex -> new AccountNotFoundException());
+    }
+
+    @Override
+    public Uni<UUID> executeOperation(OperationType type, Money amount, String comment,
+            String idempotencyKey) {
+        final var userName = getUserName();
+        final var now = LocalDateTime.now();
+        final var cachedOperationId = idempotencyKeyCache.get(userName, idempotencyKey, now);
+        if (cachedOperationId != null) {
+            return Uni.createFrom().item(cachedOperationId);
+        }
+        final var expiresAt = now.plus(idempotencyConfig.ttl());
+        return poolMetrics.withClient(pool, client -> idempotencyKeyDao.findOperationId(client, userName,
+                idempotencyKey, now))
+                .onItem().ifNull()
+                .switchTo(() -> poolMetrics.withTransaction(pool, conn -> doExecuteOperation(conn, userName,
+                        Optional.empty(), type, amount, comment)
+                        .call(operationId -> idempotencyKeyDao.insert(conn, userName, idempotencyKey, operationId,
+                                expiresAt)))
+                        .invoke(operationId -> idempotencyKeyCache.put(userName, idempotencyKey, operationId,
+                                expiresAt))
+                        .onFailure(DuplicateKeyException.class)
+                        .recoverWithUni(() -> poolMetrics.withClient(pool, client -> idempotencyKeyDao
+                                .findOperationId(client, userName, idempotencyKey, now))))
+                .onFailure(NoSuchElementException.class)
+                .transform(ex -> new AccountNotFoundException());
+    }
+
+    @Override
+    public Uni<List<OperationBatchItemResult>> executeOperationBatch(List<Operation> operations,
+            OperationBatchMode mode) {
+        final var userName = getUserName();
+        return poolMetrics.withTransaction(pool, conn -> applyOperationBatch(conn, userName, operations, mode))
+                .onFailure(NoSuchElementException.class)
+                .transform(ex -> new AccountNotFoundException());
     }
 
     @Override
     public Uni<UUID> cancelOperation(UUID operationId, String comment) {
-        return pool.withTransaction(conn -> operationDao.findById(pool, operationId)
-                .call(operation -> operationDao.countByRelatedTo(pool, operation.getId())
-                        .invoke(cnt -> {
-                            if (cnt > 0) {
-                                throw new OperationAlreadyCanceledException(operation.getId());
-                            }
-                        }))
-                .flatMap(operation -> accountDao.findById(pool, operation.getAccountId())
+        // отмена проверяется до изменения баланса: иначе повторная отмена пополнения
+        // при недостаточном балансе завершается ошибкой баланса, а не конфликтом
+        return poolMetrics.withTransaction(pool, conn -> operationDao.findByIdForUpdate(conn, operationId)
+                .flatMap(operation -> accountDao.findById(conn, operation.getAccountId())
                         .flatMap(account -> {
                             if (!getUserName().equals(account.getUserName())) {
                                 throw new OperationExecutedByDifferentUserException(operation.getId());
                             }
-                            return switch (operation.getType()) {
-                                case CREDIT -> doExecuteOperation(account, Optional.of(operation),
-                                        OperationType.WITHDRAW, operation.getAmount(), comment);
-                                case WITHDRAW ->
-                                    doExecuteOperation(account, Optional.of(operation), OperationType.CREDIT,
-                                            operation.getAmount(), comment);
-                            };
+                            return operationDao.isCanceled(conn, operation.getId())
+                                    .flatMap(canceled -> {
+                                        if (canceled) {
+                                            throw new OperationAlreadyCanceledException(operation.getId());
+                                        }
+                                        return switch (operation.getType()) {
+                                            case CREDIT -> doExecuteOperation(conn, account.getUserName(),
+                                                    Optional.of(operation), OperationType.WITHDRAW,
+                                                    operation.getAmount(), comment);
+                                            case WITHDRAW -> doExecuteOperation(conn, account.getUserName(),
+                                                    Optional.of(operation), OperationType.CREDIT,
+                                                    operation.getAmount(), comment);
+                                        };
+                                    });
                         })
                         .onFailure(NoSuchElementException.class)
-                        .transform(ex -> new AccountNotFoundException(operation.getAccountId())))
+                        .transform(ex -> new AccountNotFoundException(operation.getAccountId()))
+                        .onFailure(ex -> ex instanceof DuplicateKeyException duplicateKey
+                                && OperationDao.RELATED_TO_UNIQUE_CONSTRAINT.equals(duplicateKey.getConstraint()))
+                        .transform(ex -> new OperationAlreadyCanceledException(operation.getId())))
                 .onFailure(NoSuchElementException.class)
                 .transform(ex -> new OperationNotFoundException(operationId)));
     }
 
-    private Uni<UUID> doExecuteOperation(Account account, Optional<Operation> relatedTo, OperationType type,
-            BigDecimal amount, String comment) {
-        final var targetBalance = doCalculations(account.getBalance(), type, amount);
-        if (targetBalance.compareTo(BigDecimal.ZERO) < 0) {
-            throw new InsufficentAccountBalanceException();
+    private Uni<UUID> dispatchOperation(String userName, OperationType type, Money amount, String comment) {
+        if (!accountOperationDispatcher.isEnabled()) {
+            return doExecuteOperation(pool, userName, Optional.empty(), type, amount, comment);
         }
         final var operation = Operation.builder()
                 .type(type)
-                .accountId(account.getId())
+                .amount(amount)
+                .comment(comment)
+                .build();
+        return accountMetadataCache.get(pool, userName)
+                .flatMap(metadata -> accountOperationDispatcher.submit(metadata.getId(), operation,
+                        operations -> executeDispatchedOperations(userName, operations)));
+    }
+
+    /**
+     * Исполнение операций, накопившихся в очереди счёта: одиночная операция
+     * исполняется одним запросом, несколько - одной транзакцией с единственным
+     * изменением баланса
+     */
+    private Uni<List<OperationBatchItemResult>> executeDispatchedOperations(String userName,
+            List<Operation> operations) {
+        if (operations.size() == 1) {
+            final var operation = operations.get(0);
+            return doExecuteOperation(pool, userName, Optional.empty(), operation.getType(), operation.getAmount(),
+                    operation.getComment())
+                    .map(operationId -> List.of(OperationBatchItemResult.builder()
+                            .operationId(operationId)
+                            .build()));
+        }
+        return poolMetrics.withTransaction(pool,
+                conn -> applyOperationBatch(conn, userName, operations, OperationBatchMode.PER_ITEM));
+    }
+
+    private Uni<List<OperationBatchItemResult>> applyOperationBatch(SqlClient client, String userName,
+            List<Operation> operations, OperationBatchMode mode) {
+        return balanceStore.lockAccount(client, userName)
+                .flatMap(account -> {
+                    final List<OperationBatchItemResult> results = new ArrayList<>(operations.size());
+                    final var accepted = new ArrayList<Operation>(operations.size());
+                    var balance = account.getBalance();
+                    for (final var item : operations) {
+                        final var targetBalance = balance.plus(doCalculations(item.getType(), item.getAmount()));
+                        if (targetBalance.signum() < 0) {
+                            if (mode == OperationBatchMode.ALL_OR_NOTHING) {
+                                throw new InsufficentAccountBalanceException();
+                            }
+                            results.add(OperationBatchItemResult.builder()
+                                    .error(new InsufficentAccountBalanceException().getMessage())
+                                    .build());
+                            continue;
+                        }
+                        balance = targetBalance;
+                        final var operation = Operation.builder()
+                                .id(UUID.randomUUID())
+                                .accountId(account.getId())
+                                .type(item.getType())
+                                .amount(item.getAmount())
+                                .comment(item.getComment())
+                                .build();
+                        accepted.add(operation);
+                        results.add(OperationBatchItemResult.builder()
+                                .operationId(operation.getId())
+                                .build());
+                    }
+                    if (accepted.isEmpty()) {
+                        return Uni.createFrom().item(results);
+                    }
+                    final var netBalance = balance;
+                    return balanceStore.applyOperations(client, account, accepted, netBalance)
+                            .replaceWith(results);
+                });
+    }
+
+    private Uni<OperationPage> fetchOperationPage(SqlClient client, AccountMetadata metadata, OperationCursor after,
+            int limit) {
+        return operationDao.findByAccountId(client, metadata.getId(), metadata.getCreatedAt(), after, limit + 1)
+                .map(operations -> toOperationPage(operations, limit));
+    }
+
+    /**
+     * Формирование страницы из операций, выбранных с запасом в одну операцию
+     */
+    static OperationPage toOperationPage(List<Operation> operations, int limit) {
+        if (operations.size() <= limit) {
+            return OperationPage.builder()
+                    .operations(operations)
+                    .build();
+        }
+        final var page = operations.subList(0, limit);
+        return OperationPage.builder()
+                .operations(page)
+                .nextCursor(OperationCursor.of(page.get(limit - 1)))
+                .build();
+    }
+
+    private Uni<UUID> doExecuteOperation(SqlClient client, String userName, Optional<Operation> relatedTo,
+            OperationType type, Money amount, String comment) {
+        final var operation = Operation.builder()
+                .type(type)
                 .relatedTo(relatedTo.map(op -> op.getId()).orElse(null))
                 .amount(amount)
                 .comment(comment)
                 .build();
-        return accountDao
-                .updateBalanceById(pool, account.getId(), targetBalance)
-                .chain(() -> operationDao.insert(pool, operation));
+        return balanceStore.applyOperation(client, userName, operation, doCalculations(type, amount))
+                .onItem().ifNull().failWith(InsufficentAccountBalanceException::new);
     }
 
-    private BigDecimal doCalculations(BigDecimal balance, OperationType operationType, BigDecimal amount) {
+    static Money doCalculations(OperationType operationType, Money amount) {
         switch (operationType) {
             case WITHDRAW:
-                return balance.subtract(amount);
+                return amount.negate();
             case CREDIT:
-                return balance.add(amount);
+                return amount;
             default:
-                return balance;
+                return Money.ZERO;
         }
     }
 
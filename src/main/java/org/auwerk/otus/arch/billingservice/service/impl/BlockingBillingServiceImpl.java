@@ -0,0 +1,268 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import javax.annotation.Priority;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Alternative;
+
+import org.auwerk.otus.arch.billingservice.config.IdempotencyConfig;
+import org.auwerk.otus.arch.billingservice.config.ServiceConfig;
+import org.auwerk.otus.arch.billingservice.dao.AccountDao;
+import org.auwerk.otus.arch.billingservice.dao.IdempotencyKeyDao;
+import org.auwerk.otus.arch.billingservice.dao.OperationDao;
+import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletion;
+import org.auwerk.otus.arch.billingservice.domain.AccountMetadata;
+import org.auwerk.otus.arch.billingservice.domain.AccountTotals;
+import org.auwerk.otus.arch.billingservice.domain.AccountVersion;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationBatchItemResult;
+import org.auwerk.otus.arch.billingservice.domain.OperationBatchMode;
+import org.auwerk.otus.arch.billingservice.domain.OperationCursor;
+import org.auwerk.otus.arch.billingservice.domain.OperationPage;
+import org.auwerk.otus.arch.billingservice.domain.OperationType;
+import org.auwerk.otus.arch.billingservice.domain.StatsGranularity;
+import org.auwerk.otus.arch.billingservice.exception.AccountNotFoundException;
+import org.auwerk.otus.arch.billingservice.exception.DuplicateKeyException;
+import org.auwerk.otus.arch.billingservice.exception.InsufficentAccountBalanceException;
+import org.auwerk.otus.arch.billingservice.metrics.Measured;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.auwerk.otus.arch.billingservice.service.BillingService;
+
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.quarkus.security.identity.SecurityIdentity;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.SqlClient;
+
+/**
+ * Реализация сервиса с блокирующим кодом на рабочих или виртуальных потоках
+ * вместо цепочек Mutiny; включается при сборке с
+ * {@code -Dotus.service.mode=blocking}. Блокирующими написаны горячие пути
+ * (операция, счёт, история операций), остальные вызовы передаются
+ * {@link BillingServiceImpl}. Операции исполняются без диспетчера очередей
+ * счетов: ожидание блокировки счёта занимает поток, а не очередь.
+ * <p>
+ * Экспериментальная: сравнение с реактивной реализацией нагрузочным тестом
+ * ещё не проводилось, выбирать её для развёртывания по нему нельзя.
+ */
+@Alternative
+@Priority(1)
+@ApplicationScoped
+@IfBuildProperty(name = "otus.service.mode", stringValue = "blocking")
+@Measured("billing.service.calls")
+public class BlockingBillingServiceImpl implements BillingService {
+
+    private final BillingServiceImpl reactive;
+    private final PgPool pool;
+    private final PoolMetrics poolMetrics;
+    private final AccountDao accountDao;
+    private final OperationDao operationDao;
+    private final IdempotencyKeyDao idempotencyKeyDao;
+    private final IdempotencyKeyCache idempotencyKeyCache;
+    private final IdempotencyConfig idempotencyConfig;
+    private final AccountMetadataCache accountMetadataCache;
+    private final BalanceStore balanceStore;
+    private final CreditJournal creditJournal;
+    private final SecurityIdentity securityIdentity;
+    private final Executor executor;
+
+    public BlockingBillingServiceImpl(BillingServiceImpl reactive, PgPool pool, PoolMetrics poolMetrics,
+            AccountDao accountDao, OperationDao operationDao, IdempotencyKeyDao idempotencyKeyDao,
+            IdempotencyKeyCache idempotencyKeyCache, IdempotencyConfig idempotencyConfig,
+            AccountMetadataCache accountMetadataCache, BalanceStore balanceStore, CreditJournal creditJournal,
+            SecurityIdentity securityIdentity, ServiceConfig config) {
+        this.reactive = reactive;
+        this.pool = pool;
+        this.poolMetrics = poolMetrics;
+        this.accountDao = accountDao;
+        this.operationDao = operationDao;
+        this.idempotencyKeyDao = idempotencyKeyDao;
+        this.idempotencyKeyCache = idempotencyKeyCache;
+        this.idempotencyConfig = idempotencyConfig;
+        this.accountMetadataCache = accountMetadataCache;
+        this.balanceStore = balanceStore;
+        this.creditJournal = creditJournal;
+        this.securityIdentity = securityIdentity;
+        this.executor = switch (config.executor()) {
+            case WORKER -> Infrastructure.getDefaultWorkerPool();
+            case VIRTUAL -> virtualThreadExecutor();
+        };
+    }
+
+    @Override
+    public Uni<UUID> createUserAccount(String userName) {
+        return reactive.createUserAccount(userName);
+    }
+
+    @Override
+    public Uni<UUID> deleteUserAccount(String userName) {
+        return reactive.deleteUserAccount(userName);
+    }
+
+    @Override
+    public Uni<AccountDeletion> getAccountDeletion(UUID deletionId) {
+        return reactive.getAccountDeletion(deletionId);
+    }
+
+    @Override
+    public Uni<Account> getUserAccount(boolean fetchOperations) {
+        final var userName = getUserName();
+        return blocking(() -> {
+            if (!fetchOperations) {
+                return await(poolMetrics.withClient(pool, client -> accountDao.findByUserName(client, userName)
+                        .flatMap(account -> balanceStore.loadBalance(client, account))));
+            }
+            final var account = await(poolMetrics.withClient(pool, client -> accountMetadataCache.withAccount(client,
+                    userName, metadata -> accountDao.findBalanceById(client, metadata.getId())
+                            .map(metadata::toAccount)
+                            .flatMap(loaded -> balanceStore.loadBalance(client, loaded)))));
+            account.setOperations(fetchOperationPage(AccountMetadata.of(account), null,
+                    BillingServiceImpl.ACCOUNT_OPERATIONS_LIMIT).getOperations());
+            return account;
+        });
+    }
+
+    @Override
+    public Uni<AccountVersion> getUserAccountVersion() {
+        return reactive.getUserAccountVersion();
+    }
+
+    @Override
+    public Uni<OperationPage> getUserAccountOperations(OperationCursor after, int limit) {
+        final var userName = getUserName();
+        return blocking(() -> fetchOperationPage(await(accountMetadataCache.get(pool, userName)), after, limit));
+    }
+
+    @Override
+    public Uni<List<AccountTotals>> getUserAccountStats(LocalDate from, LocalDate to, StatsGranularity granularity) {
+        return reactive.getUserAccountStats(from, to, granularity);
+    }
+
+    @Override
+    public Multi<Operation> streamUserAccountOperations() {
+        return reactive.streamUserAccountOperations();
+    }
+
+    @Override
+    public Uni<UUID> executeOperation(OperationType type, Money amount, String comment) {
+        final var userName = getUserName();
+        return blocking(() -> {
+            if (type == OperationType.CREDIT && amount.signum() > 0 && creditJournal.isEnabled()) {
+                final var metadata = await(accountMetadataCache.get(pool, userName));
+                final var operationId = await(creditJournal.append(metadata.getId(), amount, comment));
+                if (operationId != null) {
+                    return operationId;
+                }
+            }
+            return doExecuteOperation(pool, userName, type, amount, comment);
+        });
+    }
+
+    @Override
+    public Uni<UUID> executeOperation(OperationType type, Money amount, String comment,
+            String idempotencyKey) {
+        final var userName = getUserName();
+        final var now = LocalDateTime.now();
+        final var cachedOperationId = idempotencyKeyCache.get(userName, idempotencyKey, now);
+        if (cachedOperationId != null) {
+            return Uni.createFrom().item(cachedOperationId);
+        }
+        final var expiresAt = now.plus(idempotencyConfig.ttl());
+        return blocking(() -> {
+            final var existingOperationId = await(poolMetrics.withClient(pool,
+                    client -> idempotencyKeyDao.findOperationId(client, userName, idempotencyKey, now)));
+            if (existingOperationId != null) {
+                return existingOperationId;
+            }
+            try {
+                final var operationId = poolMetrics.withTransactionBlocking(pool, conn -> {
+                    final var id = doExecuteOperation(conn, userName, type, amount, comment);
+                    await(idempotencyKeyDao.insert(conn, userName, idempotencyKey, id, expiresAt));
+                    return id;
+                });
+                idempotencyKeyCache.put(userName, idempotencyKey, operationId, expiresAt);
+                return operationId;
+            } catch (DuplicateKeyException ex) {
+                return await(poolMetrics.withClient(pool,
+                        client -> idempotencyKeyDao.findOperationId(client, userName, idempotencyKey, now)));
+            }
+        });
+    }
+
+    @Override
+    public Uni<List<OperationBatchItemResult>> executeOperationBatch(List<Operation> operations,
+            OperationBatchMode mode) {
+        return reactive.executeOperationBatch(operations, mode);
+    }
+
+    @Override
+    public Uni<UUID> cancelOperation(UUID operationId, String comment) {
+        return reactive.cancelOperation(operationId, comment);
+    }
+
+    /**
+     * Исполнение блокирующего кода вне event loop. Имя пользователя должно быть
+     * получено до вызова, в потоке запроса.
+     */
+    private <T> Uni<T> blocking(Supplier<T> supplier) {
+        return Uni.createFrom().item(() -> {
+            try {
+                return supplier.get();
+            } catch (NoSuchElementException ex) {
+                throw new AccountNotFoundException();
+            }
+        }).runSubscriptionOn(executor);
+    }
+
+    private OperationPage fetchOperationPage(AccountMetadata metadata, OperationCursor after, int limit) {
+        return BillingServiceImpl.toOperationPage(await(poolMetrics.withClient(pool, client -> operationDao
+                .findByAccountId(client, metadata.getId(), metadata.getCreatedAt(), after, limit + 1))), limit);
+    }
+
+    private UUID doExecuteOperation(SqlClient client, String userName, OperationType type, Money amount,
+            String comment) {
+        final var operation = Operation.builder()
+                .type(type)
+                .amount(amount)
+                .comment(comment)
+                .build();
+        final var operationId = await(balanceStore.applyOperation(client, userName, operation,
+                BillingServiceImpl.doCalculations(type, amount)));
+        if (operationId == null) {
+            throw new InsufficentAccountBalanceException();
+        }
+        return operationId;
+    }
+
+    private String getUserName() {
+        return securityIdentity.getPrincipal().getName();
+    }
+
+    private static <T> T await(Uni<T> uni) {
+        return uni.await().indefinitely();
+    }
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()} вызывается через
+     * рефлексию: сборка выполняется для Java 17
+     */
+    private static Executor virtualThreadExecutor() {
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("virtual threads require Java 21", ex);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+
+import org.auwerk.otus.arch.billingservice.config.JournalConfig;
+import org.auwerk.otus.arch.billingservice.dao.AccountDao;
+import org.auwerk.otus.arch.billingservice.dao.OperationDao;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationType;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.jboss.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.pgclient.PgException;
+
+/**
+ * Журнал пополнений с групповой фиксацией. Пополнение подтверждается после
+ * записи порции в локальный файл журнала (fsync), а в БД порция сохраняется
+ * следом одним пакетным запросом с изменением баланса по каждому счёту. После
+ * записи в БД файл очищается; при старте несохранённые записи файла
+ * переносятся в БД.
+ * <p>
+ * Записи, которые невозможно сохранить (счёт удалён или нарушено ограничение
+ * целостности), выделяются делением порции и переносятся в отдельный файл
+ * отклонённых записей, чтобы не блокировать сохранение остальных.
+ */
+@ApplicationScoped
+public class CreditJournal {
+
+    private static final Logger LOG = Logger.getLogger(CreditJournal.class);
+
+    /**
+     * Класс кодов SQLSTATE нарушений ограничений целостности
+     */
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+
+    private final JournalConfig config;
+    private final PgPool pool;
+    private final PoolMetrics poolMetrics;
+    private final BalanceStore balanceStore;
+    private final AccountDao accountDao;
+    private final OperationDao operationDao;
+    private final ObjectMapper objectMapper;
+    private final ArrayBlockingQueue<Entry> pending;
+    private final List<Operation> unpersisted = new ArrayList<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private ScheduledExecutorService writer;
+    private FileChannel channel;
+
+    public CreditJournal(JournalConfig config, PgPool pool, PoolMetrics poolMetrics, BalanceStore balanceStore,
+            AccountDao accountDao, OperationDao operationDao, ObjectMapper objectMapper) {
+        this.config = config;
+        this.pool = pool;
+        this.poolMetrics = poolMetrics;
+        this.balanceStore = balanceStore;
+        this.accountDao = accountDao;
+        this.operationDao = operationDao;
+        this.objectMapper = objectMapper;
+        this.pending = new ArrayBlockingQueue<>(config.queueCapacity());
+    }
+
+    void onStart(@Observes StartupEvent event) throws IOException {
+        if (config.enabled()) {
+            start();
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) throws InterruptedException {
+        if (writer != null) {
+            stop();
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.enabled();
+    }
+
+    /**
+     * Перенос в БД записей, оставшихся в файле, и запуск групповой фиксации
+     */
+    public synchronized void start() throws IOException {
+        final var path = Path.of(config.path());
+        if (Files.exists(path)) {
+            replay(path);
+        } else if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "credit-journal"));
+        final var interval = config.flushInterval().toNanos();
+        writer.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Фиксация накопленных записей и остановка
+     */
+    public synchronized void stop() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(1, TimeUnit.MINUTES);
+        flush();
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            LOG.warn("failed to close credit journal", ex);
+        }
+    }
+
+    /**
+     * Добавление пополнения в журнал
+     *
+     * @param accountId уникальный идентификатор счёта
+     * @param amount    сумма пополнения
+     * @param comment   комментарий
+     * @return уникальный идентификатор операции после групповой фиксации, либо
+     *         {@code null}, если журнал переполнен
+     */
+    public Uni<UUID> append(UUID accountId, Money amount, String comment) {
+        return Uni.createFrom().emitter(emitter -> {
+            final var operation = Operation.builder()
+                    .id(UUID.randomUUID())
+                    .accountId(accountId)
+                    .type(OperationType.CREDIT)
+                    .amount(amount)
+                    .comment(comment)
+                    // точность timestamp в БД - микросекунды, иначе поиск сохранённых по дате промахнётся
+                    .createdAt(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS))
+                    .build();
+            if (!pending.offer(new Entry(operation, emitter))) {
+                emitter.complete(null);
+                return;
+            }
+            if (pending.size() >= config.maxBatchSize() && flushRequested.compareAndSet(false, true)) {
+                writer.execute(this::flush);
+            }
+        });
+    }
+
+    private void flush() {
+        flushRequested.set(false);
+        do {
+            final var batch = new ArrayList<Entry>(config.maxBatchSize());
+            // пока БД недоступна, новые записи не подтверждаются: очередь переполнится и
+            // пополнения пойдут напрямую
+            if (unpersisted.size() < config.queueCapacity()) {
+                pending.drainTo(batch, config.maxBatchSize());
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    write(batch);
+                } catch (IOException | UncheckedIOException ex) {
+                    LOG.error("credit journal write failed", ex);
+                    batch.forEach(entry -> entry.emitter().fail(ex));
+                    continue;
+                }
+                for (final var entry : batch) {
+                    unpersisted.add(entry.operation());
+                    entry.emitter().complete(entry.operation().getId());
+                }
+            }
+            if (unpersisted.isEmpty()) {
+                return;
+            }
+            try {
+                persistIsolating(List.copyOf(unpersisted));
+                unpersisted.clear();
+                channel.truncate(0);
+            } catch (Exception ex) {
+                // записи остаются в файле и в памяти, сохранение повторится при следующей фиксации
+                LOG.errorf(ex, "failed to persist %d journaled credits", unpersisted.size());
+                return;
+            }
+        } while (pending.size() >= config.maxBatchSize());
+    }
+
+    private void write(List<Entry> batch) throws IOException {
+        final var lines = new StringBuilder();
+        for (final var entry : batch) {
+            lines.append(serialize(entry.operation())).append('\n');
+        }
+        final var buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        final var size = channel.size();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException ex) {
+            // неподтверждённые записи не должны попасть в БД при переносе файла
+            channel.truncate(size);
+            throw ex;
+        }
+    }
+
+    private void replay(Path path) throws IOException {
+        final var operations = new ArrayList<Operation>();
+        for (final var line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                operations.add(objectMapper.readValue(line, JournalRecord.class).toOperation());
+            } catch (JsonProcessingException ex) {
+                // хвост файла мог остаться недописанным при аварийной остановке
+                LOG.warnf("skipping malformed credit journal record: %s", line);
+            }
+        }
+        if (!operations.isEmpty()) {
+            persistIsolating(operations);
+            LOG.infof("replayed %d credits from journal %s", operations.size(), path);
+        }
+        Files.write(path, new byte[0]);
+    }
+
+    /**
+     * Сохранение записей в БД. Порция, нарушившая ограничение целостности,
+     * делится пополам до выделения записей, которые невозможно сохранить; они
+     * переносятся в файл отклонённых записей. Прочие ошибки (например, БД
+     * недоступна) пробрасываются, и сохранение повторяется целиком.
+     */
+    private void persistIsolating(List<Operation> operations) throws IOException {
+        final List<Operation> rejected;
+        try {
+            rejected = persist(operations).await().indefinitely();
+        } catch (PgException ex) {
+            if (ex.getCode() == null || !ex.getCode().startsWith(INTEGRITY_CONSTRAINT_VIOLATION)) {
+                throw ex;
+            }
+            if (operations.size() == 1) {
+                deadLetter(operations, ex.getErrorMessage());
+                return;
+            }
+            final var half = operations.size() / 2;
+            persistIsolating(operations.subList(0, half));
+            persistIsolating(operations.subList(half, operations.size()));
+            return;
+        }
+        if (!rejected.isEmpty()) {
+            deadLetter(rejected, "account not found or deleted");
+        }
+    }
+
+    /**
+     * Сохранение записей в БД; уже сохранённые пропускаются, поэтому повтор
+     * после сбоя фиксации или при переносе файла безопасен
+     *
+     * @return записи по удалённым счетам, не сохранённые в БД
+     */
+    private Uni<List<Operation>> persist(List<Operation> operations) {
+        final var ids = operations.stream().map(Operation::getId).toList();
+        final var from = operations.stream().map(Operation::getCreatedAt).min(Comparator.naturalOrder()).get();
+        final Set<UUID> accountIds = new HashSet<>();
+        operations.forEach(operation -> accountIds.add(operation.getAccountId()));
+        return poolMetrics.withTransaction(pool, conn -> operationDao.findExistingIds(conn, ids, from)
+                .flatMap(existing -> accountDao.findActiveIds(conn, accountIds)
+                        .flatMap(activeAccountIds -> {
+                            final var missing = new ArrayList<Operation>();
+                            final var rejected = new ArrayList<Operation>();
+                            for (final var operation : operations) {
+                                if (existing.contains(operation.getId())) {
+                                    continue;
+                                }
+                                (activeAccountIds.contains(operation.getAccountId()) ? missing : rejected)
+                                        .add(operation);
+                            }
+                            if (missing.isEmpty()) {
+                                return Uni.createFrom().item(rejected);
+                            }
+                            return balanceStore.applyCredits(conn, missing).replaceWith(rejected);
+                        })));
+    }
+
+    /**
+     * Перенос записей, которые невозможно сохранить, в файл отклонённых записей
+     */
+    private void deadLetter(List<Operation> operations, String reason) throws IOException {
+        final var path = Path.of(config.deadLetterPath());
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        final var lines = new StringBuilder();
+        for (final var operation : operations) {
+            lines.append(serialize(operation)).append('\n');
+        }
+        try (var deadLetters = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            final var buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                deadLetters.write(buffer);
+            }
+            deadLetters.force(false);
+        }
+        LOG.errorf("moved %d journaled credits to %s: %s", operations.size(), path, reason);
+    }
+
+    private String serialize(Operation operation) {
+        try {
+            return objectMapper.writeValueAsString(new JournalRecord(operation.getId(), operation.getAccountId(),
+                    operation.getAmount(), operation.getComment(), operation.getCreatedAt()));
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private record Entry(Operation operation, UniEmitter<? super UUID> emitter) {
+    }
+
+    @RegisterForReflection
+    private record JournalRecord(UUID id, UUID accountId, Money amount, String comment,
+            LocalDateTime createdAt) {
+
+        Operation toOperation() {
+            return Operation.builder()
+                    .id(id)
+                    .accountId(accountId)
+                    .type(OperationType.CREDIT)
+                    .amount(amount)
+                    .comment(comment)
+                    .createdAt(createdAt)
+                    .build();
+        }
+    }
+}
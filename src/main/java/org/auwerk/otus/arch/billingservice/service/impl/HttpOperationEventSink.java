@@ -0,0 +1,53 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+import org.auwerk.otus.arch.billingservice.domain.OperationEvent;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.smallrye.mutiny.Uni;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Пакет событий отправляется массивом JSON на HTTP-шлюз брокера сообщений
+ * (например, REST proxy Kafka); ответ 2xx считается подтверждением
+ */
+@RequiredArgsConstructor
+public class HttpOperationEventSink implements OperationEventSink {
+
+    private final HttpClient client;
+    private final URI uri;
+    private final Duration timeout;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public Uni<Void> publish(List<OperationEvent> events) {
+        final byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(events);
+        } catch (JsonProcessingException ex) {
+            return Uni.createFrom().failure(new UncheckedIOException(ex));
+        }
+        final var request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        return Uni.createFrom()
+                .completionStage(() -> client.sendAsync(request, HttpResponse.BodyHandlers.discarding()))
+                .invoke(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        throw new IllegalStateException("operation event sink responded " + response.statusCode());
+                    }
+                })
+                .replaceWithVoid();
+    }
+}
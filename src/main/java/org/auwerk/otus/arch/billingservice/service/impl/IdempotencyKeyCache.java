@@ -0,0 +1,54 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.auwerk.otus.arch.billingservice.config.IdempotencyConfig;
+
+/**
+ * Ограниченный по размеру LRU-кэш ключей идемпотентности, позволяющий не
+ * обращаться к БД при повторах недавних запросов
+ */
+@ApplicationScoped
+public class IdempotencyKeyCache {
+
+    private final Map<Key, Entry> entries;
+
+    public IdempotencyKeyCache(IdempotencyConfig config) {
+        final var maxSize = config.cacheSize();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public synchronized UUID get(String userName, String idempotencyKey, LocalDateTime now) {
+        final var key = new Key(userName, idempotencyKey);
+        final var entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.expiresAt().isAfter(now)) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.operationId();
+    }
+
+    public synchronized void put(String userName, String idempotencyKey, UUID operationId,
+            LocalDateTime expiresAt) {
+        entries.put(new Key(userName, idempotencyKey), new Entry(operationId, expiresAt));
+    }
+
+    private record Key(String userName, String idempotencyKey) {
+    }
+
+    private record Entry(UUID operationId, LocalDateTime expiresAt) {
+    }
+}
@@ -0,0 +1,30 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.auwerk.otus.arch.billingservice.domain.OperationEvent;
+
+import io.smallrye.mutiny.Uni;
+
+/**
+ * События накапливаются в памяти; для тестов
+ */
+public class InMemoryOperationEventSink implements OperationEventSink {
+
+    private final List<OperationEvent> events = new ArrayList<>();
+
+    @Override
+    public synchronized Uni<Void> publish(List<OperationEvent> events) {
+        this.events.addAll(events);
+        return Uni.createFrom().voidItem();
+    }
+
+    public synchronized List<OperationEvent> getEvents() {
+        return List.copyOf(events);
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,71 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import java.util.List;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.auwerk.otus.arch.billingservice.dao.AccountDao;
+import org.auwerk.otus.arch.billingservice.dao.OperationDao;
+import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.AccountVersion;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Баланс хранится в строке счёта и изменяется вместе с сохранением операции
+ */
+@RequiredArgsConstructor
+public class InPlaceBalanceStore implements BalanceStore {
+
+    private final PoolMetrics poolMetrics;
+    private final AccountDao accountDao;
+    private final OperationDao operationDao;
+
+    @Override
+    public Uni<UUID> applyOperation(SqlClient client, String userName, Operation operation,
+            Money balanceDelta) {
+        return poolMetrics.withClient(client,
+                c -> accountDao.updateBalanceAndInsertOperation(c, userName, operation, balanceDelta));
+    }
+
+    @Override
+    public Uni<Account> lockAccount(SqlClient client, String userName) {
+        return accountDao.findByUserNameForUpdate(client, userName);
+    }
+
+    @Override
+    public Uni<Void> applyOperations(SqlClient client, Account account, List<Operation> operations,
+            Money balance) {
+        // строка счёта блокируется до вставки операций, как и в одиночной операции:
+        // идентификатор транзакции, по которому упорядочены события, выдаётся при этой блокировке
+        return accountDao.updateBalanceById(client, account.getId(), balance, account.getVersion())
+                .chain(() -> operationDao.insertBatch(client, operations));
+    }
+
+    @Override
+    public Uni<Void> applyCredits(SqlClient client, List<Operation> operations) {
+        // строки счетов блокируются в порядке идентификаторов и до вставки
+        // операций, чтобы не образовать цикл ожидания с другими транзакциями
+        final var balanceDeltas = new TreeMap<UUID, Money>();
+        for (final var operation : operations) {
+            balanceDeltas.merge(operation.getAccountId(), operation.getAmount(), Money::plus);
+        }
+        return accountDao.addToBalances(client, balanceDeltas)
+                .chain(() -> operationDao.insertBatch(client, operations));
+    }
+
+    @Override
+    public Uni<Account> loadBalance(SqlClient client, Account account) {
+        return Uni.createFrom().item(account);
+    }
+
+    @Override
+    public Uni<AccountVersion> loadVersion(SqlClient client, String userName) {
+        return poolMetrics.withClient(client, c -> accountDao.findVersionByUserName(c, userName));
+    }
+}
@@ -0,0 +1,85 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.auwerk.otus.arch.billingservice.dao.AccountDao;
+import org.auwerk.otus.arch.billingservice.dao.LedgerDao;
+import org.auwerk.otus.arch.billingservice.dao.OperationDao;
+import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.AccountVersion;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Операции только добавляются, строка счёта не переписывается. Пополнения
+ * сохраняются без блокировок; списания блокируют строку счёта (без создания
+ * новой версии строки), чтобы баланс вычислялся после фиксации предыдущих
+ * списаний.
+ */
+@RequiredArgsConstructor
+public class LedgerBalanceStore implements BalanceStore {
+
+    private final PoolMetrics poolMetrics;
+    private final AccountDao accountDao;
+    private final OperationDao operationDao;
+    private final LedgerDao ledgerDao;
+
+    @Override
+    public Uni<UUID> applyOperation(SqlClient client, String userName, Operation operation,
+            Money balanceDelta) {
+        if (balanceDelta.signum() >= 0) {
+            return poolMetrics.withClient(client, c -> ledgerDao.insertOperation(c, userName, operation));
+        }
+        if (client instanceof Pool pool) {
+            return poolMetrics.withTransaction(pool,
+                    conn -> applyWithdrawal(conn, userName, operation, balanceDelta));
+        }
+        return applyWithdrawal(client, userName, operation, balanceDelta);
+    }
+
+    @Override
+    public Uni<Account> lockAccount(SqlClient client, String userName) {
+        return accountDao.findByUserNameForUpdate(client, userName)
+                .flatMap(account -> loadBalance(client, account));
+    }
+
+    @Override
+    public Uni<Void> applyOperations(SqlClient client, Account account, List<Operation> operations,
+            Money balance) {
+        return operationDao.insertBatch(client, operations);
+    }
+
+    @Override
+    public Uni<Void> applyCredits(SqlClient client, List<Operation> operations) {
+        return operationDao.insertBatch(client, operations);
+    }
+
+    @Override
+    public Uni<Account> loadBalance(SqlClient client, Account account) {
+        return poolMetrics.withClient(client, c -> ledgerDao.getBalance(c, account.getId()))
+                .map(balance -> {
+                    account.setBalance(balance);
+                    // строка счёта не меняется при операциях, её версия ничего не говорит о балансе
+                    account.setVersion(null);
+                    return account;
+                });
+    }
+
+    @Override
+    public Uni<AccountVersion> loadVersion(SqlClient client, String userName) {
+        return Uni.createFrom().nullItem();
+    }
+
+    private Uni<UUID> applyWithdrawal(SqlClient client, String userName, Operation operation,
+            Money balanceDelta) {
+        return accountDao.findIdByUserNameForUpdate(client, userName)
+                .flatMap(accountId -> ledgerDao.insertOperationIfCovered(client, accountId, operation, balanceDelta));
+    }
+}
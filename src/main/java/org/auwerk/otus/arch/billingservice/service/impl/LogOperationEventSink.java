@@ -0,0 +1,59 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.auwerk.otus.arch.billingservice.domain.OperationEvent;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.smallrye.mutiny.Uni;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * События дописываются в файл строками JSON
+ */
+@RequiredArgsConstructor
+public class LogOperationEventSink implements OperationEventSink {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public Uni<Void> publish(List<OperationEvent> events) {
+        return Uni.createFrom().item(() -> {
+            final var lines = new StringBuilder();
+            for (final var event : events) {
+                try {
+                    lines.append(objectMapper.writeValueAsString(event)).append('\n');
+                } catch (JsonProcessingException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            try {
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                try (final var channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    final var buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(false);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return null;
+        }).replaceWithVoid();
+    }
+}
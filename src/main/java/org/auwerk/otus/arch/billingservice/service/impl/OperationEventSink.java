@@ -0,0 +1,23 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import java.util.List;
+
+import org.auwerk.otus.arch.billingservice.domain.OperationEvent;
+
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Получатель событий об операциях, см.
+ * {@link org.auwerk.otus.arch.billingservice.domain.OperationEventSinkType}
+ */
+public interface OperationEventSink {
+
+    /**
+     * Публикация пакета событий. Пакет может быть опубликован повторно, если
+     * после успешной публикации не удалось удалить события из БД.
+     * 
+     * @param events события в порядке публикации
+     * @return завершается после подтверждения получателем
+     */
+    Uni<Void> publish(List<OperationEvent> events);
+}
@@ -0,0 +1,31 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Produces;
+
+import org.auwerk.otus.arch.billingservice.config.OutboxConfig;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@ApplicationScoped
+public class OperationEventSinkProducer {
+
+    @Produces
+    @ApplicationScoped
+    OperationEventSink operationEventSink(OutboxConfig config, ObjectMapper objectMapper) {
+        return switch (config.sink()) {
+            case LOG -> new LogOperationEventSink(Path.of(config.logPath()), objectMapper);
+            case MEMORY -> new InMemoryOperationEventSink();
+            case HTTP -> new HttpOperationEventSink(HttpClient.newBuilder()
+                    .connectTimeout(config.httpTimeout())
+                    .build(),
+                    URI.create(config.httpUrl()
+                            .orElseThrow(() -> new IllegalStateException("otus.outbox.http-url is not set"))),
+                    config.httpTimeout(), objectMapper);
+        };
+    }
+}
@@ -0,0 +1,103 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.auwerk.otus.arch.billingservice.config.BalanceConfig;
+import org.auwerk.otus.arch.billingservice.dao.AccountDao;
+import org.auwerk.otus.arch.billingservice.dao.OperationDao;
+import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.exception.VersionConflictException;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.SqlClient;
+
+/**
+ * Баланс хранится в строке счёта, одиночная операция не блокирует строку на
+ * время вычисления: баланс читается без блокировки и записывается только при
+ * неизменной версии счёта. При несовпадении версии операция повторяется с
+ * паузой со случайным разбросом; после исчерпания повторов выбрасывается
+ * {@link VersionConflictException}. Пакеты операций по-прежнему блокируют
+ * счёт.
+ */
+public class OptimisticBalanceStore extends InPlaceBalanceStore {
+
+    private final BalanceConfig.OptimisticRetry config;
+    private final PoolMetrics poolMetrics;
+    private final AccountDao accountDao;
+    private final OperationDao operationDao;
+    private final Counter attempts;
+    private final Counter conflicts;
+    private final Counter exhausted;
+    private final DistributionSummary retries;
+
+    public OptimisticBalanceStore(BalanceConfig.OptimisticRetry config, PoolMetrics poolMetrics,
+            MeterRegistry registry, AccountDao accountDao, OperationDao operationDao) {
+        super(poolMetrics, accountDao, operationDao);
+        this.config = config;
+        this.poolMetrics = poolMetrics;
+        this.accountDao = accountDao;
+        this.operationDao = operationDao;
+        this.attempts = Counter.builder("billing.balance.optimistic.attempts")
+                .description("Попытки записи баланса по версии счёта")
+                .register(registry);
+        this.conflicts = Counter.builder("billing.balance.optimistic.conflicts")
+                .description("Попытки, не записавшие баланс из-за изменившейся версии счёта")
+                .register(registry);
+        this.exhausted = Counter.builder("billing.balance.optimistic.exhausted")
+                .description("Операции, отклонённые после исчерпания повторов")
+                .register(registry);
+        this.retries = DistributionSummary.builder("billing.balance.optimistic.retries")
+                .description("Количество повторов на операцию")
+                .register(registry);
+    }
+
+    @Override
+    public Uni<UUID> applyOperation(SqlClient client, String userName, Operation operation,
+            Money balanceDelta) {
+        final var conflictCount = new AtomicInteger();
+        return Uni.createFrom().deferred(() -> attempt(client, userName, operation, balanceDelta))
+                .onFailure(VersionConflictException.class)
+                .invoke(() -> {
+                    conflicts.increment();
+                    conflictCount.incrementAndGet();
+                })
+                .onFailure(VersionConflictException.class)
+                .retry()
+                .withBackOff(config.initialBackoff(), config.maxBackoff())
+                .withJitter(config.jitter())
+                .atMost(config.maxRetries())
+                .onFailure(VersionConflictException.class)
+                .invoke(() -> exhausted.increment())
+                .onTermination()
+                .invoke(() -> retries.record(Math.min(conflictCount.get(), config.maxRetries())));
+    }
+
+    private Uni<UUID> attempt(SqlClient client, String userName, Operation operation, Money balanceDelta) {
+        attempts.increment();
+        return poolMetrics.withClient(client, c -> accountDao.findByUserName(c, userName))
+                .flatMap(account -> {
+                    final var balance = account.getBalance().plus(balanceDelta);
+                    if (balance.signum() < 0) {
+                        return Uni.createFrom().nullItem();
+                    }
+                    if (client instanceof Pool pool) {
+                        return poolMetrics.withTransaction(pool, conn -> write(conn, account, operation, balance));
+                    }
+                    return write(client, account, operation, balance);
+                });
+    }
+
+    private Uni<UUID> write(SqlClient client, Account account, Operation operation, Money balance) {
+        operation.setAccountId(account.getId());
+        return accountDao.updateBalanceById(client, account.getId(), balance, account.getVersion())
+                .chain(() -> operationDao.insert(client, operation));
+    }
+}
@@ -2,7 +2,10 @@ package org.auwerk.otus.arch.billingservice.api;
 
 import java.util.UUID;
 
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletion;
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletionStatus;
 import org.auwerk.otus.arch.billingservice.exception.AccountAlreadyExistsException;
+import org.auwerk.otus.arch.billingservice.exception.AccountDeletionNotFoundException;
 import org.auwerk.otus.arch.billingservice.exception.AccountNotFoundException;
 import org.auwerk.otus.arch.billingservice.service.BillingService;
 import org.hamcrest.Matchers;
@@ -66,13 +69,17 @@ public class AccountManagementResourceTest {
 
     @Test
     void deleteUserAccount_success() {
+        final var deletionId = UUID.randomUUID();
+
         Mockito.when(billingService.deleteUserAccount(USERNAME))
-                .thenReturn(Uni.createFrom().voidItem());
+                .thenReturn(Uni.createFrom().item(deletionId));
 
         RestAssured.given()
                 .delete("/{userName}", USERNAME)
                 .then()
-                .statusCode(200);
+                .statusCode(202)
+                .header("Location", Matchers.endsWith("/management/account/deletion/" + deletionId))
+                .body("deletionId", Matchers.is(deletionId.toString()));
     }
 
     @Test
@@ -100,4 +107,40 @@ public class AccountManagementResourceTest {
                 .statusCode(500)
                 .body(Matchers.is(errorMessage));
     }
+
+    @Test
+    void getAccountDeletion_success() {
+        final var deletion = AccountDeletion.builder()
+                .id(UUID.randomUUID())
+                .accountId(UUID.randomUUID())
+                .userName(USERNAME)
+                .status(AccountDeletionStatus.PENDING)
+                .purgedOperations(20000)
+                .build();
+
+        Mockito.when(billingService.getAccountDeletion(deletion.getId()))
+                .thenReturn(Uni.createFrom().item(deletion));
+
+        RestAssured.given()
+                .get("/deletion/{deletionId}", deletion.getId())
+                .then()
+                .statusCode(200)
+                .body("id", Matchers.is(deletion.getId().toString()))
+                .body("status", Matchers.is("PENDING"))
+                .body("purgedOperations", Matchers.is(20000));
+    }
+
+    @Test
+    void getAccountDeletion_notFound() {
+        final var deletionId = UUID.randomUUID();
+
+        Mockito.when(billingService.getAccountDeletion(deletionId))
+                .thenReturn(Uni.createFrom().failure(new AccountDeletionNotFoundException(deletionId)));
+
+        RestAssured.given()
+                .get("/deletion/{deletionId}", deletionId)
+                .then()
+                .statusCode(404)
+                .body(Matchers.is("account deletion not found, id=" + deletionId));
+    }
 }
@@ -1,11 +1,28 @@
 package org.auwerk.otus.arch.billingservice.api;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
+import javax.ws.rs.core.HttpHeaders;
+
 import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.AccountTotals;
+import org.auwerk.otus.arch.billingservice.domain.AccountVersion;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationCursor;
+import org.auwerk.otus.arch.billingservice.domain.OperationPage;
+import org.auwerk.otus.arch.billingservice.domain.OperationType;
+import org.auwerk.otus.arch.billingservice.domain.StatsGranularity;
 import org.auwerk.otus.arch.billingservice.exception.AccountNotFoundException;
 import org.auwerk.otus.arch.billingservice.service.BillingService;
 import org.hamcrest.Matchers;
+import org.jboss.resteasy.reactive.common.util.RestMediaType;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
@@ -13,6 +30,7 @@ import io.quarkus.test.common.http.TestHTTPEndpoint;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
 import io.restassured.RestAssured;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 
 @QuarkusTest
@@ -21,6 +39,12 @@ public class AccountResourceTest extends AbstractAuthenticatedResourceTest {
 
     private static final String USERNAME = "customer";
 
+    private static final UUID ACCOUNT_ID = UUID.randomUUID();
+
+    private static final long VERSION = 7;
+
+    private static final String ETAG = "\"" + ACCOUNT_ID + "-" + VERSION + "\"";
+
     @InjectMock
     BillingService billingService;
 
@@ -28,7 +52,7 @@ public class AccountResourceTest extends AbstractAuthenticatedResourceTest {
     void getUserAccount_success() {
         final var account = buildAccount();
 
-        Mockito.when(billingService.getUserAccount(true))
+        Mockito.when(billingService.getUserAccount(false))
                 .thenReturn(Uni.createFrom().item(account));
 
         RestAssured.given()
@@ -38,9 +62,98 @@ public class AccountResourceTest extends AbstractAuthenticatedResourceTest {
                 .statusCode(200);
     }
 
+    @Test
+    void getUserAccount_etag() {
+        final var account = buildAccount();
+        account.setVersion(VERSION);
+
+        Mockito.when(billingService.getUserAccount(false))
+                .thenReturn(Uni.createFrom().item(account));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .get()
+                .then()
+                .statusCode(200)
+                .header(HttpHeaders.ETAG, ETAG);
+
+        Mockito.verify(billingService, Mockito.never()).getUserAccountVersion();
+    }
+
+    @Test
+    void getUserAccount_notModified() {
+        Mockito.when(billingService.getUserAccountVersion())
+                .thenReturn(Uni.createFrom().item(new AccountVersion(ACCOUNT_ID, VERSION)));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"" + ACCOUNT_ID + "-1\", " + ETAG)
+                .queryParam("fetchOperations", true)
+                .get()
+                .then()
+                .statusCode(304)
+                .header(HttpHeaders.ETAG, ETAG);
+
+        Mockito.verify(billingService, Mockito.never()).getUserAccount(Mockito.anyBoolean());
+    }
+
+    @Test
+    void getUserAccount_modified() {
+        final var account = buildAccount();
+        account.setVersion(VERSION);
+
+        Mockito.when(billingService.getUserAccountVersion())
+                .thenReturn(Uni.createFrom().item(new AccountVersion(ACCOUNT_ID, VERSION)));
+        Mockito.when(billingService.getUserAccount(false))
+                .thenReturn(Uni.createFrom().item(account));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .header(HttpHeaders.IF_NONE_MATCH, "\"" + ACCOUNT_ID + "-" + (VERSION - 1) + "\"")
+                .get()
+                .then()
+                .statusCode(200)
+                .header(HttpHeaders.ETAG, ETAG);
+    }
+
+    @Test
+    void getUserAccount_recreatedAccount() {
+        final var account = buildAccount();
+        account.setVersion(VERSION);
+
+        Mockito.when(billingService.getUserAccountVersion())
+                .thenReturn(Uni.createFrom().item(new AccountVersion(ACCOUNT_ID, VERSION)));
+        Mockito.when(billingService.getUserAccount(false))
+                .thenReturn(Uni.createFrom().item(account));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .header(HttpHeaders.IF_NONE_MATCH, "\"" + UUID.randomUUID() + "-" + VERSION + "\"")
+                .get()
+                .then()
+                .statusCode(200)
+                .header(HttpHeaders.ETAG, ETAG);
+    }
+
+    @Test
+    void getUserAccount_versionNotTracked() {
+        Mockito.when(billingService.getUserAccountVersion())
+                .thenReturn(Uni.createFrom().nullItem());
+        Mockito.when(billingService.getUserAccount(false))
+                .thenReturn(Uni.createFrom().item(buildAccount()));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .header(HttpHeaders.IF_NONE_MATCH, "*")
+                .get()
+                .then()
+                .statusCode(200)
+                .header(HttpHeaders.ETAG, Matchers.nullValue());
+    }
+
     @Test
     void getUserAccount_accountNotFound() {
-        Mockito.when(billingService.getUserAccount(true))
+        Mockito.when(billingService.getUserAccount(false))
                 .thenReturn(Uni.createFrom().failure(new AccountNotFoundException()));
 
         RestAssured.given()
@@ -55,7 +168,7 @@ public class AccountResourceTest extends AbstractAuthenticatedResourceTest {
     void getUserAccount_serverError() {
         final var errorMessage = "test error";
 
-        Mockito.when(billingService.getUserAccount(true))
+        Mockito.when(billingService.getUserAccount(false))
                 .thenReturn(Uni.createFrom().failure(new RuntimeException(errorMessage)));
 
         RestAssured.given()
@@ -66,9 +179,182 @@ public class AccountResourceTest extends AbstractAuthenticatedResourceTest {
                 .body(Matchers.is(errorMessage));
     }
 
+    @Test
+    void getUserAccountOperations_success() {
+        final var operation = Operation.builder()
+                .id(UUID.randomUUID())
+                .type(OperationType.CREDIT)
+                .amount(Money.ofMajor(10))
+                .createdAt(LocalDateTime.now())
+                .build();
+        final var nextCursor = OperationCursor.of(operation);
+        final var page = OperationPage.builder()
+                .operations(List.of(operation))
+                .nextCursor(nextCursor)
+                .build();
+
+        Mockito.when(billingService.getUserAccountOperations(null, 1))
+                .thenReturn(Uni.createFrom().item(page));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .queryParam("limit", 1)
+                .get("/operations")
+                .then()
+                .statusCode(200)
+                .body("operations.id", Matchers.contains(operation.getId().toString()))
+                .body("nextCursor", Matchers.is(nextCursor.encode()));
+    }
+
+    @Test
+    void getUserAccountOperations_nextPage() {
+        final var after = new OperationCursor(LocalDateTime.now(), UUID.randomUUID());
+        final var page = OperationPage.builder()
+                .operations(List.of())
+                .build();
+
+        Mockito.when(billingService.getUserAccountOperations(after, AccountResource.MAX_OPERATIONS_PAGE_SIZE))
+                .thenReturn(Uni.createFrom().item(page));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .queryParam("cursor", after.encode())
+                .queryParam("limit", AccountResource.MAX_OPERATIONS_PAGE_SIZE + 1)
+                .get("/operations")
+                .then()
+                .statusCode(200)
+                .body("operations", Matchers.empty())
+                .body("nextCursor", Matchers.nullValue());
+    }
+
+    @Test
+    void getUserAccountOperations_invalidCursor() {
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .queryParam("cursor", "not-a-cursor")
+                .get("/operations")
+                .then()
+                .statusCode(400)
+                .body(Matchers.is("invalid operation cursor, cursor=not-a-cursor"));
+    }
+
+    @Test
+    void getUserAccountOperations_accountNotFound() {
+        Mockito.when(billingService.getUserAccountOperations(null, 50))
+                .thenReturn(Uni.createFrom().failure(new AccountNotFoundException()));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .get("/operations")
+                .then()
+                .statusCode(404)
+                .body(Matchers.is("account not found"));
+    }
+
+    @Test
+    void exportUserAccountOperations_success() {
+        final var operations = List.of(
+                Operation.builder().id(UUID.randomUUID()).type(OperationType.CREDIT).build(),
+                Operation.builder().id(UUID.randomUUID()).type(OperationType.WITHDRAW).build());
+
+        Mockito.when(billingService.streamUserAccountOperations())
+                .thenReturn(Multi.createFrom().iterable(operations));
+
+        final var lines = RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .get("/operations/export")
+                .then()
+                .statusCode(200)
+                .contentType(RestMediaType.APPLICATION_NDJSON)
+                .extract().asString()
+                .lines()
+                .filter(line -> !line.isBlank())
+                .toList();
+
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains(operations.get(0).getId().toString()));
+        assertTrue(lines.get(1).contains(operations.get(1).getId().toString()));
+    }
+
+    @Test
+    void exportUserAccountOperations_accountNotFound() {
+        Mockito.when(billingService.streamUserAccountOperations())
+                .thenReturn(Multi.createFrom().failure(new AccountNotFoundException()));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .get("/operations/export")
+                .then()
+                .statusCode(404)
+                .body(Matchers.is("account not found"));
+    }
+
+    @Test
+    void getUserAccountStats_success() {
+        final var from = LocalDate.of(2026, 1, 1);
+        final var to = LocalDate.of(2026, 3, 31);
+        final var totals = AccountTotals.builder()
+                .periodStart(from)
+                .creditAmount(Money.ofMajor(10))
+                .creditCount(2)
+                .withdrawAmount(Money.ofMajor(1))
+                .withdrawCount(1)
+                .build();
+
+        Mockito.when(billingService.getUserAccountStats(from, to, StatsGranularity.MONTH))
+                .thenReturn(Uni.createFrom().item(List.of(totals)));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .queryParam("from", "2026-01-01")
+                .queryParam("to", "2026-03-31")
+                .queryParam("granularity", "month")
+                .get("/stats")
+                .then()
+                .statusCode(200)
+                .body("[0].periodStart", Matchers.is("2026-01-01"))
+                .body("[0].creditCount", Matchers.is(2))
+                .body("[0].withdrawCount", Matchers.is(1));
+    }
+
+    @Test
+    void getUserAccountStats_invalidGranularity() {
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .queryParam("granularity", "hour")
+                .get("/stats")
+                .then()
+                .statusCode(400)
+                .body(Matchers.is("invalid granularity, granularity=hour"));
+    }
+
+    @Test
+    void getUserAccountStats_invalidDate() {
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .queryParam("from", "01.01.2026")
+                .get("/stats")
+                .then()
+                .statusCode(400)
+                .body(Matchers.is("invalid date, date=01.01.2026"));
+    }
+
+    @Test
+    void getUserAccountStats_accountNotFound() {
+        Mockito.when(billingService.getUserAccountStats(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(Uni.createFrom().failure(new AccountNotFoundException()));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .get("/stats")
+                .then()
+                .statusCode(404)
+                .body(Matchers.is("account not found"));
+    }
+
     private static Account buildAccount() {
         return Account.builder()
-                .id(UUID.randomUUID())
+                .id(ACCOUNT_ID)
                 .build();
     }
 }
@@ -0,0 +1,143 @@
+package org.auwerk.otus.arch.billingservice.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+
+import org.auwerk.otus.arch.billingservice.api.AdmissionController.Priority;
+import org.auwerk.otus.arch.billingservice.config.AdmissionConfig;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AdmissionControllerTest {
+
+    private static final int INITIAL_LIMIT = 10;
+
+    private final AdmissionConfig config = mock(AdmissionConfig.class);
+    private final PoolMetrics poolMetrics = mock(PoolMetrics.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private AdmissionController controller;
+
+    @BeforeEach
+    void mockConfig() {
+        when(config.initialLimit()).thenReturn(INITIAL_LIMIT);
+        when(config.minLimit()).thenReturn(5);
+        when(config.maxLimit()).thenReturn(20);
+        when(config.backoffRatio()).thenReturn(0.5);
+        when(config.maxPoolWait()).thenReturn(Duration.ofMillis(50));
+        when(config.maxPoolQueue()).thenReturn(4);
+        when(config.readShare()).thenReturn(0.5);
+        controller = new AdmissionController(config, poolMetrics, registry);
+    }
+
+    @Test
+    void tryAcquire_readsShedBeforeWrites() {
+        // given
+        for (int i = 0; i < INITIAL_LIMIT / 2; i++) {
+            assertTrue(controller.tryAcquire(Priority.READ));
+        }
+
+        // when
+        final var readAdmitted = controller.tryAcquire(Priority.READ);
+        final var writeAdmitted = controller.tryAcquire(Priority.WRITE);
+
+        // then
+        assertFalse(readAdmitted);
+        assertTrue(writeAdmitted);
+        assertEquals(1, registry.counter("billing.admission.rejected", "priority", "read").count());
+    }
+
+    @Test
+    void tryAcquire_limitReached() {
+        // given
+        for (int i = 0; i < INITIAL_LIMIT; i++) {
+            assertTrue(controller.tryAcquire(Priority.WRITE));
+        }
+
+        // when
+        final var admitted = controller.tryAcquire(Priority.WRITE);
+
+        // then
+        assertFalse(admitted);
+        assertEquals(1, registry.counter("billing.admission.rejected", "priority", "write").count());
+    }
+
+    @Test
+    void release_poolQueueCongested() {
+        // given
+        controller.tryAcquire(Priority.WRITE);
+
+        // when
+        when(poolMetrics.getWaitingRequests()).thenReturn(5);
+        controller.release();
+
+        // then
+        assertEquals(5.0, controller.getLimit());
+    }
+
+    @Test
+    void release_poolWaitCongested() {
+        // given
+        controller.tryAcquire(Priority.WRITE);
+
+        // when
+        when(poolMetrics.getAcquireLatencyNanos()).thenReturn(Duration.ofMillis(100).toNanos());
+        controller.release();
+        controller.tryAcquire(Priority.WRITE);
+        controller.release();
+
+        // then
+        assertEquals(5.0, controller.getLimit());
+    }
+
+    @Test
+    void release_congestedDecreasesOncePerWindow() {
+        // given
+        for (int i = 0; i < INITIAL_LIMIT; i++) {
+            controller.tryAcquire(Priority.WRITE);
+        }
+        when(config.minLimit()).thenReturn(1);
+
+        // when
+        when(poolMetrics.getWaitingRequests()).thenReturn(5);
+        for (int i = 0; i < INITIAL_LIMIT; i++) {
+            controller.release();
+        }
+
+        // then
+        assertEquals(INITIAL_LIMIT * 0.5, controller.getLimit());
+    }
+
+    @Test
+    void release_notCongested() {
+        // given
+        for (int i = 0; i < INITIAL_LIMIT / 2; i++) {
+            controller.tryAcquire(Priority.WRITE);
+        }
+
+        // when
+        controller.release();
+
+        // then
+        assertEquals(INITIAL_LIMIT + 1, controller.getLimit());
+    }
+
+    @Test
+    void release_lowUtilization() {
+        // given
+        controller.tryAcquire(Priority.WRITE);
+
+        // when
+        controller.release();
+
+        // then
+        assertEquals(INITIAL_LIMIT, controller.getLimit());
+    }
+}
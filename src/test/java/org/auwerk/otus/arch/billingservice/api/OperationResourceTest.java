@@ -1,19 +1,26 @@
 package org.auwerk.otus.arch.billingservice.api;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 
-import java.math.BigDecimal;
+import java.util.List;
 import java.util.UUID;
 
 import org.auwerk.otus.arch.billingservice.api.dto.CancelOperationRequestDto;
+import org.auwerk.otus.arch.billingservice.api.dto.ExecuteOperationBatchRequestDto;
 import org.auwerk.otus.arch.billingservice.api.dto.ExecuteOperationRequestDto;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.OperationBatchItemResult;
+import org.auwerk.otus.arch.billingservice.domain.OperationBatchMode;
 import org.auwerk.otus.arch.billingservice.domain.OperationType;
 import org.auwerk.otus.arch.billingservice.exception.AccountNotFoundException;
+import org.auwerk.otus.arch.billingservice.exception.AccountQueueFullException;
 import org.auwerk.otus.arch.billingservice.exception.InsufficentAccountBalanceException;
 import org.auwerk.otus.arch.billingservice.exception.OperationAlreadyCanceledException;
 import org.auwerk.otus.arch.billingservice.exception.OperationExecutedByDifferentUserException;
 import org.auwerk.otus.arch.billingservice.exception.OperationNotFoundException;
+import org.auwerk.otus.arch.billingservice.exception.VersionConflictException;
 import org.auwerk.otus.arch.billingservice.service.BillingService;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
@@ -38,9 +45,9 @@ public class OperationResourceTest extends AbstractAuthenticatedResourceTest {
     @Test
     void executeOperation_success() {
         final var operationId = UUID.randomUUID();
-        final var request = new ExecuteOperationRequestDto(OperationType.WITHDRAW, BigDecimal.TEN, "");
+        final var request = new ExecuteOperationRequestDto(OperationType.WITHDRAW, Money.ofMajor(10), "");
 
-        Mockito.when(billingService.executeOperation(any(OperationType.class), any(BigDecimal.class),
+        Mockito.when(billingService.executeOperation(any(OperationType.class), any(Money.class),
                 anyString()))
                 .thenReturn(Uni.createFrom().item(operationId));
 
@@ -54,11 +61,50 @@ public class OperationResourceTest extends AbstractAuthenticatedResourceTest {
                 .body("operationId", Matchers.is(operationId.toString()));
     }
 
+    @Test
+    void executeOperation_idempotencyKey() {
+        final var operationId = UUID.randomUUID();
+        final var idempotencyKey = UUID.randomUUID().toString();
+        final var request = new ExecuteOperationRequestDto(OperationType.CREDIT, Money.ofMajor(10), "");
+
+        Mockito.when(billingService.executeOperation(any(OperationType.class), any(Money.class),
+                anyString(), Mockito.eq(idempotencyKey)))
+                .thenReturn(Uni.createFrom().item(operationId));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .header(OperationResource.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .contentType(ContentType.JSON)
+                .body(request)
+                .post()
+                .then()
+                .statusCode(200)
+                .body("operationId", Matchers.is(operationId.toString()));
+
+        Mockito.verify(billingService, Mockito.never())
+                .executeOperation(any(OperationType.class), any(Money.class), anyString());
+    }
+
+    @Test
+    void executeOperation_idempotencyKeyTooLong() {
+        final var request = new ExecuteOperationRequestDto(OperationType.CREDIT, Money.ofMajor(10), "");
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .header(OperationResource.IDEMPOTENCY_KEY_HEADER,
+                        "k".repeat(OperationResource.MAX_IDEMPOTENCY_KEY_LENGTH + 1))
+                .contentType(ContentType.JSON)
+                .body(request)
+                .post()
+                .then()
+                .statusCode(400);
+    }
+
     @Test
     void executeOperation_accountNotFound() {
-        final var request = new ExecuteOperationRequestDto(OperationType.WITHDRAW, BigDecimal.TEN, "");
+        final var request = new ExecuteOperationRequestDto(OperationType.WITHDRAW, Money.ofMajor(10), "");
 
-        Mockito.when(billingService.executeOperation(any(OperationType.class), any(BigDecimal.class),
+        Mockito.when(billingService.executeOperation(any(OperationType.class), any(Money.class),
                 anyString()))
                 .thenReturn(Uni.createFrom().failure(new AccountNotFoundException()));
 
@@ -74,9 +120,9 @@ public class OperationResourceTest extends AbstractAuthenticatedResourceTest {
 
     @Test
     void executeOperation_insufficentAccountBalance() {
-        final var request = new ExecuteOperationRequestDto(OperationType.WITHDRAW, BigDecimal.TEN, "");
+        final var request = new ExecuteOperationRequestDto(OperationType.WITHDRAW, Money.ofMajor(10), "");
 
-        Mockito.when(billingService.executeOperation(any(OperationType.class), any(BigDecimal.class),
+        Mockito.when(billingService.executeOperation(any(OperationType.class), any(Money.class),
                 anyString()))
                 .thenReturn(Uni.createFrom().failure(new InsufficentAccountBalanceException()));
 
@@ -90,12 +136,82 @@ public class OperationResourceTest extends AbstractAuthenticatedResourceTest {
                 .body(Matchers.is("insufficent account balance"));
     }
 
+    @Test
+    void executeOperation_balanceOverflow() {
+        final var request = new ExecuteOperationRequestDto(OperationType.CREDIT, Money.ofMajor(10), "");
+
+        Mockito.when(billingService.executeOperation(any(OperationType.class), any(Money.class),
+                anyString()))
+                .thenReturn(Uni.createFrom().failure(new ArithmeticException("long overflow")));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .contentType(ContentType.JSON)
+                .body(request)
+                .post()
+                .then()
+                .statusCode(400)
+                .body(Matchers.is("long overflow"));
+    }
+
+    @Test
+    void executeOperation_tooManyDecimalPlaces() {
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .contentType(ContentType.JSON)
+                .body("{\"type\":\"CREDIT\",\"amount\":10.005,\"comment\":\"\"}")
+                .post()
+                .then()
+                .statusCode(400);
+
+        Mockito.verify(billingService, Mockito.never())
+                .executeOperation(any(OperationType.class), any(Money.class), anyString());
+    }
+
+    @Test
+    void executeOperation_accountQueueFull() {
+        final var accountId = UUID.randomUUID();
+        final var request = new ExecuteOperationRequestDto(OperationType.CREDIT, Money.ofMajor(10), "");
+
+        Mockito.when(billingService.executeOperation(any(OperationType.class), any(Money.class),
+                anyString()))
+                .thenReturn(Uni.createFrom().failure(new AccountQueueFullException(accountId)));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .contentType(ContentType.JSON)
+                .body(request)
+                .post()
+                .then()
+                .statusCode(429)
+                .body(Matchers.is("too many pending operations, account id=" + accountId));
+    }
+
+    @Test
+    void executeOperation_versionConflict() {
+        final var accountId = UUID.randomUUID();
+        final var request = new ExecuteOperationRequestDto(OperationType.CREDIT, Money.ofMajor(10), "");
+
+        Mockito.when(billingService.executeOperation(any(OperationType.class), any(Money.class),
+                anyString()))
+                .thenReturn(Uni.createFrom().failure(new VersionConflictException(accountId)));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .contentType(ContentType.JSON)
+                .body(request)
+                .post()
+                .then()
+                .statusCode(409)
+                .body(Matchers.is("account was modified concurrently, id=" + accountId));
+    }
+
     @Test
     void executeOperation_serverError() {
         final var errorMessage = "test error";
-        final var request = new ExecuteOperationRequestDto(OperationType.CREDIT, BigDecimal.TEN, "");
+        final var request = new ExecuteOperationRequestDto(OperationType.CREDIT, Money.ofMajor(10), "");
 
-        Mockito.when(billingService.executeOperation(any(OperationType.class), any(BigDecimal.class),
+        Mockito.when(billingService.executeOperation(any(OperationType.class), any(Money.class),
                 anyString()))
                 .thenReturn(Uni.createFrom().failure(new RuntimeException(errorMessage)));
 
@@ -109,6 +225,96 @@ public class OperationResourceTest extends AbstractAuthenticatedResourceTest {
                 .body(Matchers.is(errorMessage));
     }
 
+    @Test
+    void executeOperationBatch_success() {
+        final var operationId = UUID.randomUUID();
+        final var request = new ExecuteOperationBatchRequestDto(OperationBatchMode.PER_ITEM, List.of(
+                new ExecuteOperationRequestDto(OperationType.WITHDRAW, Money.ofMajor(10), ""),
+                new ExecuteOperationRequestDto(OperationType.CREDIT, Money.ofMajor(1), "")));
+
+        Mockito.when(billingService.executeOperationBatch(anyList(), Mockito.eq(OperationBatchMode.PER_ITEM)))
+                .thenReturn(Uni.createFrom().item(List.of(
+                        OperationBatchItemResult.builder().error("insufficent account balance").build(),
+                        OperationBatchItemResult.builder().operationId(operationId).build())));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .contentType(ContentType.JSON)
+                .body(request)
+                .post("/batch")
+                .then()
+                .statusCode(200)
+                .body("results[0].error", Matchers.is("insufficent account balance"))
+                .body("results[1].operationId", Matchers.is(operationId.toString()));
+    }
+
+    @Test
+    void executeOperationBatch_defaultMode() {
+        final var request = new ExecuteOperationBatchRequestDto(null, List.of(
+                new ExecuteOperationRequestDto(OperationType.WITHDRAW, Money.ofMajor(10), "")));
+
+        Mockito.when(billingService.executeOperationBatch(anyList(),
+                Mockito.eq(OperationBatchMode.ALL_OR_NOTHING)))
+                .thenReturn(Uni.createFrom().failure(new InsufficentAccountBalanceException()));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .contentType(ContentType.JSON)
+                .body(request)
+                .post("/batch")
+                .then()
+                .statusCode(403)
+                .body(Matchers.is("insufficent account balance"));
+    }
+
+    @Test
+    void executeOperationBatch_empty() {
+        final var request = new ExecuteOperationBatchRequestDto(OperationBatchMode.PER_ITEM, List.of());
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .contentType(ContentType.JSON)
+                .body(request)
+                .post("/batch")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void executeOperationBatch_itemWithoutType() {
+        final var request = new ExecuteOperationBatchRequestDto(OperationBatchMode.PER_ITEM, List.of(
+                new ExecuteOperationRequestDto(OperationType.CREDIT, Money.ofMajor(1), ""),
+                new ExecuteOperationRequestDto(null, Money.ofMajor(1), "")));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .contentType(ContentType.JSON)
+                .body(request)
+                .post("/batch")
+                .then()
+                .statusCode(400)
+                .body(Matchers.is("operation 1 must have type and amount"));
+
+        Mockito.verify(billingService, Mockito.never()).executeOperationBatch(anyList(), Mockito.any());
+    }
+
+    @Test
+    void executeOperationBatch_itemWithoutAmount() {
+        final var request = new ExecuteOperationBatchRequestDto(OperationBatchMode.PER_ITEM, List.of(
+                new ExecuteOperationRequestDto(OperationType.CREDIT, null, "")));
+
+        RestAssured.given()
+                .auth().oauth2(getAccessToken(USERNAME))
+                .contentType(ContentType.JSON)
+                .body(request)
+                .post("/batch")
+                .then()
+                .statusCode(400)
+                .body(Matchers.is("operation 0 must have type and amount"));
+
+        Mockito.verify(billingService, Mockito.never()).executeOperationBatch(anyList(), Mockito.any());
+    }
+
     @Test
     void cancelOperation_success() {
         final var operationId = UUID.randomUUID();
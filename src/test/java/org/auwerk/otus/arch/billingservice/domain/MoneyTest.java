@@ -0,0 +1,63 @@
+package org.auwerk.otus.arch.billingservice.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class MoneyTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "10, 1000",
+            "+10, 1000",
+            "-10, -1000",
+            "10.5, 1050",
+            "10.50, 1050",
+            ".5, 50",
+            "-.5, -50",
+            "1., 100",
+            "0.01, 1",
+            "-0, 0",
+            "1.500000, 150",
+            "1e2, 10000",
+            "1.5E-1, 15",
+            "1.005e1, 1005",
+            "-2.5e0, -250",
+            "92233720368547758.07, 9223372036854775807"
+    })
+    void parse_success(String text, long minorUnits) {
+        // when
+        final var money = Money.parse(text);
+
+        // then
+        assertEquals(minorUnits, money.minorUnits());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", ".", "-", "+", "-.", "1.2.3", "1,5", "--1", " 1", "abc", "e5", "1e" })
+    void parse_invalid(String text) {
+        assertThrows(NumberFormatException.class, () -> Money.parse(text));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "1.005", "0.001", "1e-3", "92233720368547758.08", "100000000000000000000",
+            "1e20" })
+    void parse_notRepresentable(String text) {
+        assertThrows(ArithmeticException.class, () -> Money.parse(text));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "0, 0.00",
+            "5, 0.05",
+            "-5, -0.05",
+            "1050, 10.50",
+            "-1050, -10.50"
+    })
+    void toString_twoDecimalPlaces(long minorUnits, String text) {
+        assertEquals(text, Money.ofMinor(minorUnits).toString());
+    }
+}
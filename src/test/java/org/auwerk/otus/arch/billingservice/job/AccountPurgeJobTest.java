@@ -0,0 +1,154 @@
+package org.auwerk.otus.arch.billingservice.job;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.auwerk.otus.arch.billingservice.config.DeletionConfig;
+import org.auwerk.otus.arch.billingservice.dao.AccountDao;
+import org.auwerk.otus.arch.billingservice.dao.AccountDeletionDao;
+import org.auwerk.otus.arch.billingservice.dao.OperationDao;
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletion;
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletionStatus;
+import org.auwerk.otus.arch.billingservice.exception.DaoException;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+
+public class AccountPurgeJobTest {
+
+    private static final int CHUNK_SIZE = 2;
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final PgPool pool = mock(PgPool.class);
+    private final SqlConnection conn = mock(SqlConnection.class);
+    private final AccountDao accountDao = mock(AccountDao.class);
+    private final OperationDao operationDao = mock(OperationDao.class);
+    private final AccountDeletionDao accountDeletionDao = mock(AccountDeletionDao.class);
+    private final DeletionConfig deletionConfig = mock(DeletionConfig.class);
+    private final AccountPurgeJob job = new AccountPurgeJob(pool, new PoolMetrics(new SimpleMeterRegistry(), 20),
+            accountDao, operationDao, accountDeletionDao, deletionConfig);
+
+    @BeforeEach
+    void mockConfig() {
+        when(deletionConfig.chunkSize()).thenReturn(CHUNK_SIZE);
+        when(deletionConfig.chunkPause()).thenReturn(Duration.ZERO);
+        when(deletionConfig.accountsPerRun()).thenReturn(10);
+        when(deletionConfig.maxAttempts()).thenReturn(MAX_ATTEMPTS);
+    }
+
+    @BeforeEach
+    void mockLock() {
+        when(accountDeletionDao.tryLockPending(eq(conn), any()))
+                .thenReturn(Uni.createFrom().item(true));
+    }
+
+    @BeforeEach
+    void mockConnection() {
+        when(pool.withTransaction(any()))
+                .then(inv -> {
+                    final Function<SqlConnection, Uni<Integer>> f = inv.getArgument(0);
+                    return f.apply(conn);
+                });
+        when(pool.withConnection(any()))
+                .then(inv -> {
+                    final Function<SqlConnection, Uni<Object>> f = inv.getArgument(0);
+                    return f.apply(conn);
+                });
+    }
+
+    @Test
+    void purgeDeletedAccounts_success() throws InterruptedException {
+        // given
+        final var deletion = buildDeletion();
+
+        // when
+        when(accountDeletionDao.findPending(conn, 10))
+                .thenReturn(Uni.createFrom().item(List.of(deletion)));
+        when(operationDao.deleteByAccountId(conn, deletion.getAccountId(), CHUNK_SIZE))
+                .thenReturn(Uni.createFrom().item(CHUNK_SIZE))
+                .thenReturn(Uni.createFrom().item(1));
+        when(accountDeletionDao.addPurgedOperations(eq(conn), eq(deletion.getId()), anyInt()))
+                .thenReturn(Uni.createFrom().voidItem());
+        when(accountDao.deleteById(conn, deletion.getAccountId()))
+                .thenReturn(Uni.createFrom().voidItem());
+        when(accountDeletionDao.complete(eq(conn), eq(deletion.getId()), any()))
+                .thenReturn(Uni.createFrom().voidItem());
+        job.purgeDeletedAccounts();
+
+        // then
+        verify(operationDao, times(2)).deleteByAccountId(conn, deletion.getAccountId(), CHUNK_SIZE);
+        verify(accountDao, times(1)).deleteById(conn, deletion.getAccountId());
+        verify(accountDeletionDao, times(1)).complete(eq(conn), eq(deletion.getId()), any());
+        verify(accountDeletionDao, never()).recordFailure(any(), any(), anyInt());
+    }
+
+    @Test
+    void purgeDeletedAccounts_failureRecorded() throws InterruptedException {
+        // given
+        final var deletion = buildDeletion();
+
+        // when
+        when(accountDeletionDao.findPending(conn, 10))
+                .thenReturn(Uni.createFrom().item(List.of(deletion)));
+        when(operationDao.deleteByAccountId(conn, deletion.getAccountId(), CHUNK_SIZE))
+                .thenReturn(Uni.createFrom().item(0));
+        when(accountDeletionDao.addPurgedOperations(eq(conn), eq(deletion.getId()), anyInt()))
+                .thenReturn(Uni.createFrom().voidItem());
+        when(accountDao.deleteById(conn, deletion.getAccountId()))
+                .thenReturn(Uni.createFrom().failure(new DaoException("fk_account_operation_account")));
+        when(accountDeletionDao.recordFailure(conn, deletion.getId(), MAX_ATTEMPTS))
+                .thenReturn(Uni.createFrom().item(AccountDeletionStatus.FAILED));
+        job.purgeDeletedAccounts();
+
+        // then
+        verify(accountDeletionDao, times(1)).recordFailure(conn, deletion.getId(), MAX_ATTEMPTS);
+        verify(accountDeletionDao, never()).complete(any(), any(), any());
+    }
+
+    @Test
+    void purgeDeletedAccounts_lockedByAnotherInstance() throws InterruptedException {
+        // given
+        final var deletion = buildDeletion();
+
+        // when
+        when(accountDeletionDao.findPending(conn, 10))
+                .thenReturn(Uni.createFrom().item(List.of(deletion)));
+        when(accountDeletionDao.tryLockPending(conn, deletion.getId()))
+                .thenReturn(Uni.createFrom().item(false));
+        job.purgeDeletedAccounts();
+
+        // then
+        verify(operationDao, never()).deleteByAccountId(any(), any(), anyInt());
+        verify(accountDao, never()).deleteById(any(), any());
+        verify(accountDeletionDao, never()).recordFailure(any(), any(), anyInt());
+    }
+
+    private static AccountDeletion buildDeletion() {
+        return AccountDeletion.builder()
+                .id(UUID.randomUUID())
+                .accountId(UUID.randomUUID())
+                .userName("user")
+                .accountCreatedAt(LocalDateTime.now())
+                .status(AccountDeletionStatus.PENDING)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
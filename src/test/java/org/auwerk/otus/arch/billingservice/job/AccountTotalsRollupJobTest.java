@@ -0,0 +1,62 @@
+package org.auwerk.otus.arch.billingservice.job;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.function.Function;
+
+import org.auwerk.otus.arch.billingservice.dao.AccountTotalsDao;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+
+public class AccountTotalsRollupJobTest {
+
+    private final PgPool pool = mock(PgPool.class);
+    private final SqlConnection conn = mock(SqlConnection.class);
+    private final AccountTotalsDao accountTotalsDao = mock(AccountTotalsDao.class);
+    private final AccountTotalsRollupJob job = new AccountTotalsRollupJob(pool,
+            new PoolMetrics(new SimpleMeterRegistry(), 20), accountTotalsDao);
+
+    @BeforeEach
+    void mockTransaction() {
+        when(pool.withTransaction(any()))
+                .then(inv -> {
+                    final Function<SqlConnection, Uni<Integer>> f = inv.getArgument(0);
+                    return f.apply(conn);
+                });
+    }
+
+    @Test
+    void rollUpTotals_success() {
+        // when
+        when(accountTotalsDao.tryLockRollup(conn))
+                .thenReturn(Uni.createFrom().item(true));
+        when(accountTotalsDao.rollUp(conn))
+                .thenReturn(Uni.createFrom().item(3));
+        job.rollUpTotals();
+
+        // then
+        verify(accountTotalsDao, times(1)).rollUp(conn);
+    }
+
+    @Test
+    void rollUpTotals_lockedByAnotherInstance() {
+        // when
+        when(accountTotalsDao.tryLockRollup(conn))
+                .thenReturn(Uni.createFrom().item(false));
+        job.rollUpTotals();
+
+        // then
+        verify(accountTotalsDao, never()).rollUp(any());
+    }
+}
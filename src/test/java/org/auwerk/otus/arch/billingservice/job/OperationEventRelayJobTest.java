@@ -0,0 +1,158 @@
+package org.auwerk.otus.arch.billingservice.job;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.auwerk.otus.arch.billingservice.config.OutboxConfig;
+import org.auwerk.otus.arch.billingservice.dao.OperationEventDao;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.OperationEvent;
+import org.auwerk.otus.arch.billingservice.domain.OperationEventSinkType;
+import org.auwerk.otus.arch.billingservice.domain.OperationEventType;
+import org.auwerk.otus.arch.billingservice.domain.OperationType;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.auwerk.otus.arch.billingservice.service.impl.OperationEventSink;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+
+public class OperationEventRelayJobTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    private final PgPool pool = mock(PgPool.class);
+    private final SqlConnection conn = mock(SqlConnection.class);
+    private final OperationEventDao operationEventDao = mock(OperationEventDao.class);
+    private final OperationEventSink operationEventSink = mock(OperationEventSink.class);
+    private final OutboxConfig outboxConfig = mock(OutboxConfig.class);
+    private final OperationEventRelayJob job = new OperationEventRelayJob(pool,
+            new PoolMetrics(new SimpleMeterRegistry(), 20), operationEventDao, operationEventSink, outboxConfig);
+
+    @BeforeEach
+    void mockConfig() {
+        when(outboxConfig.relayEnabled()).thenReturn(true);
+        when(outboxConfig.batchSize()).thenReturn(BATCH_SIZE);
+    }
+
+    @BeforeEach
+    void mockTransaction() {
+        when(pool.withTransaction(any()))
+                .then(inv -> {
+                    final Function<SqlConnection, Uni<Integer>> f = inv.getArgument(0);
+                    return f.apply(conn);
+                });
+        when(operationEventDao.tryLockRelay(conn))
+                .thenReturn(Uni.createFrom().item(true));
+    }
+
+    @Test
+    void relayOperationEvents_success() {
+        // given
+        final var firstBatch = List.of(buildEvent(1), buildEvent(2));
+        final var secondBatch = List.of(buildEvent(3));
+
+        // when
+        when(operationEventDao.findPending(conn, BATCH_SIZE))
+                .thenReturn(Uni.createFrom().item(firstBatch))
+                .thenReturn(Uni.createFrom().item(secondBatch));
+        when(operationEventSink.publish(any()))
+                .thenReturn(Uni.createFrom().voidItem());
+        when(operationEventDao.deleteByIds(any(), any()))
+                .thenReturn(Uni.createFrom().voidItem());
+        job.relayOperationEvents();
+
+        // then
+        verify(operationEventSink, times(1)).publish(firstBatch);
+        verify(operationEventSink, times(1)).publish(secondBatch);
+        verify(operationEventDao, times(1)).deleteByIds(conn, List.of(1L, 2L));
+        verify(operationEventDao, times(1)).deleteByIds(conn, List.of(3L));
+    }
+
+    @Test
+    void relayOperationEvents_sinkFailed() {
+        // given
+        final var batch = List.of(buildEvent(1));
+
+        // when
+        when(operationEventDao.findPending(conn, BATCH_SIZE))
+                .thenReturn(Uni.createFrom().item(batch));
+        when(operationEventSink.publish(batch))
+                .thenReturn(Uni.createFrom().failure(new IllegalStateException()));
+        job.relayOperationEvents();
+
+        // then
+        verify(operationEventDao, never()).deleteByIds(any(), any());
+    }
+
+    @Test
+    void relayOperationEvents_lockedByAnotherInstance() {
+        // when
+        when(operationEventDao.tryLockRelay(conn))
+                .thenReturn(Uni.createFrom().item(false));
+        job.relayOperationEvents();
+
+        // then
+        verify(operationEventDao, never()).findPending(any(), anyInt());
+        verify(operationEventSink, never()).publish(any());
+    }
+
+    @Test
+    void relayOperationEvents_disabled() {
+        // when
+        when(outboxConfig.relayEnabled()).thenReturn(false);
+        job.relayOperationEvents();
+
+        // then
+        verify(operationEventDao, never()).tryLockRelay(any());
+        verify(operationEventSink, never()).publish(any());
+    }
+
+    @Test
+    void onStart_httpSinkWithoutUrl() {
+        // when
+        when(outboxConfig.sink()).thenReturn(OperationEventSinkType.HTTP);
+        when(outboxConfig.httpUrl()).thenReturn(Optional.empty());
+
+        // then
+        assertThrows(IllegalStateException.class, () -> job.onStart(null));
+    }
+
+    @Test
+    void onStart_disabledHttpSinkWithoutUrl() {
+        // when
+        when(outboxConfig.relayEnabled()).thenReturn(false);
+        when(outboxConfig.sink()).thenReturn(OperationEventSinkType.HTTP);
+        when(outboxConfig.httpUrl()).thenReturn(Optional.empty());
+
+        // then
+        job.onStart(null);
+    }
+
+    private static OperationEvent buildEvent(long id) {
+        return OperationEvent.builder()
+                .id(id)
+                .eventType(OperationEventType.OPERATION_EXECUTED)
+                .accountId(UUID.randomUUID())
+                .operationId(UUID.randomUUID())
+                .operationType(OperationType.CREDIT)
+                .amount(Money.ofMajor(10))
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
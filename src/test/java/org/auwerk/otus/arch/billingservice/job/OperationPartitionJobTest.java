@@ -0,0 +1,100 @@
+package org.auwerk.otus.arch.billingservice.job;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.function.Function;
+
+import org.auwerk.otus.arch.billingservice.config.PartitionConfig;
+import org.auwerk.otus.arch.billingservice.dao.OperationPartitionDao;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+
+public class OperationPartitionJobTest {
+
+    private static final String ARCHIVE_SCHEMA = "archive";
+    private static final Duration LOCK_TIMEOUT = Duration.ofSeconds(5);
+    private static final YearMonth CURRENT_MONTH = YearMonth.of(2024, 6);
+
+    private final PgPool pool = mock(PgPool.class);
+    private final SqlConnection conn = mock(SqlConnection.class);
+    private final OperationPartitionDao operationPartitionDao = mock(OperationPartitionDao.class);
+    private final PartitionConfig partitionConfig = mock(PartitionConfig.class);
+    private final OperationPartitionJob job = new OperationPartitionJob(pool,
+            new PoolMetrics(new SimpleMeterRegistry(), 20), operationPartitionDao, partitionConfig);
+
+    @BeforeEach
+    void mockConfig() {
+        when(partitionConfig.premakeMonths()).thenReturn(1);
+        when(partitionConfig.archiveSchema()).thenReturn(ARCHIVE_SCHEMA);
+        when(partitionConfig.lockTimeout()).thenReturn(LOCK_TIMEOUT);
+    }
+
+    @BeforeEach
+    void mockConnection() {
+        when(pool.withTransaction(any()))
+                .then(inv -> {
+                    final Function<SqlConnection, Uni<Object>> f = inv.getArgument(0);
+                    return f.apply(conn);
+                });
+        when(pool.withConnection(any()))
+                .then(inv -> {
+                    final Function<SqlConnection, Uni<Object>> f = inv.getArgument(0);
+                    return f.apply(conn);
+                });
+        when(operationPartitionDao.createPartition(eq(conn), any()))
+                .thenReturn(Uni.createFrom().item("operations_p"));
+        when(operationPartitionDao.archivePartition(eq(conn), any(), eq(ARCHIVE_SCHEMA), eq(LOCK_TIMEOUT)))
+                .thenReturn(Uni.createFrom().voidItem());
+    }
+
+    @Test
+    void maintainPartitions_archivesMonthsBeforeRetention() {
+        // given
+        final var months = List.of(YearMonth.of(2024, 1), YearMonth.of(2024, 2), YearMonth.of(2024, 3),
+                YearMonth.of(2024, 4), YearMonth.of(2024, 5), CURRENT_MONTH, YearMonth.of(2024, 7));
+
+        // when
+        when(partitionConfig.retentionMonths()).thenReturn(3);
+        when(operationPartitionDao.findPartitionMonths(conn))
+                .thenReturn(Uni.createFrom().item(months));
+        job.maintainPartitions(CURRENT_MONTH);
+
+        // then
+        verify(operationPartitionDao, times(1)).createPartition(conn, CURRENT_MONTH);
+        verify(operationPartitionDao, times(1)).createPartition(conn, YearMonth.of(2024, 7));
+        verify(operationPartitionDao, times(1))
+                .archivePartition(conn, YearMonth.of(2024, 1), ARCHIVE_SCHEMA, LOCK_TIMEOUT);
+        verify(operationPartitionDao, times(1))
+                .archivePartition(conn, YearMonth.of(2024, 2), ARCHIVE_SCHEMA, LOCK_TIMEOUT);
+        verify(operationPartitionDao, never())
+                .archivePartition(conn, YearMonth.of(2024, 3), ARCHIVE_SCHEMA, LOCK_TIMEOUT);
+        verify(operationPartitionDao, times(2)).archivePartition(eq(conn), any(), any(), any());
+    }
+
+    @Test
+    void maintainPartitions_retentionDisabled() {
+        // when
+        when(partitionConfig.retentionMonths()).thenReturn(0);
+        job.maintainPartitions(CURRENT_MONTH);
+
+        // then
+        verify(operationPartitionDao, times(2)).createPartition(eq(conn), any());
+        verify(operationPartitionDao, never()).findPartitionMonths(any());
+        verify(operationPartitionDao, never()).archivePartition(any(), any(), any(), any());
+    }
+}
@@ -0,0 +1,53 @@
+package org.auwerk.otus.arch.billingservice.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import javax.interceptor.InvocationContext;
+
+import org.auwerk.otus.arch.billingservice.exception.AccountNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+
+public class MeasuredInterceptorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MeasuredInterceptor interceptor = new MeasuredInterceptor(registry);
+    private final InvocationContext context = mock(InvocationContext.class);
+
+    @Test
+    void measure_timerPerOutcome() throws Exception {
+        // given
+        when(context.getMethod()).thenReturn(MeasuredService.class.getMethod("find"));
+
+        // when
+        when(context.proceed())
+                .thenReturn(Uni.createFrom().item("found"))
+                .thenReturn(Uni.createFrom().item("found"))
+                .thenReturn(Uni.createFrom().failure(new AccountNotFoundException()));
+        for (int i = 0; i < 3; i++) {
+            ((Uni<?>) interceptor.measure(context))
+                    .subscribe()
+                    .withSubscriber(UniAssertSubscriber.create());
+        }
+
+        // then
+        assertEquals(2, registry.get("test.calls").tag("method", "find").tag("outcome", "success")
+                .timer().count());
+        assertEquals(1, registry.get("test.calls").tag("method", "find").tag("outcome", "not_found")
+                .timer().count());
+        assertEquals(2, registry.get("test.calls").timers().size());
+    }
+
+    @Measured("test.calls")
+    public static class MeasuredService {
+
+        public Uni<String> find() {
+            return Uni.createFrom().item("found");
+        }
+    }
+}
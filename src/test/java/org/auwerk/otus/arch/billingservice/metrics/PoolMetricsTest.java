@@ -0,0 +1,28 @@
+package org.auwerk.otus.arch.billingservice.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+public class PoolMetricsTest {
+
+    private static final long AVERAGE = Duration.ofMillis(400).toNanos();
+
+    @Test
+    void decay_noTimeElapsed() {
+        assertEquals(AVERAGE, PoolMetrics.decay(AVERAGE, 0));
+    }
+
+    @Test
+    void decay_halvedEverySecond() {
+        assertEquals(AVERAGE / 2, PoolMetrics.decay(AVERAGE, Duration.ofSeconds(1).toNanos()));
+        assertEquals(AVERAGE / 8, PoolMetrics.decay(AVERAGE, Duration.ofSeconds(3).toNanos()));
+    }
+
+    @Test
+    void decay_belowAdmissionThresholdAfterBurst() {
+        assertEquals(0, PoolMetrics.decay(AVERAGE, Duration.ofMinutes(1).toNanos()));
+    }
+}
@@ -0,0 +1,299 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.auwerk.otus.arch.billingservice.config.DispatcherConfig;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationBatchItemResult;
+import org.auwerk.otus.arch.billingservice.domain.OperationType;
+import org.auwerk.otus.arch.billingservice.exception.AccountQueueFullException;
+import org.auwerk.otus.arch.billingservice.exception.InsufficentAccountBalanceException;
+import org.junit.jupiter.api.Test;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import io.smallrye.mutiny.subscription.UniEmitter;
+
+public class AccountOperationDispatcherTest {
+
+    private static final int OPERATIONS = 2000;
+
+    /**
+     * Длительность одной транзакции в БД, не зависящая от количества операций в
+     * пакете
+     */
+    private static final Duration TRANSACTION_TIME = Duration.ofMillis(2);
+
+    private final DispatcherConfig config = mock(DispatcherConfig.class);
+
+    @Test
+    void submit_coalescesQueuedOperations() {
+        // given
+        final var accountId = UUID.randomUUID();
+        final var pending = new AtomicReference<UniEmitter<? super List<OperationBatchItemResult>>>();
+        final var batches = new ArrayList<List<Operation>>();
+        final Function<List<Operation>, Uni<List<OperationBatchItemResult>>> executor = operations -> {
+            batches.add(operations);
+            if (batches.size() == 1) {
+                return Uni.createFrom().<List<OperationBatchItemResult>>emitter(pending::set);
+            }
+            return Uni.createFrom().item(succeeded(operations));
+        };
+        final var dispatcher = createDispatcher(1, 16, 8);
+
+        // when
+        final var first = dispatcher.submit(accountId, buildOperation(), executor)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+        final var second = dispatcher.submit(accountId, buildOperation(), executor)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+        final var third = dispatcher.submit(accountId, buildOperation(), executor)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+        pending.get().complete(succeeded(batches.get(0)));
+
+        // then
+        first.assertCompleted();
+        second.assertCompleted();
+        third.assertCompleted();
+
+        assertEquals(2, batches.size());
+        assertEquals(1, batches.get(0).size());
+        assertEquals(2, batches.get(1).size());
+    }
+
+    @Test
+    void submit_insufficentAccountBalance() {
+        // given
+        final var accountId = UUID.randomUUID();
+        final Function<List<Operation>, Uni<List<OperationBatchItemResult>>> executor = operations -> Uni
+                .createFrom().item(List.of(OperationBatchItemResult.builder()
+                        .error(new InsufficentAccountBalanceException().getMessage())
+                        .build()));
+        final var dispatcher = createDispatcher(1, 16, 8);
+
+        // when
+        final var subscriber = dispatcher.submit(accountId, buildOperation(), executor)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertFailedWith(InsufficentAccountBalanceException.class);
+    }
+
+    @Test
+    void submit_executionFailed() {
+        // given
+        final var accountId = UUID.randomUUID();
+        final Function<List<Operation>, Uni<List<OperationBatchItemResult>>> executor = operations -> {
+            throw new IllegalStateException("database is down");
+        };
+        final var dispatcher = createDispatcher(1, 16, 8);
+
+        // when
+        final var first = dispatcher.submit(accountId, buildOperation(), executor)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+        final var second = dispatcher.submit(accountId, buildOperation(), operations -> Uni.createFrom()
+                .item(succeeded(operations)))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        first.assertFailedWith(IllegalStateException.class, "database is down");
+        second.assertCompleted();
+    }
+
+    @Test
+    void submit_slowAccountDoesNotBlockStripe() {
+        // given
+        final var slowAccountId = UUID.randomUUID();
+        final var accountId = UUID.randomUUID();
+        final var dispatcher = createDispatcher(1, 16, 8);
+
+        // when
+        final var slow = dispatcher.submit(slowAccountId, buildOperation(), operations -> Uni.createFrom().nothing())
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+        final var first = dispatcher.submit(accountId, buildOperation(), operations -> Uni.createFrom()
+                .item(succeeded(operations)))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+        final var second = dispatcher.submit(accountId, buildOperation(), operations -> Uni.createFrom()
+                .item(succeeded(operations)))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        slow.assertNotTerminated();
+        first.assertCompleted();
+        second.assertCompleted();
+    }
+
+    @Test
+    void submit_failedItemIsolated() {
+        // given
+        final var accountId = UUID.randomUUID();
+        final var pending = new AtomicReference<UniEmitter<? super List<OperationBatchItemResult>>>();
+        final var batches = new ArrayList<List<Operation>>();
+        final var invalid = Operation.builder()
+                .amount(Money.ofMajor(1))
+                .build();
+        final Function<List<Operation>, Uni<List<OperationBatchItemResult>>> executor = operations -> {
+            batches.add(operations);
+            if (batches.size() == 1) {
+                return Uni.createFrom().<List<OperationBatchItemResult>>emitter(pending::set);
+            }
+            if (operations.contains(invalid)) {
+                throw new NullPointerException("type");
+            }
+            return Uni.createFrom().item(succeeded(operations));
+        };
+        final var dispatcher = createDispatcher(1, 16, 8);
+
+        // when
+        final var first = dispatcher.submit(accountId, buildOperation(), executor)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+        final var valid = dispatcher.submit(accountId, buildOperation(), executor)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+        final var failed = dispatcher.submit(accountId, invalid, executor)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+        pending.get().complete(succeeded(batches.get(0)));
+
+        // then
+        first.assertCompleted();
+        valid.assertCompleted();
+        failed.assertFailedWith(NullPointerException.class);
+
+        assertEquals(4, batches.size());
+        assertEquals(2, batches.get(1).size());
+    }
+
+    @Test
+    void submit_queueFull() {
+        // given
+        final var accountId = UUID.randomUUID();
+        final Function<List<Operation>, Uni<List<OperationBatchItemResult>>> executor = operations -> Uni
+                .createFrom().nothing();
+        final var dispatcher = createDispatcher(1, 2, 8);
+
+        // when
+        final var subscribers = new ArrayList<UniAssertSubscriber<UUID>>();
+        for (int i = 0; i < 4; i++) {
+            subscribers.add(dispatcher.submit(accountId, buildOperation(), executor)
+                    .subscribe()
+                    .withSubscriber(UniAssertSubscriber.create()));
+        }
+
+        // then
+        subscribers.get(0).assertNotTerminated();
+        subscribers.get(1).assertNotTerminated();
+        subscribers.get(2).assertNotTerminated();
+        subscribers.get(3).assertFailedWith(AccountQueueFullException.class);
+    }
+
+    @Test
+    void load_hotAccount() {
+        // given
+        final var accountId = UUID.randomUUID();
+        final var database = new SimulatedDatabase();
+        final var dispatcher = createDispatcher(16, OPERATIONS, 100);
+
+        // when
+        final var operationIds = new ArrayList<Uni<UUID>>(OPERATIONS);
+        for (int i = 0; i < OPERATIONS; i++) {
+            operationIds.add(dispatcher.submit(accountId, buildOperation(), database::execute));
+        }
+        final var results = Uni.join().all(operationIds).andFailFast()
+                .await().atMost(Duration.ofSeconds(30));
+
+        // then
+        assertEquals(OPERATIONS, new HashSet<>(results).size());
+        // без объединения потребовалось бы OPERATIONS последовательных транзакций
+        assertTrue(database.transactions.get() <= OPERATIONS / 10,
+                "transactions: " + database.transactions.get());
+        assertTrue(database.maxBatchSize() > 1);
+    }
+
+    @Test
+    void load_uniformWorkload() {
+        // given
+        final var database = new SimulatedDatabase();
+        final var dispatcher = createDispatcher(16, OPERATIONS, 100);
+
+        // when
+        final var operationIds = new ArrayList<Uni<UUID>>(OPERATIONS);
+        for (int i = 0; i < OPERATIONS; i++) {
+            operationIds.add(dispatcher.submit(UUID.randomUUID(), buildOperation(), database::execute));
+        }
+        final var results = Uni.join().all(operationIds).andFailFast()
+                .await().atMost(Duration.ofSeconds(30));
+
+        // then
+        assertEquals(OPERATIONS, new HashSet<>(results).size());
+        // у каждого счёта одна операция, объединять нечего
+        assertEquals(OPERATIONS, database.transactions.get());
+        assertEquals(1, database.maxBatchSize());
+    }
+
+    private AccountOperationDispatcher createDispatcher(int stripes, int queueCapacity, int maxBatchSize) {
+        when(config.stripes()).thenReturn(stripes);
+        when(config.queueCapacity()).thenReturn(queueCapacity);
+        when(config.maxBatchSize()).thenReturn(maxBatchSize);
+        return new AccountOperationDispatcher(config);
+    }
+
+    private static List<OperationBatchItemResult> succeeded(List<Operation> operations) {
+        return operations.stream()
+                .map(op -> OperationBatchItemResult.builder()
+                        .operationId(UUID.randomUUID())
+                        .build())
+                .toList();
+    }
+
+    private static Operation buildOperation() {
+        return Operation.builder()
+                .type(OperationType.CREDIT)
+                .amount(Money.ofMajor(1))
+                .build();
+    }
+
+    /**
+     * БД, в которой каждая транзакция занимает одинаковое время вне зависимости
+     * от размера пакета
+     */
+    private static class SimulatedDatabase {
+
+        private final AtomicInteger transactions = new AtomicInteger();
+        private final ConcurrentLinkedQueue<Integer> batchSizes = new ConcurrentLinkedQueue<>();
+
+        Uni<List<OperationBatchItemResult>> execute(List<Operation> operations) {
+            transactions.incrementAndGet();
+            batchSizes.add(operations.size());
+            return Uni.createFrom().item(succeeded(operations))
+                    .onItem().delayIt().by(TRANSACTION_TIME);
+        }
+
+        int maxBatchSize() {
+            return batchSizes.stream().mapToInt(Integer::intValue).max().orElse(0);
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package org.auwerk.otus.arch.billingservice.service.impl;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -10,35 +16,72 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.math.BigDecimal;
 import java.security.Principal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import org.auwerk.otus.arch.billingservice.config.DispatcherConfig;
+import org.auwerk.otus.arch.billingservice.config.IdempotencyConfig;
 import org.auwerk.otus.arch.billingservice.dao.AccountDao;
+import org.auwerk.otus.arch.billingservice.dao.AccountDeletionDao;
+import org.auwerk.otus.arch.billingservice.dao.AccountTotalsDao;
+import org.auwerk.otus.arch.billingservice.dao.IdempotencyKeyDao;
 import org.auwerk.otus.arch.billingservice.dao.OperationDao;
 import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.AccountBalance;
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletion;
+import org.auwerk.otus.arch.billingservice.domain.AccountDeletionStatus;
+import org.auwerk.otus.arch.billingservice.domain.AccountMetadata;
+import org.auwerk.otus.arch.billingservice.domain.AccountTotals;
+import org.auwerk.otus.arch.billingservice.domain.AccountVersion;
+import org.auwerk.otus.arch.billingservice.domain.Money;
 import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationBatchMode;
+import org.auwerk.otus.arch.billingservice.domain.OperationCursor;
 import org.auwerk.otus.arch.billingservice.domain.OperationType;
+import org.auwerk.otus.arch.billingservice.domain.StatsGranularity;
 import org.auwerk.otus.arch.billingservice.exception.AccountAlreadyExistsException;
+import org.auwerk.otus.arch.billingservice.exception.AccountDeletionNotFoundException;
 import org.auwerk.otus.arch.billingservice.exception.AccountNotFoundException;
+import org.auwerk.otus.arch.billingservice.exception.DuplicateKeyException;
 import org.auwerk.otus.arch.billingservice.exception.InsufficentAccountBalanceException;
+import org.auwerk.otus.arch.billingservice.exception.InvalidStatsRequestException;
 import org.auwerk.otus.arch.billingservice.exception.OperationAlreadyCanceledException;
 import org.auwerk.otus.arch.billingservice.exception.OperationExecutedByDifferentUserException;
 import org.auwerk.otus.arch.billingservice.exception.OperationNotFoundException;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
 import org.auwerk.otus.arch.billingservice.service.BillingService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.cache.CaffeineCache;
 import io.quarkus.security.identity.SecurityIdentity;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
 import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
 import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.Query;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.SqlClient;
 import io.vertx.mutiny.sqlclient.SqlConnection;
+import io.vertx.mutiny.sqlclient.Transaction;
 
 public class BillingServiceImplTest {
 
@@ -46,22 +89,69 @@ public class BillingServiceImplTest {
 
     private static final UUID ACCOUNT_ID = UUID.randomUUID();
 
+    private static final long VERSION = 7;
+
+    private static final String IDEMPOTENCY_KEY = "idempotency-key";
+
     private final PgPool pool = mock(PgPool.class);
+    private final SqlConnection conn = mock(SqlConnection.class);
     private final AccountDao accountDao = mock(AccountDao.class);
+    private final AccountDeletionDao accountDeletionDao = mock(AccountDeletionDao.class);
+    private final AccountTotalsDao accountTotalsDao = mock(AccountTotalsDao.class);
     private final OperationDao operationDao = mock(OperationDao.class);
+    private final IdempotencyKeyDao idempotencyKeyDao = mock(IdempotencyKeyDao.class);
+    private final IdempotencyConfig idempotencyConfig = mock(IdempotencyConfig.class);
+    private final DispatcherConfig dispatcherConfig = mock(DispatcherConfig.class);
+    private final CreditJournal creditJournal = mock(CreditJournal.class);
     private final SecurityIdentity securityIdentity = mock(SecurityIdentity.class);
-    private final BillingService billingService = new BillingServiceImpl(pool, accountDao, operationDao,
-            securityIdentity);
+    private final CaffeineCache accountCache = mock(CaffeineCache.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private IdempotencyKeyCache idempotencyKeyCache;
+    private BillingService billingService;
+
+    @BeforeEach
+    void createService() {
+        when(idempotencyConfig.ttl()).thenReturn(Duration.ofHours(1));
+        when(idempotencyConfig.cacheSize()).thenReturn(10);
+        when(dispatcherConfig.stripes()).thenReturn(4);
+        when(dispatcherConfig.queueCapacity()).thenReturn(16);
+        when(dispatcherConfig.maxBatchSize()).thenReturn(8);
+        idempotencyKeyCache = new IdempotencyKeyCache(idempotencyConfig);
+        final var poolMetrics = new PoolMetrics(meterRegistry, 20);
+        billingService = new BillingServiceImpl(pool, poolMetrics, accountDao,
+                accountDeletionDao, accountTotalsDao, operationDao, idempotencyKeyDao, idempotencyKeyCache,
+                idempotencyConfig,
+                new AccountMetadataCache(accountCache, poolMetrics, accountDao),
+                new InPlaceBalanceStore(poolMetrics, accountDao, operationDao), new AccountOperationDispatcher(dispatcherConfig),
+                creditJournal, securityIdentity);
+    }
+
+    @BeforeEach
+    void mockAccountCache() {
+        when(accountCache.as(CaffeineCache.class))
+                .thenReturn(accountCache);
+        when(accountCache.invalidate(any()))
+                .thenReturn(Uni.createFrom().voidItem());
+    }
 
     @BeforeEach
     void mockTransaction() {
         when(pool.withTransaction(any()))
         .then(inv -> {
             final Function<SqlConnection, Uni<Account>> f = inv.getArgument(0);
-            return f.apply(null);
+            return f.apply(conn);
         });
     }
 
+    @BeforeEach
+    void mockConnection() {
+        when(pool.withConnection(any()))
+                .then(inv -> {
+                    final Function<SqlConnection, Uni<Object>> f = inv.getArgument(0);
+                    return f.apply(conn);
+                });
+    }
+
     @BeforeEach
     void mockUser() {
         var principal = mock(Principal.class);
@@ -72,9 +162,9 @@ public class BillingServiceImplTest {
     @Test
     void createUserAccount_success() {
         // when
-        when(accountDao.findByUserName(pool, USERNAME))
+        when(accountDao.findByUserName(conn, USERNAME))
                 .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
-        when(accountDao.insert(pool, USERNAME))
+        when(accountDao.insert(conn, USERNAME))
                 .thenReturn(Uni.createFrom().item(ACCOUNT_ID));
         final var subscriber = billingService.createUserAccount(USERNAME).subscribe()
                 .withSubscriber(UniAssertSubscriber.create());
@@ -89,7 +179,7 @@ public class BillingServiceImplTest {
         final var account = buildAccount();
 
         // when
-        when(accountDao.findByUserName(pool, USERNAME))
+        when(accountDao.findByUserName(conn, USERNAME))
                 .thenReturn(Uni.createFrom().item(account));
         final var subscriber = billingService.createUserAccount(USERNAME).subscribe()
                 .withSubscriber(UniAssertSubscriber.create());
@@ -97,7 +187,7 @@ public class BillingServiceImplTest {
         // then
         subscriber.assertFailedWith(AccountAlreadyExistsException.class);
 
-        verify(accountDao, never()).insert(pool, USERNAME);
+        verify(accountDao, never()).insert(conn, USERNAME);
     }
 
     @Test
@@ -106,22 +196,33 @@ public class BillingServiceImplTest {
         final var account = buildAccount();
 
         // when
-        when(accountDao.findByUserName(pool, USERNAME))
+        when(accountDao.findByUserNameForUpdate(conn, USERNAME))
                 .thenReturn(Uni.createFrom().item(account));
-        final var subscriber = billingService.deleteUserAccount(USERNAME).subscribe()
-                .withSubscriber(UniAssertSubscriber.create());
+        when(accountDao.markDeleted(eq(conn), eq(ACCOUNT_ID), any()))
+                .thenReturn(Uni.createFrom().voidItem());
+        when(accountDeletionDao.insert(eq(conn), any()))
+                .thenReturn(Uni.createFrom().voidItem());
+        final var deletionId = billingService.deleteUserAccount(USERNAME).subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted()
+                .getItem();
 
         // then
-        subscriber.assertCompleted();
-
-        verify(operationDao, times(1)).deleteByAccountId(pool, ACCOUNT_ID);
-        verify(accountDao, times(1)).deleteById(pool, ACCOUNT_ID);
+        assertNotNull(deletionId);
+
+        verify(accountDeletionDao, times(1)).insert(eq(conn), argThat(deletion -> deletionId.equals(deletion.getId())
+                && ACCOUNT_ID.equals(deletion.getAccountId())
+                && account.getCreatedAt().equals(deletion.getAccountCreatedAt())
+                && deletion.getStatus() == AccountDeletionStatus.PENDING));
+        verify(operationDao, never()).deleteByAccountId(any(), any(), anyInt());
+        verify(accountDao, never()).deleteById(any(), any());
+        verify(accountCache, times(1)).invalidate(USERNAME);
     }
 
     @Test
     void deleteUserAccount_accountNotFound() {
         // when
-        when(accountDao.findByUserName(pool, USERNAME))
+        when(accountDao.findByUserNameForUpdate(conn, USERNAME))
                 .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
         final var subscriber = billingService.deleteUserAccount(USERNAME).subscribe()
                 .withSubscriber(UniAssertSubscriber.create());
@@ -129,8 +230,42 @@ public class BillingServiceImplTest {
         // then
         subscriber.assertFailedWith(AccountNotFoundException.class);
 
-        verify(operationDao, never()).deleteByAccountId(pool, ACCOUNT_ID);
-        verify(accountDao, never()).deleteById(pool, ACCOUNT_ID);
+        verify(accountDao, never()).markDeleted(any(), any(), any());
+        verify(accountDeletionDao, never()).insert(any(), any());
+    }
+
+    @Test
+    void getAccountDeletion_success() {
+        // given
+        final var deletion = AccountDeletion.builder()
+                .id(UUID.randomUUID())
+                .accountId(ACCOUNT_ID)
+                .status(AccountDeletionStatus.COMPLETED)
+                .build();
+
+        // when
+        when(accountDeletionDao.findById(conn, deletion.getId()))
+                .thenReturn(Uni.createFrom().item(deletion));
+        final var subscriber = billingService.getAccountDeletion(deletion.getId()).subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertItem(deletion);
+    }
+
+    @Test
+    void getAccountDeletion_notFound() {
+        // given
+        final var deletionId = UUID.randomUUID();
+
+        // when
+        when(accountDeletionDao.findById(conn, deletionId))
+                .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
+        final var subscriber = billingService.getAccountDeletion(deletionId).subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertFailedWith(AccountDeletionNotFoundException.class);
     }
 
     @Test
@@ -139,7 +274,7 @@ public class BillingServiceImplTest {
         final var account = buildAccount();
 
         // when
-        when(accountDao.findByUserName(pool, USERNAME))
+        when(accountDao.findByUserName(conn, USERNAME))
                 .thenReturn(Uni.createFrom().item(account));
         final var subscriber = billingService.getUserAccount(false).subscribe()
                 .withSubscriber(UniAssertSubscriber.create());
@@ -147,13 +282,13 @@ public class BillingServiceImplTest {
         // then
         subscriber.assertItem(account);
 
-        verify(operationDao, never()).findByAccountId(pool, ACCOUNT_ID);
+        verify(operationDao, never()).findByAccountId(eq(conn), eq(ACCOUNT_ID), any(), any(), anyInt());
     }
 
     @Test
     void getUserAccount_accountNotFound() {
         // when
-        when(accountDao.findByUserName(pool, USERNAME))
+        when(accountDao.findByUserName(conn, USERNAME))
                 .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
         final var subscriber = billingService.getUserAccount(false).subscribe()
                 .withSubscriber(UniAssertSubscriber.create());
@@ -161,7 +296,7 @@ public class BillingServiceImplTest {
         // then
         subscriber.assertFailedWith(AccountNotFoundException.class);
 
-        verify(operationDao, never()).findByAccountId(pool, ACCOUNT_ID);
+        verify(operationDao, never()).findByAccountId(eq(conn), eq(ACCOUNT_ID), any(), any(), anyInt());
     }
 
     @Test
@@ -174,23 +309,103 @@ public class BillingServiceImplTest {
                 Operation.builder().build());
 
         // when
-        when(accountDao.findByUserName(pool, USERNAME))
+        when(accountDao.findByUserName(conn, USERNAME))
                 .thenReturn(Uni.createFrom().item(account));
-        when(operationDao.findByAccountId(pool, ACCOUNT_ID))
+        when(accountDao.findBalanceById(conn, ACCOUNT_ID))
+                .thenReturn(Uni.createFrom().item(AccountBalance.builder()
+                        .balance(account.getBalance())
+                        .version(VERSION)
+                        .build()));
+        when(operationDao.findByAccountId(conn, ACCOUNT_ID, account.getCreatedAt(), null,
+                BillingServiceImpl.ACCOUNT_OPERATIONS_LIMIT + 1))
                 .thenReturn(Uni.createFrom().item(operations));
-        final var subscriber = billingService.getUserAccount(true).subscribe()
+        final var result = billingService.getUserAccount(true).subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted()
+                .getItem();
+
+        // then
+        assertEquals(ACCOUNT_ID, result.getId());
+        assertEquals(account.getBalance(), result.getBalance());
+        assertEquals(VERSION, (long) result.getVersion());
+        assertEquals(operations, result.getOperations());
+
+        verify(accountDao, never()).findById(any(SqlClient.class), any());
+
+        verify(operationDao, times(1)).findByAccountId(conn, ACCOUNT_ID, account.getCreatedAt(), null,
+                BillingServiceImpl.ACCOUNT_OPERATIONS_LIMIT + 1);
+    }
+
+    @Test
+    void getUserAccountWithOperations_staleCachedAccount() {
+        // given
+        final var account = buildAccount();
+        final var staleMetadata = AccountMetadata.builder()
+                .id(UUID.randomUUID())
+                .userName(USERNAME)
+                .build();
+
+        // when
+        when(accountCache.getIfPresent(USERNAME))
+                .thenReturn(CompletableFuture.completedFuture(staleMetadata));
+        when(accountDao.findBalanceById(conn, staleMetadata.getId()))
+                .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(account));
+        when(accountDao.findBalanceById(conn, ACCOUNT_ID))
+                .thenReturn(Uni.createFrom().item(AccountBalance.builder()
+                        .balance(account.getBalance())
+                        .version(VERSION)
+                        .build()));
+        when(operationDao.findByAccountId(conn, ACCOUNT_ID, account.getCreatedAt(), null,
+                BillingServiceImpl.ACCOUNT_OPERATIONS_LIMIT + 1))
+                .thenReturn(Uni.createFrom().item(List.of()));
+        final var result = billingService.getUserAccount(true).subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted()
+                .getItem();
+
+        // then
+        assertEquals(ACCOUNT_ID, result.getId());
+
+        verify(accountCache, times(1)).invalidate(USERNAME);
+        verify(operationDao, never()).findByAccountId(eq(conn), eq(staleMetadata.getId()), any(), any(), anyInt());
+    }
+
+    @Test
+    void getUserAccountVersion_success() {
+        // given
+        final var version = new AccountVersion(ACCOUNT_ID, VERSION);
+
+        // when
+        when(accountDao.findVersionByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(version));
+        final var subscriber = billingService.getUserAccountVersion().subscribe()
                 .withSubscriber(UniAssertSubscriber.create());
 
         // then
-        subscriber.assertItem(account);
+        subscriber.assertItem(version);
+
+        verify(accountDao, never()).findByUserName(any(SqlClient.class), anyString());
+        verify(operationDao, never()).findByAccountId(any(), any(), any(), any(), anyInt());
+    }
 
-        verify(operationDao, times(1)).findByAccountId(pool, ACCOUNT_ID);
+    @Test
+    void getUserAccountVersion_accountNotFound() {
+        // when
+        when(accountDao.findVersionByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
+        final var subscriber = billingService.getUserAccountVersion().subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertFailedWith(AccountNotFoundException.class);
     }
 
     @Test
     void getUserAccountWithOperations_accountNotFound() {
         // when
-        when(accountDao.findByUserName(pool, USERNAME))
+        when(accountDao.findByUserName(conn, USERNAME))
                 .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
         final var subscriber = billingService.getUserAccount(true).subscribe()
                 .withSubscriber(UniAssertSubscriber.create());
@@ -199,45 +414,362 @@ public class BillingServiceImplTest {
         subscriber.assertFailedWith(AccountNotFoundException.class);
     }
 
+    @Test
+    void getUserAccountOperations_lastPage() {
+        // given
+        final var account = buildAccount();
+        final var after = new OperationCursor(LocalDateTime.now(), UUID.randomUUID());
+        final var operations = List.of(
+                buildOperation(OperationType.CREDIT),
+                buildOperation(OperationType.WITHDRAW));
+
+        // when
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(account));
+        when(operationDao.findByAccountId(conn, ACCOUNT_ID, account.getCreatedAt(), after, 3))
+                .thenReturn(Uni.createFrom().item(operations));
+        final var page = billingService.getUserAccountOperations(after, 2).subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted()
+                .getItem();
+
+        // then
+        assertEquals(operations, page.getOperations());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getUserAccountOperations_hasNextPage() {
+        // given
+        final var account = buildAccount();
+        final var operations = List.of(
+                buildOperation(OperationType.CREDIT),
+                buildOperation(OperationType.WITHDRAW),
+                buildOperation(OperationType.CREDIT));
+
+        // when
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(account));
+        when(operationDao.findByAccountId(conn, ACCOUNT_ID, account.getCreatedAt(), null, 3))
+                .thenReturn(Uni.createFrom().item(operations));
+        final var page = billingService.getUserAccountOperations(null, 2).subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted()
+                .getItem();
+
+        // then
+        assertEquals(operations.subList(0, 2), page.getOperations());
+        assertEquals(OperationCursor.of(operations.get(1)), page.getNextCursor());
+    }
+
+    @Test
+    void getUserAccountOperations_accountNotFound() {
+        // when
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
+        final var subscriber = billingService.getUserAccountOperations(null, 10).subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertFailedWith(AccountNotFoundException.class);
+
+        verify(operationDao, never()).findByAccountId(eq(conn), eq(ACCOUNT_ID), any(), any(), anyInt());
+    }
+
+    @Test
+    void getUserAccountStats_success() {
+        // given
+        final var account = buildAccount();
+        final var from = LocalDate.of(2026, 1, 1);
+        final var to = LocalDate.of(2026, 3, 31);
+        final var totals = List.of(
+                AccountTotals.builder()
+                        .periodStart(from)
+                        .creditAmount(Money.ofMajor(10))
+                        .creditCount(2)
+                        .withdrawAmount(Money.ofMajor(1))
+                        .withdrawCount(1)
+                        .build());
+
+        // when
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(account));
+        when(accountTotalsDao.findByAccountId(conn, ACCOUNT_ID, from, to, StatsGranularity.MONTH))
+                .thenReturn(Uni.createFrom().item(totals));
+        final var subscriber = billingService.getUserAccountStats(from, to, StatsGranularity.MONTH).subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertItem(totals);
+    }
+
+    @Test
+    void getUserAccountStats_fromAfterTo() {
+        // when
+        final var subscriber = billingService
+                .getUserAccountStats(LocalDate.of(2026, 2, 1), LocalDate.of(2026, 1, 1), StatsGranularity.DAY)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertFailedWith(InvalidStatsRequestException.class);
+
+        verify(accountTotalsDao, never()).findByAccountId(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void getUserAccountStats_accountNotFound() {
+        // when
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
+        final var subscriber = billingService
+                .getUserAccountStats(LocalDate.of(2026, 1, 1), LocalDate.of(2026, 1, 31), StatsGranularity.DAY)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertFailedWith(AccountNotFoundException.class);
+    }
+
+    @Test
+    void streamUserAccountOperations_success() {
+        // given
+        final var account = buildAccount();
+        final var rows = 10_000;
+        final var transaction = mock(Transaction.class);
+        @SuppressWarnings("unchecked")
+        final Query<RowSet<Row>> readOnlyQuery = mock(Query.class);
+        final var operation = buildOperation(OperationType.CREDIT);
+
+        // when
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(account));
+        when(pool.getConnection())
+                .thenReturn(Uni.createFrom().item(conn));
+        when(conn.begin())
+                .thenReturn(Uni.createFrom().item(transaction));
+        when(conn.query(BillingServiceImpl.READ_ONLY_TRANSACTION))
+                .thenReturn(readOnlyQuery);
+        when(readOnlyQuery.execute())
+                .thenReturn(Uni.createFrom().nullItem());
+        when(transaction.rollback())
+                .thenReturn(Uni.createFrom().voidItem());
+        when(conn.close())
+                .thenReturn(Uni.createFrom().voidItem());
+        when(operationDao.streamByAccountId(conn, ACCOUNT_ID, account.getCreatedAt(),
+                BillingServiceImpl.EXPORT_FETCH_SIZE))
+                .thenReturn(Multi.createFrom().range(0, rows).map(i -> operation));
+        final long streamed = billingService.streamUserAccountOperations()
+                .collect().with(Collectors.counting())
+                .await().indefinitely();
+
+        // then
+        assertEquals(rows, streamed);
+
+        verify(readOnlyQuery, times(1)).execute();
+        verify(transaction, times(1)).rollback();
+        verify(conn, times(1)).close();
+    }
+
+    @Test
+    void streamUserAccountOperations_accountNotFound() {
+        // when
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
+        final var subscriber = billingService.streamUserAccountOperations().subscribe()
+                .withSubscriber(AssertSubscriber.create(1));
+
+        // then
+        subscriber.assertFailedWith(AccountNotFoundException.class);
+
+        verify(pool, never()).getConnection();
+    }
+
     @ParameterizedTest
     @EnumSource(OperationType.class)
     void executeOperation_success(OperationType operationType) {
         // given
-        final var account = buildAccount();
-        final var amount = BigDecimal.TEN;
+        final var operationId = UUID.randomUUID();
+        final var amount = Money.ofMajor(10);
         final var comment = "test operation";
-        final var targetBalance = switch (operationType) {
-            case WITHDRAW -> account.getBalance().subtract(amount);
-            case CREDIT -> account.getBalance().add(amount);
+        final var balanceDelta = switch (operationType) {
+            case WITHDRAW -> amount.negate();
+            case CREDIT -> amount;
         };
 
         // when
-        when(accountDao.findByUserName(pool, USERNAME))
-                .thenReturn(Uni.createFrom().item(account));
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class),
+                eq(balanceDelta)))
+                .thenReturn(Uni.createFrom().item(operationId));
         final var subscriber = billingService.executeOperation(operationType, amount, comment)
                 .subscribe()
                 .withSubscriber(UniAssertSubscriber.create());
 
         // then
-        subscriber.assertCompleted();
+        subscriber.assertItem(operationId);
 
         verify(accountDao, times(1))
-                .updateBalanceById(pool, account.getId(), targetBalance);
-        verify(operationDao, times(1))
-                .insert(eq(pool), argThat(op -> operationType.equals(op.getType())
-                        && account.getId().equals(op.getAccountId()) && op.getRelatedTo() == null
-                        && amount.equals(op.getAmount()) && comment.equals(op.getComment())));
+                .updateBalanceAndInsertOperation(eq(conn), eq(USERNAME),
+                        argThat(op -> operationType.equals(op.getType()) && op.getRelatedTo() == null
+                                && amount.equals(op.getAmount()) && comment.equals(op.getComment())),
+                        eq(balanceDelta));
+        verify(accountDao, never()).findByUserName(conn, USERNAME);
+        verify(accountDao, never())
+                .updateBalanceById(eq(conn), any(UUID.class), any(Money.class), anyLong());
+        verify(pool, never()).withTransaction(any());
+
+        assertEquals(1, meterRegistry.get("billing.pool.acquire").timer().count());
+        assertEquals(0.0, meterRegistry.get("billing.pool.connections.active").gauge().value());
+        assertEquals(0.0, meterRegistry.get("billing.pool.transactions.active").gauge().value());
     }
 
     @ParameterizedTest
     @EnumSource(OperationType.class)
-    void executeOperation_accountNotFound(OperationType operationType) {
+    void executeOperation_dispatched(OperationType operationType) {
+        // given
+        final var account = buildAccount();
+        final var operationId = UUID.randomUUID();
+        final var amount = Money.ofMajor(10);
+        final var balanceDelta = switch (operationType) {
+            case WITHDRAW -> amount.negate();
+            case CREDIT -> amount;
+        };
+
+        // when
+        when(dispatcherConfig.enabled())
+                .thenReturn(true);
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(account));
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class),
+                eq(balanceDelta)))
+                .thenReturn(Uni.createFrom().item(operationId));
+        final var subscriber = billingService.executeOperation(operationType, amount, "test operation")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertItem(operationId);
+
+        verify(accountDao, never()).findByUserNameForUpdate(any(), any());
+    }
+
+    @Test
+    void executeOperation_journaled() {
         // given
         final var account = buildAccount();
-        final var amount = BigDecimal.TEN;
+        final var operationId = UUID.randomUUID();
+        final var amount = Money.ofMajor(10);
+        final var comment = "test operation";
+
+        // when
+        when(creditJournal.isEnabled())
+                .thenReturn(true);
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(account));
+        when(creditJournal.append(ACCOUNT_ID, amount, comment))
+                .thenReturn(Uni.createFrom().item(operationId));
+        final var subscriber = billingService.executeOperation(OperationType.CREDIT, amount, comment)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertItem(operationId);
+
+        verify(accountDao, never()).updateBalanceAndInsertOperation(any(), any(), any(), any());
+    }
+
+    @Test
+    void executeOperation_journalFull() {
+        // given
+        final var account = buildAccount();
+        final var operationId = UUID.randomUUID();
+        final var amount = Money.ofMajor(10);
+
+        // when
+        when(creditJournal.isEnabled())
+                .thenReturn(true);
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(account));
+        when(creditJournal.append(ACCOUNT_ID, amount, ""))
+                .thenReturn(Uni.createFrom().nullItem());
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class), eq(amount)))
+                .thenReturn(Uni.createFrom().item(operationId));
+        final var subscriber = billingService.executeOperation(OperationType.CREDIT, amount, "")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertItem(operationId);
+    }
+
+    @Test
+    void executeOperation_withdrawNotJournaled() {
+        // given
+        final var operationId = UUID.randomUUID();
+        final var amount = Money.ofMajor(10);
 
         // when
-        when(accountDao.findByUserName(pool, USERNAME))
+        when(creditJournal.isEnabled())
+                .thenReturn(true);
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class),
+                eq(amount.negate())))
+                .thenReturn(Uni.createFrom().item(operationId));
+        final var subscriber = billingService.executeOperation(OperationType.WITHDRAW, amount, "")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertItem(operationId);
+
+        verify(creditJournal, never()).append(any(), any(), any());
+    }
+
+    @Test
+    void executeOperation_nonPositiveCreditNotJournaled() {
+        // given
+        final var amount = Money.ofMajor(10).negate();
+
+        // when
+        when(creditJournal.isEnabled())
+                .thenReturn(true);
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class), eq(amount)))
+                .thenReturn(Uni.createFrom().nullItem());
+        final var subscriber = billingService.executeOperation(OperationType.CREDIT, amount, "")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertFailedWith(InsufficentAccountBalanceException.class);
+
+        verify(creditJournal, never()).append(any(), any(), any());
+    }
+
+    @Test
+    void executeOperation_dispatchedAccountNotFound() {
+        // when
+        when(dispatcherConfig.enabled())
+                .thenReturn(true);
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
+        final var subscriber = billingService.executeOperation(OperationType.CREDIT, Money.ofMajor(10), "")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertFailedWith(AccountNotFoundException.class);
+
+        verify(accountDao, never()).updateBalanceAndInsertOperation(any(), any(), any(), any());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OperationType.class)
+    void executeOperation_accountNotFound(OperationType operationType) {
+        // given
+        final var amount = Money.ofMajor(10);
+
+        // when
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class),
+                any(Money.class)))
                 .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
         final var subscriber = billingService.executeOperation(operationType, amount, "")
                 .subscribe()
@@ -245,11 +777,228 @@ public class BillingServiceImplTest {
 
         // then
         subscriber.assertFailedWith(AccountNotFoundException.class);
+    }
+
+    @Test
+    void executeOperationWithIdempotencyKey_firstAttempt() {
+        // given
+        final var operationId = UUID.randomUUID();
+
+        // when
+        when(idempotencyKeyDao.findOperationId(eq(conn), eq(USERNAME), eq(IDEMPOTENCY_KEY),
+                any(LocalDateTime.class)))
+                .thenReturn(Uni.createFrom().nullItem());
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class),
+                eq(Money.ofMajor(10))))
+                .thenReturn(Uni.createFrom().item(operationId));
+        when(idempotencyKeyDao.insert(eq(conn), eq(USERNAME), eq(IDEMPOTENCY_KEY), eq(operationId),
+                any(LocalDateTime.class)))
+                .thenReturn(Uni.createFrom().voidItem());
+        final var subscriber = billingService
+                .executeOperation(OperationType.CREDIT, Money.ofMajor(10), "", IDEMPOTENCY_KEY)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
 
+        // then
+        subscriber.assertItem(operationId);
+        assertEquals(operationId, idempotencyKeyCache.get(USERNAME, IDEMPOTENCY_KEY, LocalDateTime.now()));
+    }
+
+    @Test
+    void executeOperationWithIdempotencyKey_cached() {
+        // given
+        final var operationId = UUID.randomUUID();
+        idempotencyKeyCache.put(USERNAME, IDEMPOTENCY_KEY, operationId, LocalDateTime.now().plusHours(1));
+
+        // when
+        final var subscriber = billingService
+                .executeOperation(OperationType.CREDIT, Money.ofMajor(10), "", IDEMPOTENCY_KEY)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertItem(operationId);
+
+        verify(idempotencyKeyDao, never())
+                .findOperationId(any(SqlClient.class), anyString(), anyString(), any(LocalDateTime.class));
         verify(accountDao, never())
-                .updateBalanceById(eq(pool), eq(account.getId()), any(BigDecimal.class));
-        verify(operationDao, never())
-                .insert(eq(pool), any(Operation.class));
+                .updateBalanceAndInsertOperation(any(SqlClient.class), anyString(), any(Operation.class),
+                        any(Money.class));
+    }
+
+    @Test
+    void executeOperationWithIdempotencyKey_stored() {
+        // given
+        final var operationId = UUID.randomUUID();
+
+        // when
+        when(idempotencyKeyDao.findOperationId(eq(conn), eq(USERNAME), eq(IDEMPOTENCY_KEY),
+                any(LocalDateTime.class)))
+                .thenReturn(Uni.createFrom().item(operationId));
+        final var subscriber = billingService
+                .executeOperation(OperationType.CREDIT, Money.ofMajor(10), "", IDEMPOTENCY_KEY)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertItem(operationId);
+
+        verify(pool, never()).withTransaction(any());
+        verify(accountDao, never())
+                .updateBalanceAndInsertOperation(any(SqlClient.class), anyString(), any(Operation.class),
+                        any(Money.class));
+    }
+
+    @Test
+    void executeOperationWithIdempotencyKey_concurrentAttempt() {
+        // given
+        final var operationId = UUID.randomUUID();
+        final var winnerOperationId = UUID.randomUUID();
+
+        // when
+        when(idempotencyKeyDao.findOperationId(eq(conn), eq(USERNAME), eq(IDEMPOTENCY_KEY),
+                any(LocalDateTime.class)))
+                .thenReturn(Uni.createFrom().nullItem())
+                .thenReturn(Uni.createFrom().item(winnerOperationId));
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class),
+                eq(Money.ofMajor(10))))
+                .thenReturn(Uni.createFrom().item(operationId));
+        when(idempotencyKeyDao.insert(eq(conn), eq(USERNAME), eq(IDEMPOTENCY_KEY), eq(operationId),
+                any(LocalDateTime.class)))
+                .thenReturn(Uni.createFrom().failure(new DuplicateKeyException("pk_idempotency_keys")));
+        final var subscriber = billingService
+                .executeOperation(OperationType.CREDIT, Money.ofMajor(10), "", IDEMPOTENCY_KEY)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertItem(winnerOperationId);
+    }
+
+    @Test
+    void executeOperationWithIdempotencyKey_accountNotFound() {
+        // when
+        when(idempotencyKeyDao.findOperationId(eq(conn), eq(USERNAME), eq(IDEMPOTENCY_KEY),
+                any(LocalDateTime.class)))
+                .thenReturn(Uni.createFrom().nullItem());
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class),
+                any(Money.class)))
+                .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
+        final var subscriber = billingService
+                .executeOperation(OperationType.CREDIT, Money.ofMajor(10), "", IDEMPOTENCY_KEY)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertFailedWith(AccountNotFoundException.class);
+
+        verify(idempotencyKeyDao, never())
+                .insert(any(SqlClient.class), anyString(), anyString(), any(UUID.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void executeOperationBatch_allOrNothing_success() {
+        // given
+        final var account = buildAccount();
+        final var operations = List.of(
+                buildBatchItem(OperationType.WITHDRAW, Money.ofMajor(10)),
+                buildBatchItem(OperationType.CREDIT, Money.ofMajor(1)),
+                buildBatchItem(OperationType.WITHDRAW, Money.ofMajor(1)));
+
+        // when
+        when(accountDao.findByUserNameForUpdate(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(account));
+        when(operationDao.insertBatch(eq(conn), any()))
+                .thenReturn(Uni.createFrom().voidItem());
+        when(accountDao.updateBalanceById(conn, ACCOUNT_ID, Money.ZERO, VERSION))
+                .thenReturn(Uni.createFrom().voidItem());
+        final var results = billingService.executeOperationBatch(operations, OperationBatchMode.ALL_OR_NOTHING)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted()
+                .getItem();
+
+        // then
+        assertEquals(3, results.size());
+        assertTrue(results.stream().allMatch(result -> result.getOperationId() != null && result.getError() == null));
+
+        verify(operationDao, times(1)).insertBatch(eq(conn), argThat(batch -> batch.size() == 3
+                && batch.stream().allMatch(op -> op.getId() != null && ACCOUNT_ID.equals(op.getAccountId()))));
+        verify(accountDao, times(1)).updateBalanceById(conn, ACCOUNT_ID, Money.ZERO, VERSION);
+    }
+
+    @Test
+    void executeOperationBatch_allOrNothing_insufficentAccountBalance() {
+        // given
+        final var account = buildAccount();
+        final var operations = List.of(
+                buildBatchItem(OperationType.WITHDRAW, Money.ofMajor(10)),
+                buildBatchItem(OperationType.WITHDRAW, Money.ofMajor(1)));
+
+        // when
+        when(accountDao.findByUserNameForUpdate(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(account));
+        final var subscriber = billingService.executeOperationBatch(operations, OperationBatchMode.ALL_OR_NOTHING)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertFailedWith(InsufficentAccountBalanceException.class);
+
+        verify(operationDao, never()).insertBatch(any(SqlClient.class), any());
+        verify(accountDao, never()).updateBalanceById(any(SqlClient.class), any(UUID.class), any(Money.class),
+                anyLong());
+    }
+
+    @Test
+    void executeOperationBatch_perItem() {
+        // given
+        final var account = buildAccount();
+        final var operations = List.of(
+                buildBatchItem(OperationType.WITHDRAW, Money.ofMajor(11)),
+                buildBatchItem(OperationType.WITHDRAW, Money.ofMajor(1)),
+                buildBatchItem(OperationType.CREDIT, Money.ofMajor(10)));
+
+        // when
+        when(accountDao.findByUserNameForUpdate(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(account));
+        when(operationDao.insertBatch(eq(conn), any()))
+                .thenReturn(Uni.createFrom().voidItem());
+        when(accountDao.updateBalanceById(conn, ACCOUNT_ID, Money.ofMajor(19), VERSION))
+                .thenReturn(Uni.createFrom().voidItem());
+        final var results = billingService.executeOperationBatch(operations, OperationBatchMode.PER_ITEM)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted()
+                .getItem();
+
+        // then
+        assertNull(results.get(0).getOperationId());
+        assertEquals("insufficent account balance", results.get(0).getError());
+        assertNotNull(results.get(1).getOperationId());
+        assertNotNull(results.get(2).getOperationId());
+
+        verify(operationDao, times(1)).insertBatch(eq(conn), argThat(batch -> batch.size() == 2));
+        verify(accountDao, times(1)).updateBalanceById(conn, ACCOUNT_ID, Money.ofMajor(19), VERSION);
+    }
+
+    @Test
+    void executeOperationBatch_accountNotFound() {
+        // when
+        when(accountDao.findByUserNameForUpdate(conn, USERNAME))
+                .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
+        final var subscriber = billingService
+                .executeOperationBatch(List.of(buildBatchItem(OperationType.CREDIT, Money.ofMajor(1))),
+                        OperationBatchMode.PER_ITEM)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertFailedWith(AccountNotFoundException.class);
+
+        assertEquals(1, meterRegistry.get("billing.pool.acquire").timer().count());
+        assertEquals(0.0, meterRegistry.get("billing.pool.requests.waiting").gauge().value());
+        assertEquals(0.0, meterRegistry.get("billing.pool.transactions.active").gauge().value());
     }
 
     @ParameterizedTest
@@ -258,10 +1007,11 @@ public class BillingServiceImplTest {
         // given
         final var account = buildAccount();
         final var operation = buildOperation(operationType);
+        final var cancelOperationId = UUID.randomUUID();
         final var comment = "cancel operation comment";
-        final var targetBalance = switch (operationType) { // REVERSE! It's OK here
-            case WITHDRAW -> account.getBalance().add(operation.getAmount());
-            case CREDIT -> account.getBalance().subtract(operation.getAmount());
+        final var balanceDelta = switch (operationType) { // REVERSE! It's OK here
+            case WITHDRAW -> operation.getAmount();
+            case CREDIT -> operation.getAmount().negate();
         };
         final var targetOperationType = switch (operationType) {
             case CREDIT -> OperationType.WITHDRAW;
@@ -269,25 +1019,29 @@ public class BillingServiceImplTest {
         };
 
         // when
-        when(operationDao.findById(pool, operation.getId()))
+        when(operationDao.findByIdForUpdate(conn, operation.getId()))
                 .thenReturn(Uni.createFrom().item(operation));
-        when(accountDao.findById(pool, account.getId()))
+        when(accountDao.findById(conn, account.getId()))
                 .thenReturn(Uni.createFrom().item(account));
+        when(operationDao.isCanceled(conn, operation.getId()))
+                .thenReturn(Uni.createFrom().item(false));
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class),
+                eq(balanceDelta)))
+                .thenReturn(Uni.createFrom().item(cancelOperationId));
         final var subscriber = billingService.cancelOperation(operation.getId(), comment)
                 .subscribe()
                 .withSubscriber(UniAssertSubscriber.create());
 
         // then
-        subscriber.assertCompleted();
+        subscriber.assertItem(cancelOperationId);
 
         verify(accountDao, times(1))
-                .updateBalanceById(pool, account.getId(), targetBalance);
-        verify(operationDao, times(1))
-                .insert(eq(pool), argThat(op -> targetOperationType.equals(op.getType())
-                        && account.getId().equals(op.getAccountId())
-                        && operation.getId().equals(op.getRelatedTo())
-                        && operation.getAmount().equals(op.getAmount())
-                        && comment.equals(op.getComment())));
+                .updateBalanceAndInsertOperation(eq(conn), eq(USERNAME),
+                        argThat(op -> targetOperationType.equals(op.getType())
+                                && operation.getId().equals(op.getRelatedTo())
+                                && operation.getAmount().equals(op.getAmount())
+                                && comment.equals(op.getComment())),
+                        eq(balanceDelta));
     }
 
     @ParameterizedTest
@@ -297,7 +1051,7 @@ public class BillingServiceImplTest {
         final var operationId = UUID.randomUUID();
 
         // when
-        when(operationDao.findById(pool, operationId))
+        when(operationDao.findByIdForUpdate(conn, operationId))
                 .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
         final var subscriber = billingService.cancelOperation(operationId, "")
                 .subscribe()
@@ -310,9 +1064,8 @@ public class BillingServiceImplTest {
         assertEquals(operationId, failure.getOperationId());
 
         verify(accountDao, never())
-                .updateBalanceById(eq(pool), any(UUID.class), any(BigDecimal.class));
-        verify(operationDao, never())
-                .insert(eq(pool), any(Operation.class));
+                .updateBalanceAndInsertOperation(eq(conn), anyString(), any(Operation.class),
+                        any(Money.class));
     }
 
     @ParameterizedTest
@@ -322,9 +1075,9 @@ public class BillingServiceImplTest {
         final var operation = buildOperation(operationType);
 
         // when
-        when(operationDao.findById(pool, operation.getId()))
+        when(operationDao.findByIdForUpdate(conn, operation.getId()))
                 .thenReturn(Uni.createFrom().item(operation));
-        when(accountDao.findById(pool, ACCOUNT_ID))
+        when(accountDao.findById(conn, ACCOUNT_ID))
                 .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
         final var subscriber = billingService.cancelOperation(operation.getId(), "")
                 .subscribe()
@@ -337,9 +1090,8 @@ public class BillingServiceImplTest {
         assertEquals(ACCOUNT_ID, failure.getAccountId());
 
         verify(accountDao, never())
-                .updateBalanceById(eq(pool), any(UUID.class), any(BigDecimal.class));
-        verify(operationDao, never())
-                .insert(eq(pool), any(Operation.class));
+                .updateBalanceAndInsertOperation(eq(conn), anyString(), any(Operation.class),
+                        any(Money.class));
     }
 
     @ParameterizedTest
@@ -351,9 +1103,9 @@ public class BillingServiceImplTest {
 
         // when
         account.setUserName("other-user");
-        when(operationDao.findById(pool, operation.getId()))
+        when(operationDao.findByIdForUpdate(conn, operation.getId()))
                 .thenReturn(Uni.createFrom().item(operation));
-        when(accountDao.findById(pool, account.getId()))
+        when(accountDao.findById(conn, account.getId()))
                 .thenReturn(Uni.createFrom().item(account));
         final var subscriber = billingService.cancelOperation(operation.getId(), "")
                 .subscribe()
@@ -366,23 +1118,53 @@ public class BillingServiceImplTest {
         assertEquals(operation.getId(), failure.getOperationId());
 
         verify(accountDao, never())
-                .updateBalanceById(eq(pool), any(UUID.class), any(BigDecimal.class));
-        verify(operationDao, never())
-                .insert(eq(pool), any(Operation.class));
+                .updateBalanceAndInsertOperation(eq(conn), anyString(), any(Operation.class),
+                        any(Money.class));
     }
 
     @ParameterizedTest
     @EnumSource(OperationType.class)
     void cancelOperation_operationAlreadyCanceled(OperationType operationType) {
         // given
+        final var account = buildAccount();
+        final var operation = buildOperation(operationType);
+
+        // when
+        when(operationDao.findByIdForUpdate(conn, operation.getId()))
+                .thenReturn(Uni.createFrom().item(operation));
+        when(accountDao.findById(conn, account.getId()))
+                .thenReturn(Uni.createFrom().item(account));
+        when(operationDao.isCanceled(conn, operation.getId()))
+                .thenReturn(Uni.createFrom().item(false));
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class),
+                any(Money.class)))
+                .thenReturn(Uni.createFrom()
+                        .failure(new DuplicateKeyException(OperationDao.RELATED_TO_UNIQUE_CONSTRAINT)));
+        final var subscriber = billingService.cancelOperation(operation.getId(), "")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        final var failure = (OperationAlreadyCanceledException) subscriber
+                .assertFailedWith(OperationAlreadyCanceledException.class)
+                .getFailure();
+        assertEquals(operation.getId(), failure.getOperationId());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OperationType.class)
+    void cancelOperation_operationAlreadyCanceledBeforeBalanceCheck(OperationType operationType) {
+        // given
+        final var account = buildAccount();
         final var operation = buildOperation(operationType);
 
         // when
-        operation.setRelatedTo(UUID.randomUUID());
-        when(operationDao.findById(pool, operation.getId()))
+        when(operationDao.findByIdForUpdate(conn, operation.getId()))
                 .thenReturn(Uni.createFrom().item(operation));
-        when(operationDao.countByRelatedTo(pool, operation.getId()))
-                .thenReturn(Uni.createFrom().item(1L));
+        when(accountDao.findById(conn, account.getId()))
+                .thenReturn(Uni.createFrom().item(account));
+        when(operationDao.isCanceled(conn, operation.getId()))
+                .thenReturn(Uni.createFrom().item(true));
         final var subscriber = billingService.cancelOperation(operation.getId(), "")
                 .subscribe()
                 .withSubscriber(UniAssertSubscriber.create());
@@ -394,20 +1176,44 @@ public class BillingServiceImplTest {
         assertEquals(operation.getId(), failure.getOperationId());
 
         verify(accountDao, never())
-                .updateBalanceById(eq(pool), any(UUID.class), any(BigDecimal.class));
-        verify(operationDao, never())
-                .insert(eq(pool), any(Operation.class));
+                .updateBalanceAndInsertOperation(eq(conn), anyString(), any(Operation.class),
+                        any(Money.class));
     }
 
-    @Test
-    void executeWithdrawal_insufficentAccountBalance() {
+    @ParameterizedTest
+    @EnumSource(OperationType.class)
+    void cancelOperation_otherDuplicateKey(OperationType operationType) {
         // given
         final var account = buildAccount();
-        final var amount = account.getBalance().add(BigDecimal.TEN);
+        final var operation = buildOperation(operationType);
 
         // when
-        when(accountDao.findByUserName(pool, USERNAME))
+        when(operationDao.findByIdForUpdate(conn, operation.getId()))
+                .thenReturn(Uni.createFrom().item(operation));
+        when(accountDao.findById(conn, account.getId()))
                 .thenReturn(Uni.createFrom().item(account));
+        when(operationDao.isCanceled(conn, operation.getId()))
+                .thenReturn(Uni.createFrom().item(false));
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class),
+                any(Money.class)))
+                .thenReturn(Uni.createFrom().failure(new DuplicateKeyException("operations_pkey")));
+        final var subscriber = billingService.cancelOperation(operation.getId(), "")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertFailedWith(DuplicateKeyException.class);
+    }
+
+    @Test
+    void executeWithdrawal_insufficentAccountBalance() {
+        // given
+        final var amount = Money.ofMajor(10);
+
+        // when
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class),
+                eq(amount.negate())))
+                .thenReturn(Uni.createFrom().nullItem());
         final var subscriber = billingService.executeOperation(OperationType.WITHDRAW, amount, "")
                 .subscribe()
                 .withSubscriber(UniAssertSubscriber.create());
@@ -415,10 +1221,73 @@ public class BillingServiceImplTest {
         // then
         subscriber.assertFailedWith(InsufficentAccountBalanceException.class);
 
-        verify(accountDao, never())
-                .updateBalanceById(eq(pool), eq(account.getId()), any(BigDecimal.class));
         verify(operationDao, never())
-                .insert(eq(pool), any(Operation.class));
+                .insert(eq(conn), any(Operation.class));
+    }
+
+    @Test
+    void executeOperation_concurrentOperationsKeepBalanceConsistent() throws Exception {
+        // given
+        final var threads = 16;
+        final var operationsPerThread = 500;
+        final var balance = new AtomicReference<>(Money.ofMajor(10));
+        final var credited = new AtomicReference<>(Money.ZERO);
+        final var withdrawn = new AtomicReference<>(Money.ZERO);
+
+        // when
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class),
+                any(Money.class)))
+                .then(inv -> {
+                    final Money balanceDelta = inv.getArgument(3);
+                    return Uni.createFrom().item(() -> {
+                        while (true) {
+                            final var current = balance.get();
+                            final var target = current.plus(balanceDelta);
+                            if (target.signum() < 0) {
+                                return null;
+                            }
+                            if (balance.compareAndSet(current, target)) {
+                                return UUID.randomUUID();
+                            }
+                        }
+                    });
+                });
+
+        final var executor = Executors.newFixedThreadPool(threads);
+        try {
+            final var tasks = new ArrayList<Callable<Void>>();
+            for (int i = 0; i < threads; i++) {
+                final var operationType = i % 2 == 0 ? OperationType.WITHDRAW : OperationType.CREDIT;
+                tasks.add(() -> {
+                    for (int j = 0; j < operationsPerThread; j++) {
+                        final var amount = Money.ofMajor(j % 7 + 1);
+                        try {
+                            billingService.executeOperation(operationType, amount, "").await().indefinitely();
+                            final var total = operationType == OperationType.CREDIT ? credited : withdrawn;
+                            total.accumulateAndGet(amount, Money::plus);
+                        } catch (InsufficentAccountBalanceException ex) {
+                            // rejected withdrawal leaves the balance untouched
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (var future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // then
+        assertEquals(Money.ofMajor(10).plus(credited.get()).minus(withdrawn.get()), balance.get());
+        assertTrue(balance.get().signum() >= 0);
+
+        verify(accountDao, times(threads * operationsPerThread))
+                .updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class),
+                        any(Money.class));
+        verify(accountDao, never()).findByUserName(any(SqlClient.class), anyString());
+        verify(pool, never()).withTransaction(any());
     }
 
     private static Operation buildOperation(OperationType operationType) {
@@ -426,7 +1295,16 @@ public class BillingServiceImplTest {
                 .id(UUID.randomUUID())
                 .accountId(ACCOUNT_ID)
                 .type(operationType)
-                .amount(BigDecimal.TEN)
+                .amount(Money.ofMajor(10))
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static Operation buildBatchItem(OperationType operationType, Money amount) {
+        return Operation.builder()
+                .type(operationType)
+                .amount(amount)
+                .comment("batch item")
                 .build();
     }
 
@@ -434,7 +1312,9 @@ public class BillingServiceImplTest {
         return Account.builder()
                 .id(ACCOUNT_ID)
                 .userName(USERNAME)
-                .balance(BigDecimal.TEN)
+                .balance(Money.ofMajor(10))
+                .version(VERSION)
+                .createdAt(LocalDateTime.of(2024, 1, 1, 0, 0))
                 .build();
     }
 }
@@ -0,0 +1,294 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.auwerk.otus.arch.billingservice.config.DispatcherConfig;
+import org.auwerk.otus.arch.billingservice.config.IdempotencyConfig;
+import org.auwerk.otus.arch.billingservice.config.ServiceConfig;
+import org.auwerk.otus.arch.billingservice.dao.AccountDao;
+import org.auwerk.otus.arch.billingservice.dao.AccountDeletionDao;
+import org.auwerk.otus.arch.billingservice.dao.AccountTotalsDao;
+import org.auwerk.otus.arch.billingservice.dao.IdempotencyKeyDao;
+import org.auwerk.otus.arch.billingservice.dao.OperationDao;
+import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.AccountBalance;
+import org.auwerk.otus.arch.billingservice.domain.AccountMetadata;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationType;
+import org.auwerk.otus.arch.billingservice.domain.ServiceExecutor;
+import org.auwerk.otus.arch.billingservice.exception.AccountNotFoundException;
+import org.auwerk.otus.arch.billingservice.exception.DuplicateKeyException;
+import org.auwerk.otus.arch.billingservice.exception.InsufficentAccountBalanceException;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.auwerk.otus.arch.billingservice.service.BillingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.cache.CaffeineCache;
+import io.quarkus.security.identity.SecurityIdentity;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+import io.vertx.mutiny.sqlclient.Transaction;
+
+public class BlockingBillingServiceImplTest {
+
+    private static final String USERNAME = "user";
+
+    private static final UUID ACCOUNT_ID = UUID.randomUUID();
+
+    private static final long VERSION = 7;
+
+    private static final String IDEMPOTENCY_KEY = "idempotency-key";
+
+    private final PgPool pool = mock(PgPool.class);
+    private final SqlConnection conn = mock(SqlConnection.class);
+    private final Transaction tx = mock(Transaction.class);
+    private final AccountDao accountDao = mock(AccountDao.class);
+    private final OperationDao operationDao = mock(OperationDao.class);
+    private final IdempotencyKeyDao idempotencyKeyDao = mock(IdempotencyKeyDao.class);
+    private final IdempotencyConfig idempotencyConfig = mock(IdempotencyConfig.class);
+    private final DispatcherConfig dispatcherConfig = mock(DispatcherConfig.class);
+    private final ServiceConfig serviceConfig = mock(ServiceConfig.class);
+    private final CreditJournal creditJournal = mock(CreditJournal.class);
+    private final SecurityIdentity securityIdentity = mock(SecurityIdentity.class);
+    private final CaffeineCache accountCache = mock(CaffeineCache.class);
+    private BillingService billingService;
+
+    @BeforeEach
+    void createService() {
+        when(idempotencyConfig.ttl()).thenReturn(Duration.ofHours(1));
+        when(idempotencyConfig.cacheSize()).thenReturn(10);
+        when(dispatcherConfig.stripes()).thenReturn(4);
+        when(dispatcherConfig.queueCapacity()).thenReturn(16);
+        when(dispatcherConfig.maxBatchSize()).thenReturn(8);
+        when(serviceConfig.executor()).thenReturn(ServiceExecutor.WORKER);
+        final var poolMetrics = new PoolMetrics(new SimpleMeterRegistry(), 20);
+        final var idempotencyKeyCache = new IdempotencyKeyCache(idempotencyConfig);
+        final var accountMetadataCache = new AccountMetadataCache(accountCache, poolMetrics, accountDao);
+        final var balanceStore = new InPlaceBalanceStore(poolMetrics, accountDao, operationDao);
+        final var reactive = new BillingServiceImpl(pool, poolMetrics, accountDao, mock(AccountDeletionDao.class),
+                mock(AccountTotalsDao.class), operationDao, idempotencyKeyDao, idempotencyKeyCache,
+                idempotencyConfig, accountMetadataCache, balanceStore,
+                new AccountOperationDispatcher(dispatcherConfig), creditJournal, securityIdentity);
+        billingService = new BlockingBillingServiceImpl(reactive, pool, poolMetrics, accountDao, operationDao,
+                idempotencyKeyDao, idempotencyKeyCache, idempotencyConfig, accountMetadataCache, balanceStore,
+                creditJournal, securityIdentity, serviceConfig);
+    }
+
+    @BeforeEach
+    void mockAccountCache() {
+        when(accountCache.as(CaffeineCache.class))
+                .thenReturn(accountCache);
+    }
+
+    @BeforeEach
+    void mockTransaction() {
+        when(pool.getConnectionAndAwait()).thenReturn(conn);
+        when(conn.beginAndAwait()).thenReturn(tx);
+    }
+
+    @BeforeEach
+    void mockConnection() {
+        when(pool.withConnection(any()))
+                .then(inv -> {
+                    final Function<SqlConnection, Uni<Object>> f = inv.getArgument(0);
+                    return f.apply(conn);
+                });
+    }
+
+    @BeforeEach
+    void mockUser() {
+        var principal = mock(Principal.class);
+        when(principal.getName()).thenReturn(USERNAME);
+        when(securityIdentity.getPrincipal()).thenReturn(principal);
+    }
+
+    @Test
+    void getUserAccountWithOperations_success() {
+        // given
+        final var account = buildAccount();
+        final var operations = List.of(
+                Operation.builder().build(),
+                Operation.builder().build());
+
+        // when
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(account));
+        when(accountDao.findBalanceById(conn, ACCOUNT_ID))
+                .thenReturn(Uni.createFrom().item(AccountBalance.builder()
+                        .balance(account.getBalance())
+                        .version(VERSION)
+                        .build()));
+        when(operationDao.findByAccountId(conn, ACCOUNT_ID, account.getCreatedAt(), null,
+                BillingServiceImpl.ACCOUNT_OPERATIONS_LIMIT + 1))
+                .thenReturn(Uni.createFrom().item(operations));
+        final var subscriber = billingService.getUserAccount(true).subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        final var result = subscriber.awaitItem().getItem();
+        assertEquals(ACCOUNT_ID, result.getId());
+        assertEquals(account.getBalance(), result.getBalance());
+        assertEquals(VERSION, (long) result.getVersion());
+        assertEquals(operations, result.getOperations());
+    }
+
+    @Test
+    void getUserAccount_accountNotFound() {
+        // when
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
+        final var subscriber = billingService.getUserAccount(false).subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.awaitFailure().assertFailedWith(AccountNotFoundException.class);
+    }
+
+    @Test
+    void executeOperation_success() {
+        // given
+        final var operationId = UUID.randomUUID();
+        final var callerThread = Thread.currentThread();
+        final var daoThread = new AtomicReference<Thread>();
+
+        // when
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class),
+                eq(Money.ofMajor(10).negate())))
+                .then(inv -> {
+                    daoThread.set(Thread.currentThread());
+                    return Uni.createFrom().item(operationId);
+                });
+        final var subscriber = billingService.executeOperation(OperationType.WITHDRAW, Money.ofMajor(10), "")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.awaitItem().assertItem(operationId);
+        assertNotEquals(callerThread, daoThread.get());
+    }
+
+    @Test
+    void executeOperation_insufficientBalance() {
+        // when
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class),
+                any(Money.class)))
+                .thenReturn(Uni.createFrom().nullItem());
+        final var subscriber = billingService.executeOperation(OperationType.WITHDRAW, Money.ofMajor(10), "")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.awaitFailure().assertFailedWith(InsufficentAccountBalanceException.class);
+    }
+
+    @Test
+    void executeOperation_journaled() {
+        // given
+        final var account = buildAccount();
+        final var operationId = UUID.randomUUID();
+
+        // when
+        when(creditJournal.isEnabled())
+                .thenReturn(true);
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(account));
+        when(creditJournal.append(ACCOUNT_ID, Money.ofMajor(10), ""))
+                .thenReturn(Uni.createFrom().item(operationId));
+        final var subscriber = billingService.executeOperation(OperationType.CREDIT, Money.ofMajor(10), "")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.awaitItem().assertItem(operationId);
+
+        verify(accountDao, never()).updateBalanceAndInsertOperation(any(), any(), any(), any());
+    }
+
+    @Test
+    void executeIdempotentOperation_success() {
+        // given
+        final var operationId = UUID.randomUUID();
+
+        // when
+        when(idempotencyKeyDao.findOperationId(eq(conn), eq(USERNAME), eq(IDEMPOTENCY_KEY),
+                any(LocalDateTime.class)))
+                .thenReturn(Uni.createFrom().nullItem());
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class),
+                eq(Money.ofMajor(10))))
+                .thenReturn(Uni.createFrom().item(operationId));
+        when(idempotencyKeyDao.insert(eq(conn), eq(USERNAME), eq(IDEMPOTENCY_KEY), eq(operationId),
+                any(LocalDateTime.class)))
+                .thenReturn(Uni.createFrom().voidItem());
+        final var subscriber = billingService
+                .executeOperation(OperationType.CREDIT, Money.ofMajor(10), "", IDEMPOTENCY_KEY)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.awaitItem().assertItem(operationId);
+
+        verify(tx, times(1)).commitAndAwait();
+        verify(tx, never()).rollbackAndAwait();
+        verify(conn, times(1)).closeAndAwait();
+    }
+
+    @Test
+    void executeIdempotentOperation_concurrentDuplicate() {
+        // given
+        final var operationId = UUID.randomUUID();
+        final var concurrentOperationId = UUID.randomUUID();
+
+        // when
+        when(idempotencyKeyDao.findOperationId(eq(conn), eq(USERNAME), eq(IDEMPOTENCY_KEY),
+                any(LocalDateTime.class)))
+                .thenReturn(Uni.createFrom().nullItem())
+                .thenReturn(Uni.createFrom().item(concurrentOperationId));
+        when(accountDao.updateBalanceAndInsertOperation(eq(conn), eq(USERNAME), any(Operation.class),
+                eq(Money.ofMajor(10))))
+                .thenReturn(Uni.createFrom().item(operationId));
+        when(idempotencyKeyDao.insert(eq(conn), eq(USERNAME), eq(IDEMPOTENCY_KEY), eq(operationId),
+                any(LocalDateTime.class)))
+                .thenReturn(Uni.createFrom().failure(new DuplicateKeyException("pk_idempotency_keys")));
+        final var subscriber = billingService
+                .executeOperation(OperationType.CREDIT, Money.ofMajor(10), "", IDEMPOTENCY_KEY)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.awaitItem().assertItem(concurrentOperationId);
+
+        verify(tx, never()).commitAndAwait();
+        verify(tx, times(1)).rollbackAndAwait();
+        verify(conn, times(1)).closeAndAwait();
+    }
+
+    private static Account buildAccount() {
+        return Account.builder()
+                .id(ACCOUNT_ID)
+                .userName(USERNAME)
+                .balance(Money.ofMajor(10))
+                .build();
+    }
+}
@@ -0,0 +1,253 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.auwerk.otus.arch.billingservice.config.JournalConfig;
+import org.auwerk.otus.arch.billingservice.dao.AccountDao;
+import org.auwerk.otus.arch.billingservice.dao.OperationDao;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+import io.vertx.pgclient.PgException;
+
+public class CreditJournalTest {
+
+    private static final UUID ACCOUNT_ID = UUID.randomUUID();
+
+    private final JournalConfig config = mock(JournalConfig.class);
+    private final PgPool pool = mock(PgPool.class);
+    private final SqlConnection conn = mock(SqlConnection.class);
+    private final BalanceStore balanceStore = mock(BalanceStore.class);
+    private final AccountDao accountDao = mock(AccountDao.class);
+    private final OperationDao operationDao = mock(OperationDao.class);
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @TempDir
+    Path dir;
+
+    private Path journalPath;
+    private Path deadLetterPath;
+
+    @BeforeEach
+    void mockConfig() {
+        journalPath = dir.resolve("credit-journal.log");
+        deadLetterPath = dir.resolve("credit-journal.dead.log");
+        when(config.enabled()).thenReturn(true);
+        when(config.path()).thenReturn(journalPath.toString());
+        when(config.deadLetterPath()).thenReturn(deadLetterPath.toString());
+        when(config.flushInterval()).thenReturn(Duration.ofMillis(1));
+        when(config.maxBatchSize()).thenReturn(10);
+        when(config.queueCapacity()).thenReturn(100);
+    }
+
+    @BeforeEach
+    void mockTransaction() {
+        when(pool.withTransaction(any()))
+                .then(inv -> {
+                    final Function<SqlConnection, Uni<Void>> f = inv.getArgument(0);
+                    return f.apply(conn);
+                });
+        when(operationDao.findExistingIds(eq(conn), anyList(), any()))
+                .thenReturn(Uni.createFrom().item(Set.of()));
+        when(accountDao.findActiveIds(eq(conn), any()))
+                .thenReturn(Uni.createFrom().item(Set.of(ACCOUNT_ID)));
+    }
+
+    @Test
+    void append_acknowledgedAfterGroupCommit() throws Exception {
+        // given
+        final var journal = createJournal();
+
+        // when
+        when(balanceStore.applyCredits(eq(conn), anyList()))
+                .thenReturn(Uni.createFrom().voidItem());
+        journal.start();
+        final var operationIds = Uni.join()
+                .all(journal.append(ACCOUNT_ID, Money.ofMajor(1), "first"),
+                        journal.append(ACCOUNT_ID, Money.ofMajor(10), "second"))
+                .andFailFast()
+                .await().atMost(Duration.ofSeconds(5));
+        journal.stop();
+
+        // then
+        assertEquals(2, operationIds.size());
+        operationIds.forEach(id -> assertNotNull(id));
+
+        verify(balanceStore, timeout(1000).atLeastOnce()).applyCredits(eq(conn),
+                argThat(operations -> operations.stream().allMatch(op -> ACCOUNT_ID.equals(op.getAccountId()))));
+        assertEquals(0, Files.size(journalPath));
+    }
+
+    @Test
+    void append_persistFailureRetried() throws Exception {
+        // given
+        final var journal = createJournal();
+
+        // when
+        when(balanceStore.applyCredits(eq(conn), anyList()))
+                .thenReturn(Uni.createFrom().failure(new RuntimeException("database is down")))
+                .thenReturn(Uni.createFrom().voidItem());
+        journal.start();
+        final var operationId = journal.append(ACCOUNT_ID, Money.ofMajor(1), "")
+                .await().atMost(Duration.ofSeconds(5));
+
+        // then
+        assertNotNull(operationId);
+
+        verify(balanceStore, timeout(1000).times(2)).applyCredits(eq(conn),
+                argThat(operations -> operations.size() == 1 && operationId.equals(operations.get(0).getId())));
+        journal.stop();
+        assertEquals(0, Files.size(journalPath));
+    }
+
+    @Test
+    void append_constraintViolationDeadLettered() throws Exception {
+        // given
+        final var purgedAccountId = UUID.randomUUID();
+        final var journal = createJournal();
+
+        // when
+        when(accountDao.findActiveIds(eq(conn), any()))
+                .thenReturn(Uni.createFrom().item(Set.of(ACCOUNT_ID, purgedAccountId)));
+        when(balanceStore.applyCredits(eq(conn), anyList()))
+                .then(inv -> {
+                    final List<Operation> operations = inv.getArgument(1);
+                    if (operations.stream().anyMatch(op -> purgedAccountId.equals(op.getAccountId()))) {
+                        return Uni.createFrom().failure(new PgException("violates foreign key constraint", "ERROR",
+                                "23503", null));
+                    }
+                    return Uni.createFrom().voidItem();
+                });
+        journal.start();
+        final var operationIds = Uni.join()
+                .all(journal.append(ACCOUNT_ID, Money.ofMajor(1), "first"),
+                        journal.append(purgedAccountId, Money.ofMajor(2), "purged"),
+                        journal.append(ACCOUNT_ID, Money.ofMajor(3), "third"))
+                .andFailFast()
+                .await().atMost(Duration.ofSeconds(5));
+        journal.stop();
+
+        // then
+        verify(balanceStore, timeout(1000).atLeastOnce()).applyCredits(eq(conn),
+                argThat(operations -> operations.size() == 1 && operationIds.get(0).equals(operations.get(0).getId())));
+        verify(balanceStore, timeout(1000).atLeastOnce()).applyCredits(eq(conn),
+                argThat(operations -> operations.size() == 1 && operationIds.get(2).equals(operations.get(0).getId())));
+        assertEquals(0, Files.size(journalPath));
+        final var deadLetters = Files.readAllLines(deadLetterPath);
+        assertEquals(1, deadLetters.size());
+        assertTrue(deadLetters.get(0).contains(operationIds.get(1).toString()));
+    }
+
+    @Test
+    void append_deletedAccountDeadLettered() throws Exception {
+        // given
+        final var deletedAccountId = UUID.randomUUID();
+        final var journal = createJournal();
+
+        // when
+        when(balanceStore.applyCredits(eq(conn), anyList()))
+                .thenReturn(Uni.createFrom().voidItem());
+        journal.start();
+        final var operationId = journal.append(deletedAccountId, Money.ofMajor(1), "")
+                .await().atMost(Duration.ofSeconds(5));
+        journal.stop();
+
+        // then
+        verify(balanceStore, never()).applyCredits(eq(conn), anyList());
+        assertEquals(0, Files.size(journalPath));
+        final var deadLetters = Files.readAllLines(deadLetterPath);
+        assertEquals(1, deadLetters.size());
+        assertTrue(deadLetters.get(0).contains(operationId.toString()));
+    }
+
+    @Test
+    void append_journalFull() {
+        // given
+        when(config.queueCapacity()).thenReturn(1);
+        final var journal = createJournal();
+
+        // when
+        journal.append(ACCOUNT_ID, Money.ofMajor(1), "").subscribe().with(id -> {
+        });
+        final var operationId = journal.append(ACCOUNT_ID, Money.ofMajor(1), "")
+                .await().atMost(Duration.ofSeconds(1));
+
+        // then
+        assertNull(operationId);
+    }
+
+    @Test
+    void start_replaysJournalFile() throws Exception {
+        // given
+        final var persistedId = UUID.randomUUID();
+        final var missingId = UUID.randomUUID();
+        Files.writeString(journalPath, journalLine(persistedId) + "\n" + journalLine(missingId) + "\n{\"id\":");
+        final var journal = createJournal();
+
+        // when
+        when(operationDao.findExistingIds(eq(conn), anyList(), any()))
+                .thenReturn(Uni.createFrom().item(Set.of(persistedId)));
+        when(balanceStore.applyCredits(eq(conn), anyList()))
+                .thenReturn(Uni.createFrom().voidItem());
+        journal.start();
+        journal.stop();
+
+        // then
+        verify(operationDao).findExistingIds(eq(conn), eq(List.of(persistedId, missingId)), any());
+        verify(balanceStore).applyCredits(eq(conn),
+                argThat(operations -> operations.size() == 1 && missingId.equals(operations.get(0).getId())));
+        assertEquals(0, Files.size(journalPath));
+    }
+
+    private CreditJournal createJournal() {
+        return new CreditJournal(config, pool, new PoolMetrics(new SimpleMeterRegistry(), 20), balanceStore,
+                accountDao, operationDao, objectMapper);
+    }
+
+    private String journalLine(UUID id) throws Exception {
+        final var operation = Operation.builder()
+                .id(id)
+                .accountId(ACCOUNT_ID)
+                .amount(Money.ofMajor(1))
+                .createdAt(LocalDateTime.now())
+                .build();
+        return String.format("{\"id\":\"%s\",\"accountId\":\"%s\",\"amount\":%s,\"comment\":null,\"createdAt\":%s}",
+                operation.getId(), operation.getAccountId(), operation.getAmount(),
+                objectMapper.writeValueAsString(operation.getCreatedAt()));
+    }
+}
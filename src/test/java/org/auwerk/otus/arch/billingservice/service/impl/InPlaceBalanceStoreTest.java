@@ -0,0 +1,104 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.auwerk.otus.arch.billingservice.dao.AccountDao;
+import org.auwerk.otus.arch.billingservice.dao.OperationDao;
+import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationType;
+import org.auwerk.otus.arch.billingservice.exception.VersionConflictException;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+
+public class InPlaceBalanceStoreTest {
+
+    private final SqlConnection conn = mock(SqlConnection.class);
+    private final AccountDao accountDao = mock(AccountDao.class);
+    private final OperationDao operationDao = mock(OperationDao.class);
+    private final BalanceStore balanceStore = new InPlaceBalanceStore(
+            new PoolMetrics(new SimpleMeterRegistry(), 20), accountDao, operationDao);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void applyCredits_balancesUpdatedInAccountIdOrderBeforeInsert() {
+        // given
+        final var firstAccountId = new UUID(0, 1);
+        final var secondAccountId = new UUID(0, 2);
+        final var operations = List.of(
+                buildCredit(secondAccountId, 10),
+                buildCredit(firstAccountId, 5),
+                buildCredit(secondAccountId, 1));
+
+        // when
+        when(accountDao.addToBalances(eq(conn), any()))
+                .thenReturn(Uni.createFrom().voidItem());
+        when(operationDao.insertBatch(conn, operations))
+                .thenReturn(Uni.createFrom().voidItem());
+        final var subscriber = balanceStore.applyCredits(conn, operations)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertCompleted();
+
+        final ArgumentCaptor<Map<UUID, Money>> balanceDeltasCaptor = ArgumentCaptor.forClass(Map.class);
+        final var order = inOrder(accountDao, operationDao);
+        order.verify(accountDao).addToBalances(eq(conn), balanceDeltasCaptor.capture());
+        order.verify(operationDao).insertBatch(conn, operations);
+        assertEquals(List.of(firstAccountId, secondAccountId),
+                List.copyOf(balanceDeltasCaptor.getValue().keySet()));
+        assertEquals(Money.ofMajor(11), balanceDeltasCaptor.getValue().get(secondAccountId));
+    }
+
+    @Test
+    void applyOperations_versionConflict() {
+        // given
+        final var account = Account.builder()
+                .id(UUID.randomUUID())
+                .version(3L)
+                .build();
+        final var operations = List.of(buildCredit(account.getId(), 10));
+
+        // when
+        when(accountDao.updateBalanceById(conn, account.getId(), Money.ofMajor(10), 3))
+                .thenReturn(Uni.createFrom().failure(new VersionConflictException(account.getId())));
+        final var subscriber = balanceStore.applyOperations(conn, account, operations, Money.ofMajor(10))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertFailedWith(VersionConflictException.class);
+
+        final var order = inOrder(accountDao, operationDao);
+        order.verify(accountDao).updateBalanceById(eq(conn), eq(account.getId()), any(), anyLong());
+        order.verify(operationDao, never()).insertBatch(any(), any());
+    }
+
+    private static Operation buildCredit(UUID accountId, long amount) {
+        return Operation.builder()
+                .id(UUID.randomUUID())
+                .accountId(accountId)
+                .type(OperationType.CREDIT)
+                .amount(Money.ofMajor(amount))
+                .build();
+    }
+}
@@ -0,0 +1,217 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.auwerk.otus.arch.billingservice.dao.AccountDao;
+import org.auwerk.otus.arch.billingservice.dao.LedgerDao;
+import org.auwerk.otus.arch.billingservice.dao.OperationDao;
+import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationType;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+
+public class LedgerBalanceStoreTest {
+
+    private static final String USERNAME = "user";
+
+    private static final UUID ACCOUNT_ID = UUID.randomUUID();
+
+    private final PgPool pool = mock(PgPool.class);
+    private final SqlConnection conn = mock(SqlConnection.class);
+    private final AccountDao accountDao = mock(AccountDao.class);
+    private final OperationDao operationDao = mock(OperationDao.class);
+    private final LedgerDao ledgerDao = mock(LedgerDao.class);
+    private final BalanceStore balanceStore = new LedgerBalanceStore(new PoolMetrics(new SimpleMeterRegistry(), 20),
+            accountDao, operationDao, ledgerDao);
+
+    @BeforeEach
+    void mockTransaction() {
+        when(pool.withTransaction(any()))
+                .then(inv -> {
+                    final Function<SqlConnection, Uni<UUID>> f = inv.getArgument(0);
+                    return f.apply(conn);
+                });
+    }
+
+    @BeforeEach
+    void mockConnection() {
+        when(pool.withConnection(any()))
+                .then(inv -> {
+                    final Function<SqlConnection, Uni<Object>> f = inv.getArgument(0);
+                    return f.apply(conn);
+                });
+    }
+
+    @Test
+    void applyOperation_credit() {
+        // given
+        final var operationId = UUID.randomUUID();
+        final var operation = buildOperation(OperationType.CREDIT);
+
+        // when
+        when(ledgerDao.insertOperation(conn, USERNAME, operation))
+                .thenReturn(Uni.createFrom().item(operationId));
+        final var subscriber = balanceStore.applyOperation(pool, USERNAME, operation, Money.ofMajor(10))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertItem(operationId);
+
+        verify(pool, never()).withTransaction(any());
+        verify(accountDao, never()).findIdByUserNameForUpdate(any(), any());
+        verify(accountDao, never()).updateBalanceById(any(), any(), any(), anyLong());
+    }
+
+    @Test
+    void applyOperation_withdraw() {
+        // given
+        final var operationId = UUID.randomUUID();
+        final var operation = buildOperation(OperationType.WITHDRAW);
+        final var balanceDelta = Money.ofMajor(10).negate();
+
+        // when
+        when(accountDao.findIdByUserNameForUpdate(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(ACCOUNT_ID));
+        when(ledgerDao.insertOperationIfCovered(conn, ACCOUNT_ID, operation, balanceDelta))
+                .thenReturn(Uni.createFrom().item(operationId));
+        final var subscriber = balanceStore.applyOperation(pool, USERNAME, operation, balanceDelta)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertItem(operationId);
+
+        verify(pool, times(1)).withTransaction(any());
+        verify(accountDao, never()).updateBalanceById(any(), any(), any(), anyLong());
+    }
+
+    @Test
+    void applyOperation_withdrawInTransaction() {
+        // given
+        final var operation = buildOperation(OperationType.WITHDRAW);
+        final var balanceDelta = Money.ofMajor(10).negate();
+
+        // when
+        when(accountDao.findIdByUserNameForUpdate(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(ACCOUNT_ID));
+        when(ledgerDao.insertOperationIfCovered(conn, ACCOUNT_ID, operation, balanceDelta))
+                .thenReturn(Uni.createFrom().nullItem());
+        final var subscriber = balanceStore.applyOperation(conn, USERNAME, operation, balanceDelta)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertItem(null);
+
+        verify(pool, never()).withTransaction(any());
+    }
+
+    @Test
+    void applyOperation_withdrawAccountNotFound() {
+        // given
+        final var operation = buildOperation(OperationType.WITHDRAW);
+
+        // when
+        when(accountDao.findIdByUserNameForUpdate(conn, USERNAME))
+                .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
+        final var subscriber = balanceStore.applyOperation(pool, USERNAME, operation, Money.ofMajor(1).negate())
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertFailedWith(NoSuchElementException.class);
+
+        verify(ledgerDao, never()).insertOperationIfCovered(any(), any(), any(), any());
+    }
+
+    @Test
+    void lockAccount_success() {
+        // given
+        final var balance = Money.ofMajor(42);
+
+        // when
+        when(accountDao.findByUserNameForUpdate(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(buildAccount()));
+        when(ledgerDao.getBalance(conn, ACCOUNT_ID))
+                .thenReturn(Uni.createFrom().item(balance));
+        final var account = balanceStore.lockAccount(conn, USERNAME)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted()
+                .getItem();
+
+        // then
+        assertEquals(balance, account.getBalance());
+    }
+
+    @Test
+    void loadVersion_notTracked() {
+        // when
+        final var subscriber = balanceStore.loadVersion(pool, USERNAME)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertItem(null);
+
+        verify(accountDao, never()).findVersionByUserName(any(), any());
+    }
+
+    @Test
+    void applyOperations_success() {
+        // given
+        final var account = buildAccount();
+        final var operations = List.of(buildOperation(OperationType.CREDIT));
+
+        // when
+        when(operationDao.insertBatch(conn, operations))
+                .thenReturn(Uni.createFrom().voidItem());
+        final var subscriber = balanceStore.applyOperations(conn, account, operations, Money.ofMajor(10))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.assertCompleted();
+
+        verify(operationDao, times(1)).insertBatch(eq(conn), eq(operations));
+        verify(accountDao, never()).updateBalanceById(any(), any(), any(), anyLong());
+    }
+
+    private static Account buildAccount() {
+        return Account.builder()
+                .id(ACCOUNT_ID)
+                .userName(USERNAME)
+                .balance(Money.ZERO)
+                .build();
+    }
+
+    private static Operation buildOperation(OperationType type) {
+        return Operation.builder()
+                .type(type)
+                .amount(Money.ofMajor(10))
+                .build();
+    }
+}
@@ -0,0 +1,231 @@
+package org.auwerk.otus.arch.billingservice.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.auwerk.otus.arch.billingservice.config.BalanceConfig;
+import org.auwerk.otus.arch.billingservice.dao.AccountDao;
+import org.auwerk.otus.arch.billingservice.dao.OperationDao;
+import org.auwerk.otus.arch.billingservice.domain.Account;
+import org.auwerk.otus.arch.billingservice.domain.Money;
+import org.auwerk.otus.arch.billingservice.domain.Operation;
+import org.auwerk.otus.arch.billingservice.domain.OperationType;
+import org.auwerk.otus.arch.billingservice.exception.VersionConflictException;
+import org.auwerk.otus.arch.billingservice.metrics.PoolMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+
+public class OptimisticBalanceStoreTest {
+
+    private static final String USERNAME = "user";
+
+    private static final UUID ACCOUNT_ID = UUID.randomUUID();
+
+    private static final int MAX_RETRIES = 2;
+
+    private final PgPool pool = mock(PgPool.class);
+    private final SqlConnection conn = mock(SqlConnection.class);
+    private final AccountDao accountDao = mock(AccountDao.class);
+    private final OperationDao operationDao = mock(OperationDao.class);
+    private final BalanceConfig.OptimisticRetry config = mock(BalanceConfig.OptimisticRetry.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private BalanceStore balanceStore;
+
+    @BeforeEach
+    void mockConfig() {
+        when(config.maxRetries()).thenReturn(MAX_RETRIES);
+        when(config.initialBackoff()).thenReturn(Duration.ofMillis(1));
+        when(config.maxBackoff()).thenReturn(Duration.ofMillis(5));
+        when(config.jitter()).thenReturn(0.5);
+        balanceStore = new OptimisticBalanceStore(config, new PoolMetrics(registry, 20), registry, accountDao,
+                operationDao);
+    }
+
+    @BeforeEach
+    void mockTransaction() {
+        when(pool.withTransaction(any()))
+                .then(inv -> {
+                    final Function<SqlConnection, Uni<UUID>> f = inv.getArgument(0);
+                    return f.apply(conn);
+                });
+    }
+
+    @BeforeEach
+    void mockConnection() {
+        when(pool.withConnection(any()))
+                .then(inv -> {
+                    final Function<SqlConnection, Uni<Object>> f = inv.getArgument(0);
+                    return f.apply(conn);
+                });
+    }
+
+    @Test
+    void applyOperation_success() {
+        // given
+        final var operationId = UUID.randomUUID();
+        final var operation = buildOperation(OperationType.WITHDRAW);
+
+        // when
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(buildAccount(1)));
+        when(accountDao.updateBalanceById(conn, ACCOUNT_ID, Money.ofMajor(90), 1))
+                .thenReturn(Uni.createFrom().voidItem());
+        when(operationDao.insert(conn, operation))
+                .thenReturn(Uni.createFrom().item(operationId));
+        final var subscriber = balanceStore.applyOperation(pool, USERNAME, operation, Money.ofMajor(10).negate())
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.awaitItem().assertItem(operationId);
+        assertEquals(ACCOUNT_ID, operation.getAccountId());
+        assertEquals(0, registry.counter("billing.balance.optimistic.conflicts").count());
+    }
+
+    @Test
+    void applyOperation_retryAfterConflict() {
+        // given
+        final var operationId = UUID.randomUUID();
+        final var operation = buildOperation(OperationType.CREDIT);
+
+        // when
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(buildAccount(1)))
+                .thenReturn(Uni.createFrom().item(buildAccount(2)));
+        when(accountDao.updateBalanceById(conn, ACCOUNT_ID, Money.ofMajor(110), 1))
+                .thenReturn(Uni.createFrom().failure(new VersionConflictException(ACCOUNT_ID)));
+        when(accountDao.updateBalanceById(conn, ACCOUNT_ID, Money.ofMajor(110), 2))
+                .thenReturn(Uni.createFrom().voidItem());
+        when(operationDao.insert(conn, operation))
+                .thenReturn(Uni.createFrom().item(operationId));
+        final var subscriber = balanceStore.applyOperation(pool, USERNAME, operation, Money.ofMajor(10))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.awaitItem().assertItem(operationId);
+        assertEquals(2, registry.counter("billing.balance.optimistic.attempts").count());
+        assertEquals(1, registry.counter("billing.balance.optimistic.conflicts").count());
+        assertEquals(1, registry.summary("billing.balance.optimistic.retries").totalAmount());
+
+        verify(operationDao, times(1)).insert(conn, operation);
+    }
+
+    @Test
+    void applyOperation_accountDeletedAfterRead() {
+        // given
+        final var operation = buildOperation(OperationType.CREDIT);
+
+        // when
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(buildAccount(1)))
+                .thenReturn(Uni.createFrom().failure(new NoSuchElementException()));
+        when(accountDao.updateBalanceById(conn, ACCOUNT_ID, Money.ofMajor(110), 1))
+                .thenReturn(Uni.createFrom().failure(new VersionConflictException(ACCOUNT_ID)));
+        final var subscriber = balanceStore.applyOperation(pool, USERNAME, operation, Money.ofMajor(10))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.awaitFailure().assertFailedWith(NoSuchElementException.class);
+
+        verify(operationDao, never()).insert(any(), any());
+    }
+
+    @Test
+    void applyOperation_retriesExhausted() {
+        // given
+        final var operation = buildOperation(OperationType.CREDIT);
+
+        // when
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(buildAccount(1)));
+        when(accountDao.updateBalanceById(conn, ACCOUNT_ID, Money.ofMajor(110), 1))
+                .thenReturn(Uni.createFrom().failure(new VersionConflictException(ACCOUNT_ID)));
+        final var subscriber = balanceStore.applyOperation(pool, USERNAME, operation, Money.ofMajor(10))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.awaitFailure().assertFailedWith(VersionConflictException.class);
+        assertEquals(MAX_RETRIES + 1, registry.counter("billing.balance.optimistic.attempts").count());
+        assertEquals(1, registry.counter("billing.balance.optimistic.exhausted").count());
+
+        verify(operationDao, never()).insert(any(), any());
+    }
+
+    @Test
+    void applyOperation_insufficentBalance() {
+        // given
+        final var operation = buildOperation(OperationType.WITHDRAW);
+
+        // when
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(buildAccount(1)));
+        final var subscriber = balanceStore.applyOperation(pool, USERNAME, operation, Money.ofMajor(101).negate())
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.awaitItem().assertItem(null);
+
+        verify(pool, never()).withTransaction(any());
+        verify(accountDao, never()).updateBalanceById(any(), any(), any(), anyLong());
+    }
+
+    @Test
+    void applyOperation_inTransaction() {
+        // given
+        final var operationId = UUID.randomUUID();
+        final var operation = buildOperation(OperationType.CREDIT);
+
+        // when
+        when(accountDao.findByUserName(conn, USERNAME))
+                .thenReturn(Uni.createFrom().item(buildAccount(1)));
+        when(accountDao.updateBalanceById(conn, ACCOUNT_ID, Money.ofMajor(110), 1))
+                .thenReturn(Uni.createFrom().voidItem());
+        when(operationDao.insert(conn, operation))
+                .thenReturn(Uni.createFrom().item(operationId));
+        final var subscriber = balanceStore.applyOperation(conn, USERNAME, operation, Money.ofMajor(10))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        // then
+        subscriber.awaitItem().assertItem(operationId);
+
+        verify(pool, never()).withTransaction(any());
+    }
+
+    private static Account buildAccount(long version) {
+        return Account.builder()
+                .id(ACCOUNT_ID)
+                .userName(USERNAME)
+                .balance(Money.ofMajor(100))
+                .version(version)
+                .build();
+    }
+
+    private static Operation buildOperation(OperationType type) {
+        return Operation.builder()
+                .type(type)
+                .amount(Money.ofMajor(10))
+                .build();
+    }
+}